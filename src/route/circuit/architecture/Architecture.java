@@ -62,7 +62,8 @@ public class Architecture implements Serializable {
     private Document xmlDocument;
     private XPath xPath = XPathFactory.newInstance().newXPath();
     private transient Map<String, Boolean> modelIsClocked = new HashMap<>();
-    private Map<String, Float> sllSegmentData = new HashMap<>();
+    //The SLL segment and driver switch data by number of SLL rows
+    private Map<Integer, Map<String, Float>> sllSegmentData = new HashMap<>();
     private transient List<Pair<PortType, Float>> setupTimes = new ArrayList<>();
 	private int sllRows;
 	private float sllDelay;
@@ -137,12 +138,13 @@ public class Architecture implements Serializable {
     	List<Element> segmentListElements = this.getChildElementsByTagName(segmentListElement, "segment");
         for(Element segmentElement : segmentListElements) {
             String segmentName = segmentElement.getAttribute("name");
-            if(segmentName.equals("L"+ this.sllRows + "SN")) {
+            if(segmentName.matches("L\\d+SN")) {
+            	int rows = Integer.parseInt(segmentName.substring(1, segmentName.length() - 2));
             	float rWire = Float.valueOf(segmentElement.getAttribute("Rmetal"));
             	float cWire = Float.valueOf(segmentElement.getAttribute("Cmetal"));
 
-            	this.sllSegmentData.put("Rmetal" , rWire);
-            	this.sllSegmentData.put("Cmetal" , cWire);
+            	this.getSLLSegmentInfo(rows).put("Rmetal" , rWire);
+            	this.getSLLSegmentInfo(rows).put("Cmetal" , cWire);
             }
         }
     }
@@ -153,13 +155,14 @@ public class Architecture implements Serializable {
         for(Element switchElement : switchListElements) {
 
             String switchName = switchElement.getAttribute("name");
-            if(switchName.equals("seg"+ this.sllRows + "_driverSN")) {
+            if(switchName.matches("seg\\d+_driverSN")) {
+            	int rows = Integer.parseInt(switchName.substring(3, switchName.indexOf('_')));
             	float rSwitch = Float.valueOf(switchElement.getAttribute("R"));
             	float cSwitch = Float.valueOf(switchElement.getAttribute("Cout"));
             	float tDel = Float.valueOf(switchElement.getAttribute("Tdel"));
-            	this.sllSegmentData.put("RSwitch" , rSwitch);
-            	this.sllSegmentData.put("CSwitch" , cSwitch);
-            	this.sllSegmentData.put("tdel" , tDel);
+            	this.getSLLSegmentInfo(rows).put("RSwitch" , rSwitch);
+            	this.getSLLSegmentInfo(rows).put("CSwitch" , cSwitch);
+            	this.getSLLSegmentInfo(rows).put("tdel" , tDel);
 
             }
         }
@@ -1401,7 +1404,35 @@ public class Architecture implements Serializable {
     }
 
     public Map<String, Float> getSLLSegmentInfo(){
-    	return this.sllSegmentData;
+    	return this.getSLLSegmentInfo(this.sllRows);
+    }
+    /**
+     * The data of the SLL segment and its driver switch for a number of SLL
+     * rows, all of them are kept so a sweep can use other row counts
+     */
+    public Map<String, Float> getSLLSegmentInfo(int sllRows){
+    	Map<String, Float> data = this.sllSegmentData.get(sllRows);
+    	if(data == null) {
+    		data = new HashMap<>();
+    		this.sllSegmentData.put(sllRows, data);
+    	}
+    	return data;
+    }
+    /**
+     * True if the architecture has the L<n>SN segment and the
+     * seg<n>_driverSN switch of this number of SLL rows
+     */
+    public boolean hasSLLSegmentInfo(int sllRows){
+    	Map<String, Float> data = this.sllSegmentData.get(sllRows);
+    	if(data == null) {
+    		return false;
+    	}
+    	for(String key : new String[] {"Rmetal", "Cmetal", "RSwitch", "CSwitch", "tdel"}) {
+    		if(!data.containsKey(key)) {
+    			return false;
+    		}
+    	}
+    	return true;
     }
     
 
@@ -7,13 +7,18 @@ import route.circuit.architecture.BlockType;
 public class BlockTypeRRG implements Comparable<BlockTypeRRG> {
 	protected final int index;
 	protected final int height;
+	protected final int width;
 	protected String blocktype;
 	private List<PinClass> pinClasses;
+	//The port and the pin in the port of every ptc, made from the pin names when they are first asked for
+	private String[] portByPtc;
+	private int[] pinByPtc;
 	
 	public BlockTypeRRG(int index, int height,int width, String blockType) {
 		this.index = index;
 		this.height = height;
-		this.blocktype = blocktype;
+		this.width = width;
+		this.blocktype = blockType;
 		this.pinClasses = new ArrayList<PinClass>();
 	}
 	
@@ -21,6 +26,13 @@ public class BlockTypeRRG implements Comparable<BlockTypeRRG> {
         return index;
     }
 
+    public int getHeight() {
+        return height;
+    }
+    public int getWidth() {
+        return width;
+    }
+
     public String getBlockType() {
         return blocktype;
     }
@@ -30,8 +42,89 @@ public class BlockTypeRRG implements Comparable<BlockTypeRRG> {
     }
 
     public void addPinClass(String pinName, int pinId, String pintype) {
-        PinClass pinClass = new PinClass(pinName, pinId, pintype);
+        this.addPinClass(pinName, pinId, pintype, PinClass.NO_CLASS);
+    }
+    /**
+     * A pin of the pin class with this index in the block type, the ptc of
+     * the SOURCE or SINK of the class
+     */
+    public void addPinClass(String pinName, int pinId, String pintype, int classIndex) {
+        PinClass pinClass = new PinClass(pinName, pinId, pintype, classIndex);
         pinClasses.add(pinClass);
+        this.portByPtc = null;
+        this.pinByPtc = null;
+    }
+    
+    /**
+     * Give the pins with this ptc their class index, returns false if one
+     * of them already is in another class
+     */
+    public boolean setClassIndex(int pinId, int classIndex) {
+        for (PinClass pinClass : pinClasses) {
+            if (pinClass.getPinId() == pinId) {
+                if (pinClass.classIndex != PinClass.NO_CLASS && pinClass.classIndex != classIndex) {
+                    return false;
+                }
+                pinClass.classIndex = classIndex;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * The port of the pin with this ptc: "I" for the pin "clb.I[3]". The
+     * port names are interned, all pins of a port share one String.
+     */
+    public String getPortName(int ptc) {
+    	this.buildPortTable();
+    	if(ptc < 0 || ptc >= this.portByPtc.length || this.portByPtc[ptc] == null) {
+    		throw new RuntimeException("Block type " + this.blocktype + " has no pin with ptc " + ptc);
+    	}
+    	return this.portByPtc[ptc];
+    }
+    /**
+     * The index of the pin with this ptc in its port: 3 for the pin "clb.I[3]", 0 without an index
+     */
+    public int getPortPin(int ptc) {
+    	this.getPortName(ptc);
+    	return this.pinByPtc[ptc];
+    }
+    
+    private void buildPortTable() {
+    	if(this.portByPtc != null) {
+    		return;
+    	}
+    	int maxPtc = -1;
+    	for(PinClass pinClass : this.pinClasses) {
+    		maxPtc = Math.max(maxPtc, pinClass.getPinId());
+    	}
+    	String[] portByPtc = new String[maxPtc + 1];
+    	int[] pinByPtc = new int[maxPtc + 1];
+    	for(PinClass pinClass : this.pinClasses) {
+    		int ptc = pinClass.getPinId();
+    		//The first pin class with a ptc is the one that counts
+    		if(ptc < 0 || portByPtc[ptc] != null) {
+    			continue;
+    		}
+    		String pinName = pinClass.getPinName();
+    		int dot = pinName.indexOf('.');
+    		int end = pinName.indexOf('.', dot + 1);
+    		if(end < 0) {
+    			end = pinName.length();
+    		}
+    		int bracket = pinName.indexOf('[', dot + 1);
+    		if(bracket >= 0 && bracket < end) {
+    			int pin = 0;
+    			for(int i = bracket + 1; i < pinName.length() && Character.isDigit(pinName.charAt(i)); i++) {
+    				pin = 10 * pin + (pinName.charAt(i) - '0');
+    			}
+    			pinByPtc[ptc] = pin;
+    			end = bracket;
+    		}
+    		portByPtc[ptc] = pinName.substring(dot + 1, end).intern();
+    	}
+    	this.pinByPtc = pinByPtc;
+    	this.portByPtc = portByPtc;
     }
     
     public String getPinClassNameByPinId(int targetPinId) {  
@@ -44,14 +137,18 @@ public class BlockTypeRRG implements Comparable<BlockTypeRRG> {
     }
 
 	class PinClass {
+		static final int NO_CLASS = -1;
+		
 		private String pinName;
 		private int pinPtc;
 		private String pintype;
+		private int classIndex;
 		
-		public PinClass(String pinName, int pinId, String pintype) {
+		public PinClass(String pinName, int pinId, String pintype, int classIndex) {
 	        this.pinName = pinName;
 	        this.pinPtc = pinId;
 	        this.pintype = pintype;
+	        this.classIndex = classIndex;
 	    }
 		
 	    public String getPinName() {
@@ -64,6 +161,12 @@ public class BlockTypeRRG implements Comparable<BlockTypeRRG> {
 	    public String getPintype() {
 	        return pintype;
 	    }
+	    /**
+	     * The index of the class in the block type, NO_CLASS if it is not known
+	     */
+	    public int getClassIndex() {
+	        return classIndex;
+	    }
 	}
 	@Override
 	public int compareTo(BlockTypeRRG otherBlockType) {
@@ -0,0 +1,240 @@
+package route.circuit.resource;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Opens the echo files of a dump, which may be gzip compressed.
+ *
+ * A file is compressed if its name ends in .gz. An input is found either as
+ * it is named or with .gz appended. A compressed input is inflated on a
+ * thread of its own, a few blocks ahead of the thread that parses it.
+ */
+public class EchoFile {
+	public static final String GZIP_SUFFIX = ".gz";
+
+	private static final int BLOCK_SIZE = 1 << 20;
+	private static final int BLOCKS_AHEAD = 4;
+	private static final int GZIP_BUFFER_SIZE = 1 << 16;
+	private static final int FILE_BUFFER_SIZE = 1 << 22;
+
+	private EchoFile() {
+	}
+
+	public static boolean isCompressed(File file) {
+		return file.getName().endsWith(GZIP_SUFFIX);
+	}
+
+	/**
+	 * The file name in the directory, or the compressed file if only that one exists
+	 */
+	public static File find(File directory, String name) {
+		return find(new File(directory, name));
+	}
+	public static File find(File file) {
+		if(!file.exists()) {
+			File compressed = new File(file.getPath() + GZIP_SUFFIX);
+			if(compressed.exists()) {
+				return compressed;
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * The output file name in the directory, compressed if asked
+	 */
+	public static File output(File directory, String name, boolean compress) {
+		return new File(directory, compress ? name + GZIP_SUFFIX : name);
+	}
+
+	/********************
+	 * Reading
+	 ********************/
+
+	public static ReadableByteChannel openChannel(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		if(!isCompressed(file)) {
+			return channel;
+		}
+		return new InflatingChannel(file, channel);
+	}
+
+	public static InputStream openStream(File file) throws IOException {
+		return Channels.newInputStream(openChannel(file));
+	}
+
+	public static byte[] readAllBytes(File file) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(InputStream input = openStream(file)) {
+			byte[] block = new byte[GZIP_BUFFER_SIZE];
+			int n;
+			while((n = input.read(block)) >= 0) {
+				bytes.write(block, 0, n);
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Reads the inflated blocks that a thread of its own inflates from the file
+	 */
+	private static class InflatingChannel implements ReadableByteChannel {
+		private static final byte[] END = new byte[0];
+
+		private final BlockingQueue<byte[]> blocks;
+		private final Thread inflater;
+		//Whatever stopped the inflater, it is thrown by the reader after the last block
+		private volatile Throwable error;
+
+		private byte[] block;
+		private int blockPosition;
+		private boolean open;
+
+		InflatingChannel(final File file, final FileChannel channel) {
+			this.blocks = new ArrayBlockingQueue<>(BLOCKS_AHEAD);
+			this.inflater = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					InflatingChannel.this.inflate(file, channel);
+				}
+			}, "inflate " + file.getName());
+			this.inflater.setDaemon(true);
+			this.inflater.start();
+
+			this.block = null;
+			this.blockPosition = 0;
+			this.open = true;
+		}
+
+		private void inflate(File file, FileChannel channel) {
+			try(InputStream input = new GZIPInputStream(Channels.newInputStream(channel), GZIP_BUFFER_SIZE)) {
+				while(true) {
+					byte[] block = new byte[BLOCK_SIZE];
+					int length = 0;
+					int n = 0;
+					while(length < block.length && (n = input.read(block, length, block.length - length)) >= 0) {
+						length += n;
+					}
+					if(length > 0) {
+						this.blocks.put(length == block.length ? block : Arrays.copyOf(block, length));
+					}
+					if(n < 0) {
+						break;
+					}
+				}
+			} catch(IOException error) {
+				this.error = new IOException("Problem inflating " + file + ": " + error.getMessage(), error);
+			} catch(InterruptedException error) {
+				return;
+			} catch(Throwable error) {
+				this.error = error;
+			}
+			try {
+				this.blocks.put(END);
+			} catch(InterruptedException error) {
+				return;
+			}
+		}
+
+		@Override
+		public int read(ByteBuffer destination) throws IOException {
+			if(!this.open) {
+				throw new ClosedChannelException();
+			}
+			if(this.block == END) {
+				return -1;
+			}
+			if(this.block == null || this.blockPosition == this.block.length) {
+				try {
+					this.block = this.blocks.take();
+				} catch(InterruptedException error) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while inflating", error);
+				}
+				this.blockPosition = 0;
+				if(this.block == END) {
+					this.throwError();
+					return -1;
+				}
+			}
+			int n = Math.min(destination.remaining(), this.block.length - this.blockPosition);
+			destination.put(this.block, this.blockPosition, n);
+			this.blockPosition += n;
+			return n;
+		}
+
+		private void throwError() throws IOException {
+			Throwable error = this.error;
+			if(error instanceof IOException) {
+				throw (IOException) error;
+			} else if(error instanceof RuntimeException) {
+				throw (RuntimeException) error;
+			} else if(error instanceof Error) {
+				throw (Error) error;
+			} else if(error != null) {
+				throw new IOException(error);
+			}
+		}
+
+		@Override
+		public boolean isOpen() {
+			return this.open;
+		}
+
+		@Override
+		public void close() {
+			if(this.open) {
+				this.open = false;
+				this.inflater.interrupt();
+			}
+		}
+	}
+
+	/********************
+	 * Writing
+	 ********************/
+
+	public static WritableByteChannel createChannel(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		if(!isCompressed(file)) {
+			return channel;
+		}
+		return Channels.newChannel(deflate(Channels.newOutputStream(channel)));
+	}
+
+	public static OutputStream createStream(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		OutputStream output = Channels.newOutputStream(channel);
+		if(isCompressed(file)) {
+			return deflate(output);
+		}
+		return new BufferedOutputStream(output, FILE_BUFFER_SIZE);
+	}
+
+	public static BufferedWriter createWriter(File file) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(createStream(file)));
+	}
+
+	private static OutputStream deflate(OutputStream output) throws IOException {
+		return new GZIPOutputStream(new BufferedOutputStream(output, FILE_BUFFER_SIZE), GZIP_BUFFER_SIZE);
+	}
+}
@@ -0,0 +1,449 @@
+package route.circuit.resource;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import route.circuit.exceptions.InvalidFileFormatException;
+
+/**
+ * Cursor over the lines and fields of an echo file, without creating a
+ * String per line or per field.
+ *
+ * The fields of a line are separated either by a delimiter, ';' in the
+ * echo files of VPR, or by runs of blanks. Blanks around a field are never
+ * part of it. The cursor reads the fields of the current line from left to
+ * right as int, float, keyword or, when nothing else fits, String.
+ *
+ * A tokenizer either streams a file through a small buffer, inflating it
+ * if it is gzip compressed, or walks the
+ * lines of a region of a buffer the caller already holds, for example a
+ * memory mapped chunk of a file.
+ */
+public class EchoTokenizer implements Closeable {
+	public static final byte WHITESPACE = 0;
+	public static final byte SEMICOLON = ';';
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private final String source;
+	private final byte delimiter;
+
+	//Streaming input, null for a fixed region
+	private final ReadableByteChannel channel;
+	private boolean endOfInput;
+
+	private ByteBuffer buffer;
+	private long bufferOffset;
+	private int limit;
+
+	private int lineStart, lineEnd, nextLineStart;
+	private int pos;
+	private int fieldStart, fieldEnd;
+
+	/**
+	 * Stream the lines of a file
+	 */
+	public EchoTokenizer(File file, byte delimiter) throws IOException {
+		this.source = file.toString();
+		this.delimiter = delimiter;
+
+		this.channel = EchoFile.openChannel(file);
+		this.endOfInput = false;
+
+		this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		this.bufferOffset = 0;
+		this.limit = 0;
+
+		this.nextLineStart = 0;
+	}
+
+	/**
+	 * Walk the lines of buffer that start in [start, end). The last line may
+	 * run on up to the limit of the buffer. The offset of the buffer in its
+	 * file is only used in error messages.
+	 */
+	public EchoTokenizer(ByteBuffer buffer, int start, long offset, String source, byte delimiter) {
+		this.source = source;
+		this.delimiter = delimiter;
+
+		this.channel = null;
+		this.endOfInput = true;
+
+		this.buffer = buffer;
+		this.bufferOffset = offset;
+		this.limit = buffer.limit();
+
+		this.nextLineStart = start;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(this.channel != null) {
+			this.channel.close();
+		}
+	}
+
+	/********************
+	 * Lines
+	 ********************/
+
+	/**
+	 * Move the cursor to the start of the next line, returns false at the
+	 * end of the input
+	 */
+	public boolean nextLine() throws IOException {
+		int start = this.nextLineStart;
+		int end = start;
+		while(true) {
+			while(end < this.limit && this.buffer.get(end) != '\n') end++;
+			if(end < this.limit || this.endOfInput) break;
+
+			//The line runs on past the buffer, move it to the front and read on
+			int length = end - start;
+			this.refill(start);
+			start = 0;
+			end = length;
+		}
+
+		if(start >= this.limit) {
+			return false;
+		}
+
+		this.lineStart = start;
+		this.lineEnd = end;
+		if(end > start && this.buffer.get(end - 1) == '\r') {
+			this.lineEnd--;
+		}
+		this.nextLineStart = end + 1;
+		this.pos = this.lineStart;
+		return true;
+	}
+
+	private void refill(int keepFrom) throws IOException {
+		int keep = this.limit - keepFrom;
+		ByteBuffer target = this.buffer;
+		if(keep > target.capacity() / 2) {
+			target = ByteBuffer.allocate(2 * target.capacity());
+		}
+		System.arraycopy(this.buffer.array(), keepFrom, target.array(), 0, keep);
+		this.buffer = target;
+		this.bufferOffset += keepFrom;
+
+		this.buffer.clear();
+		this.buffer.position(keep);
+		while(this.buffer.hasRemaining()) {
+			if(this.channel.read(this.buffer) < 0) {
+				this.endOfInput = true;
+				break;
+			}
+		}
+		this.limit = this.buffer.position();
+	}
+
+	/**
+	 * Buffer index of the start of the line after the current line
+	 */
+	public int nextLinePosition() {
+		return this.nextLineStart;
+	}
+
+	/**
+	 * Offset of the current line in its file
+	 */
+	public long lineOffset() {
+		return this.bufferOffset + this.lineStart;
+	}
+
+	public boolean isBlankLine() {
+		for(int i = this.lineStart; i < this.lineEnd; i++) {
+			if(!isBlank(this.buffer.get(i))) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * The number of fields of the current line, a trailing delimiter does not
+	 * start a field. The cursor does not move.
+	 */
+	public int countFields() {
+		int saved = this.pos;
+		int savedStart = this.fieldStart, savedEnd = this.fieldEnd;
+
+		this.pos = this.lineStart;
+		int count = 0;
+		while(this.hasNextField()) {
+			this.field();
+			count++;
+		}
+
+		this.pos = saved;
+		this.fieldStart = savedStart;
+		this.fieldEnd = savedEnd;
+		return count;
+	}
+
+	/**
+	 * Append the current line as it is in the file, without line terminator
+	 */
+	public void appendLine(StringBuilder builder) {
+		builder.append(this.line());
+	}
+
+	/**
+	 * Write the bytes of the current line from a cursor position up to the
+	 * end of the line, without line terminator
+	 */
+	public void writeLine(OutputStream out, int from) throws IOException {
+		if(this.buffer.hasArray()) {
+			out.write(this.buffer.array(), this.buffer.arrayOffset() + from, this.lineEnd - from);
+		} else {
+			for(int i = from; i < this.lineEnd; i++) {
+				out.write(this.buffer.get(i));
+			}
+		}
+	}
+
+	/**
+	 * The cursor position, the start of the next field
+	 */
+	public int position() {
+		return this.pos;
+	}
+
+	public String line() {
+		byte[] bytes = new byte[this.lineEnd - this.lineStart];
+		for(int i = 0; i < bytes.length; i++) {
+			bytes[i] = this.buffer.get(this.lineStart + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/********************
+	 * Fields
+	 ********************/
+	public boolean hasNextField() {
+		while(this.pos < this.lineEnd && isBlank(this.buffer.get(this.pos))) this.pos++;
+		return this.pos < this.lineEnd;
+	}
+
+	/**
+	 * Mark the next field and move the cursor past it and its delimiter
+	 */
+	private void field() {
+		while(this.pos < this.lineEnd && isBlank(this.buffer.get(this.pos))) this.pos++;
+		this.fieldStart = this.pos;
+
+		if(this.delimiter == WHITESPACE) {
+			while(this.pos < this.lineEnd && !isBlank(this.buffer.get(this.pos))) this.pos++;
+			this.fieldEnd = this.pos;
+		} else {
+			while(this.pos < this.lineEnd && this.buffer.get(this.pos) != this.delimiter) this.pos++;
+			this.fieldEnd = this.pos;
+			while(this.fieldEnd > this.fieldStart && isBlank(this.buffer.get(this.fieldEnd - 1))) this.fieldEnd--;
+			if(this.pos < this.lineEnd) this.pos++;
+		}
+	}
+
+	public void skipField() {
+		this.field();
+	}
+	public void skipFields(int count) {
+		for(int i = 0; i < count; i++) {
+			this.field();
+		}
+	}
+
+	public int nextInt() throws InvalidFileFormatException {
+		this.field();
+
+		int i = this.fieldStart;
+		boolean negative = false;
+		if(i < this.fieldEnd && (this.buffer.get(i) == '-' || this.buffer.get(i) == '+')) {
+			negative = this.buffer.get(i) == '-';
+			i++;
+		}
+		if(i == this.fieldEnd) {
+			throw this.fieldError("int");
+		}
+
+		long value = 0;
+		for(; i < this.fieldEnd; i++) {
+			int digit = this.buffer.get(i) - '0';
+			if(digit < 0 || digit > 9) {
+				throw this.fieldError("int");
+			}
+			value = 10 * value + digit;
+			if(value > (long) Integer.MAX_VALUE + 1) {
+				throw this.fieldError("int");
+			}
+		}
+		if(negative) value = -value;
+		if(value > Integer.MAX_VALUE) {
+			throw this.fieldError("int");
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Parses the next field to exactly the float Float.parseFloat returns.
+	 * Plain decimals with at most 2^53 as significand and a decimal exponent
+	 * of at most 22 are parsed in double precision, which is exact up to the
+	 * final rounding. Rounding that double to float gives the same float as
+	 * rounding the decimal directly, unless the double lies exactly halfway
+	 * between two floats. Those and all other cases fall back on parseFloat.
+	 */
+	public float nextFloat() throws InvalidFileFormatException {
+		this.field();
+
+		int i = this.fieldStart;
+		int end = this.fieldEnd;
+		boolean negative = false;
+		if(i < end && (this.buffer.get(i) == '-' || this.buffer.get(i) == '+')) {
+			negative = this.buffer.get(i) == '-';
+			i++;
+		}
+
+		long significand = 0;
+		int numDigits = 0, exponent = 0;
+		boolean exact = true;
+		boolean seenPoint = false;
+		for(; i < end; i++) {
+			byte b = this.buffer.get(i);
+			if(b == '.' && !seenPoint) {
+				seenPoint = true;
+				continue;
+			}
+			int digit = b - '0';
+			if(digit < 0 || digit > 9) break;
+			numDigits++;
+			if(significand > (1L << 53) / 10) {
+				exact = false;
+			} else {
+				significand = 10 * significand + digit;
+			}
+			if(seenPoint) exponent--;
+		}
+		if(i < end && (this.buffer.get(i) == 'e' || this.buffer.get(i) == 'E') && numDigits > 0) {
+			i++;
+			boolean negativeExponent = false;
+			if(i < end && (this.buffer.get(i) == '-' || this.buffer.get(i) == '+')) {
+				negativeExponent = this.buffer.get(i) == '-';
+				i++;
+			}
+			int exponentStart = i, explicitExponent = 0;
+			for(; i < end; i++) {
+				int digit = this.buffer.get(i) - '0';
+				if(digit < 0 || digit > 9 || explicitExponent > 1000) break;
+				explicitExponent = 10 * explicitExponent + digit;
+			}
+			if(i == exponentStart) exact = false;
+			exponent += negativeExponent ? -explicitExponent : explicitExponent;
+		}
+
+		if(exact && i == end && numDigits > 0 && significand <= (1L << 53) && Math.abs(exponent) <= 22) {
+			double value = exponent < 0 ? significand / POWERS_OF_TEN[-exponent] : significand * POWERS_OF_TEN[exponent];
+			if(value == 0) {
+				return negative ? -0.0f : 0.0f;
+			}
+			if(value >= Float.MIN_NORMAL && value <= Float.MAX_VALUE) {
+				//The 29 low bits of the double significand are rounded off, 1 << 28 is a tie
+				long bits = Double.doubleToRawLongBits(value);
+				if((bits & ((1L << 29) - 1)) != (1L << 28)) {
+					float result = (float) value;
+					return negative ? -result : result;
+				}
+			}
+		}
+
+		try {
+			return Float.parseFloat(this.fieldString());
+		} catch(NumberFormatException error) {
+			throw this.fieldError("float");
+		}
+	}
+
+	public String nextString() {
+		this.field();
+		return this.fieldString();
+	}
+
+	/**
+	 * Returns the position of the next field in keywords and moves past it,
+	 * or -1 if it is none of them. The field is then still available as
+	 * lastField().
+	 */
+	public int nextKeyword(String[] keywords) {
+		this.field();
+		for(int k = 0; k < keywords.length; k++) {
+			if(this.fieldEquals(keywords[k])) {
+				return k;
+			}
+		}
+		return -1;
+	}
+
+	public <E extends Enum<E>> E nextEnum(E[] values) {
+		this.field();
+		for(E value : values) {
+			if(this.fieldEquals(value.name())) {
+				return value;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Moves past the next field only if it equals text
+	 */
+	public boolean nextFieldEquals(String text) {
+		int saved = this.pos;
+		this.field();
+		if(this.fieldEquals(text)) {
+			return true;
+		}
+		this.pos = saved;
+		return false;
+	}
+
+	public String lastField() {
+		return this.fieldString();
+	}
+
+	private boolean fieldEquals(String text) {
+		if(this.fieldEnd - this.fieldStart != text.length()) {
+			return false;
+		}
+		for(int i = 0; i < text.length(); i++) {
+			if(this.buffer.get(this.fieldStart + i) != text.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String fieldString() {
+		byte[] bytes = new byte[this.fieldEnd - this.fieldStart];
+		for(int i = 0; i < bytes.length; i++) {
+			bytes[i] = this.buffer.get(this.fieldStart + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private InvalidFileFormatException fieldError(String expected) {
+		return new InvalidFileFormatException("Expected " + expected + " but found \"" + this.fieldString() + "\" at byte " + (this.bufferOffset + this.fieldStart) + " of " + this.source + ": " + this.line());
+	}
+
+	private static boolean isBlank(byte b) {
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+}
@@ -4,8 +4,8 @@ public class Ipin extends RouteNode {
 	private final String portName;
 	private final int portIndex;
 	
-	public Ipin(int index, int xlow, int xhigh, int ylow, int yhigh, int n, String portName, int portIndex, IndexedData indexedData, String direction, int numChildren) {
-		super(index, xlow, xhigh, ylow, yhigh, n, 1, RouteNodeType.IPIN, 0, 0, indexedData, "none", numChildren);
+	public Ipin(RouteNodeTable table, int index, String portName, int portIndex) {
+		super(table, index);
 		this.portName = portName;
 		this.portIndex = portIndex;
 	}
@@ -17,11 +17,8 @@ public class Ipin extends RouteNode {
 		return this.portIndex;
 	}
 	
-	public void setSinkName() {
-		int numSinks = this.children.length;
-		assert numSinks == 1;
-		
-		RouteNode child = this.children[0];
+	public void setSinkName(RouteNode child) {
+		assert this.getNumChildren() == 1;
 		assert child.type.equals(RouteNodeType.SINK);
 		
 		((Sink)child).setName(this.portName, this.portIndex);
@@ -0,0 +1,278 @@
+package route.circuit.resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import route.circuit.exceptions.InvalidFileFormatException;
+
+/**
+ * Reads the edges of rrEdge_info.echo, one "sink;source;switch" line per
+ * edge, into a RouteEdgeStore.
+ *
+ * The file is memory mapped and split on line boundaries into chunks that
+ * are parsed in parallel into primitive edge buffers. The buffers are added
+ * to the edge store in chunk order, so the edge store is filled exactly as
+ * if the file was read line by line.
+ *
+ * A gzip compressed file cannot be mapped. It is inflated on a thread of
+ * its own and cut into chunks of whole lines, which are parsed in parallel
+ * in the same way.
+ */
+public class RRGEdgeReader {
+	private static final long MIN_CHUNK_SIZE = 1 << 20;
+	private static final long MAX_CHUNK_SIZE = 1 << 30;
+	//Room after the end of a chunk for the last line that starts in it
+	private static final int MAX_LINE_LENGTH = 1 << 12;
+
+	private final File file;
+	private final int numThreads;
+
+	public RRGEdgeReader(File file, int numThreads) {
+		this.file = file;
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	/**
+	 * Add all edges of the file to the edge store and return the number of edges
+	 */
+	public long read(RouteEdgeStore edges) throws IOException, InvalidFileFormatException {
+		if(EchoFile.isCompressed(this.file)) {
+			return this.readCompressed(edges);
+		}
+		try(FileChannel channel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+
+			long chunkSize = (size + 4 * this.numThreads - 1) / (4 * this.numThreads);
+			chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, chunkSize));
+
+			List<EdgeChunk> chunks = new ArrayList<>();
+			for(long start = 0; start < size; start += chunkSize) {
+				chunks.add(new EdgeChunk(channel, size, start, Math.min(size, start + chunkSize)));
+			}
+
+			long numEdges = 0;
+			if(this.numThreads == 1 || chunks.size() == 1) {
+				for(EdgeChunk chunk : chunks) {
+					numEdges += chunk.call().addTo(edges);
+				}
+			} else {
+				ExecutorService pool = Executors.newFixedThreadPool(Math.min(this.numThreads, chunks.size()));
+				try {
+					List<Future<EdgeBuffer>> results = new ArrayList<>();
+					for(EdgeChunk chunk : chunks) {
+						results.add(pool.submit(chunk));
+					}
+					//The chunks are added in file order while the later chunks are still parsed
+					for(Future<EdgeBuffer> result : results) {
+						numEdges += result.get().addTo(edges);
+					}
+				} catch(InterruptedException error) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while reading " + this.file, error);
+				} catch(ExecutionException error) {
+					Throwable cause = error.getCause();
+					if(cause instanceof InvalidFileFormatException) {
+						throw (InvalidFileFormatException) cause;
+					} else if(cause instanceof IOException) {
+						throw (IOException) cause;
+					}
+					throw new RuntimeException(cause);
+				} finally {
+					pool.shutdownNow();
+				}
+			}
+
+			return numEdges;
+		}
+	}
+
+	/**
+	 * The chunks are parsed while the next chunks are inflated, at most a
+	 * few chunks per thread are kept in memory
+	 */
+	private long readCompressed(RouteEdgeStore edges) throws IOException, InvalidFileFormatException {
+		ExecutorService pool = this.numThreads == 1 ? null : Executors.newFixedThreadPool(this.numThreads);
+		Deque<Future<EdgeBuffer>> pending = new ArrayDeque<>();
+		long numEdges = 0;
+		try(ReadableByteChannel channel = EchoFile.openChannel(this.file)) {
+			ByteBuffer buffer = ByteBuffer.allocate((int) MIN_CHUNK_SIZE * 4);
+			long offset = 0;
+			boolean endOfInput = false;
+			while(!endOfInput) {
+				while(buffer.hasRemaining()) {
+					if(channel.read(buffer) < 0) {
+						endOfInput = true;
+						break;
+					}
+				}
+
+				//The chunk ends after its last complete line, the rest starts the next chunk
+				int end = buffer.position();
+				if(!endOfInput) {
+					while(end > 0 && buffer.get(end - 1) != '\n') end--;
+					if(end == 0) {
+						throw new InvalidFileFormatException("Line at byte " + offset + " of " + this.file + " is too long");
+					}
+				}
+				ByteBuffer chunk = ByteBuffer.wrap(Arrays.copyOf(buffer.array(), end));
+				buffer.flip();
+				buffer.position(end);
+				buffer.compact();
+
+				LineChunk lines = new LineChunk(chunk, offset);
+				offset += end;
+				if(pool == null) {
+					numEdges += lines.call().addTo(edges);
+				} else {
+					pending.add(pool.submit(lines));
+					if(pending.size() > 2 * this.numThreads) {
+						numEdges += pending.poll().get().addTo(edges);
+					}
+				}
+			}
+			while(!pending.isEmpty()) {
+				numEdges += pending.poll().get().addTo(edges);
+			}
+		} catch(InterruptedException error) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading " + this.file, error);
+		} catch(ExecutionException error) {
+			Throwable cause = error.getCause();
+			if(cause instanceof InvalidFileFormatException) {
+				throw (InvalidFileFormatException) cause;
+			} else if(cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new RuntimeException(cause);
+		} finally {
+			if(pool != null) {
+				pool.shutdownNow();
+			}
+		}
+		return numEdges;
+	}
+
+	private static void addLine(EchoTokenizer tokenizer, EdgeBuffer edges) throws InvalidFileFormatException {
+		if(tokenizer.isBlankLine()) {
+			return;
+		}
+		int sink = tokenizer.nextInt();
+		int source = tokenizer.nextInt();
+		int switchIndex = tokenizer.nextInt();
+		edges.add(sink, source, switchIndex);
+	}
+
+	private static class EdgeBuffer {
+		private int[] sink, source, switchIndex;
+		private int size;
+
+		EdgeBuffer(int capacity) {
+			this.sink = new int[capacity];
+			this.source = new int[capacity];
+			this.switchIndex = new int[capacity];
+			this.size = 0;
+		}
+
+		void add(int sink, int source, int switchIndex) {
+			if(this.size == this.sink.length) {
+				int newLength = 2 * this.sink.length;
+				this.sink = Arrays.copyOf(this.sink, newLength);
+				this.source = Arrays.copyOf(this.source, newLength);
+				this.switchIndex = Arrays.copyOf(this.switchIndex, newLength);
+			}
+			this.sink[this.size] = sink;
+			this.source[this.size] = source;
+			this.switchIndex[this.size] = switchIndex;
+			this.size++;
+		}
+
+		int addTo(RouteEdgeStore edges) {
+			for(int i = 0; i < this.size; i++) {
+				edges.addEdge(this.source[i], this.sink[i], this.switchIndex[i]);
+			}
+			return this.size;
+		}
+	}
+
+	/**
+	 * Parses the lines that start in [start, end) of the file
+	 */
+	private class EdgeChunk implements Callable<EdgeBuffer> {
+		private final FileChannel channel;
+		private final long fileSize;
+		private final long start, end;
+
+		EdgeChunk(FileChannel channel, long fileSize, long start, long end) {
+			this.channel = channel;
+			this.fileSize = fileSize;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public EdgeBuffer call() throws IOException, InvalidFileFormatException {
+			//Map one byte before the chunk to see whether it starts on a new line
+			long mapStart = Math.max(0, this.start - 1);
+			long mapEnd = Math.min(this.fileSize, this.end + MAX_LINE_LENGTH);
+			MappedByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+
+			int limit = (int) (mapEnd - mapStart);
+			int chunkEnd = (int) (this.end - mapStart);
+			int pos = (int) (this.start - mapStart);
+
+			//A line that started in the previous chunk belongs to that chunk
+			if(this.start > 0 && buffer.get(pos - 1) != '\n') {
+				while(pos < limit && buffer.get(pos) != '\n') pos++;
+				pos++;
+			}
+
+			EdgeBuffer edges = new EdgeBuffer((int) Math.max(16, (this.end - this.start) / 16));
+			EchoTokenizer tokenizer = new EchoTokenizer(buffer, pos, mapStart, RRGEdgeReader.this.file.toString(), EchoTokenizer.SEMICOLON);
+			while(tokenizer.nextLinePosition() < chunkEnd && tokenizer.nextLine()) {
+				if(tokenizer.nextLinePosition() > limit && mapEnd < this.fileSize) {
+					throw new InvalidFileFormatException("Line at byte " + tokenizer.lineOffset() + " of " + RRGEdgeReader.this.file + " is too long");
+				}
+				addLine(tokenizer, edges);
+			}
+			return edges;
+		}
+	}
+
+	/**
+	 * Parses the lines of an inflated chunk, the chunk ends on a line end
+	 */
+	private class LineChunk implements Callable<EdgeBuffer> {
+		private final ByteBuffer buffer;
+		private final long offset;
+
+		LineChunk(ByteBuffer buffer, long offset) {
+			this.buffer = buffer;
+			this.offset = offset;
+		}
+
+		@Override
+		public EdgeBuffer call() throws InvalidFileFormatException, IOException {
+			EdgeBuffer edges = new EdgeBuffer(Math.max(16, this.buffer.limit() / 16));
+			EchoTokenizer tokenizer = new EchoTokenizer(this.buffer, 0, this.offset, RRGEdgeReader.this.file.toString(), EchoTokenizer.SEMICOLON);
+			while(tokenizer.nextLine()) {
+				addLine(tokenizer, edges);
+			}
+			return edges;
+		}
+	}
+}
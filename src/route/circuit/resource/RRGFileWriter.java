@@ -0,0 +1,189 @@
+package route.circuit.resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Writes a file of lines that are formatted in chunks, for example the
+ * lines of a range of nodes.
+ *
+ * The chunks are formatted on the threads of a pool into byte buffers, at
+ * most a window of chunks ahead of the chunk that is written. The buffers
+ * are reused from chunk to chunk. The writing thread copies the chunks in
+ * order into a large direct buffer on the file channel, so the file is the
+ * same as if the lines were written one by one. A file with a name that
+ * ends in .gz is compressed on the writing thread.
+ */
+public class RRGFileWriter {
+	private static final int WRITE_BUFFER_SIZE = 1 << 22;
+
+	public interface ChunkFormat {
+		/**
+		 * Append the lines of the items first to last, exclusive
+		 */
+		void format(int first, int last, LineBuffer out);
+	}
+
+	/**
+	 * The bytes of the lines of one chunk
+	 */
+	public static class LineBuffer {
+		private byte[] bytes = new byte[1 << 16];
+		private int length = 0;
+
+		private void room(int numBytes) {
+			if(this.length + numBytes > this.bytes.length) {
+				this.bytes = Arrays.copyOf(this.bytes, Math.max(this.length + numBytes, 2 * this.bytes.length));
+			}
+		}
+
+		public void append(char c) {
+			this.room(1);
+			this.bytes[this.length++] = (byte) c;
+		}
+		/**
+		 * The text is ASCII, as all text of the echo files
+		 */
+		public void append(CharSequence text) {
+			int n = text.length();
+			this.room(n);
+			for(int i = 0; i < n; i++) {
+				this.bytes[this.length++] = (byte) text.charAt(i);
+			}
+		}
+		public void appendInt(int value) {
+			if(value < 0) {
+				if(value == Integer.MIN_VALUE) {
+					this.append("-2147483648");
+					return;
+				}
+				this.append('-');
+				value = -value;
+			}
+			int numDigits = 1;
+			for(int rest = value / 10; rest > 0; rest /= 10) {
+				numDigits++;
+			}
+			this.room(numDigits);
+			for(int i = this.length + numDigits - 1; i >= this.length; i--) {
+				this.bytes[i] = (byte) ('0' + value % 10);
+				value /= 10;
+			}
+			this.length += numDigits;
+		}
+	}
+
+	private final File file;
+	private final int numItems;
+	private final int chunkSize;
+	private final ChunkFormat format;
+
+	public RRGFileWriter(File file, int numItems, int chunkSize, ChunkFormat format) {
+		this.file = file;
+		this.numItems = numItems;
+		this.chunkSize = Math.max(1, chunkSize);
+		this.format = format;
+	}
+
+	/**
+	 * Format and write all chunks and return the number of bytes written.
+	 * Without a pool the chunks are formatted on this thread.
+	 */
+	public long write(ExecutorService pool, int window) throws IOException, InterruptedException {
+		int numChunks = (int) (((long) this.numItems + this.chunkSize - 1) / this.chunkSize);
+		window = pool == null ? 1 : Math.max(1, Math.min(window, numChunks));
+
+		LineBuffer[] buffers = new LineBuffer[window];
+		for(int b = 0; b < window; b++) {
+			buffers[b] = new LineBuffer();
+		}
+		@SuppressWarnings("unchecked")
+		Future<LineBuffer>[] pending = (Future<LineBuffer>[]) new Future<?>[window];
+
+		ByteBuffer output = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+		long numBytes = 0;
+		try(WritableByteChannel channel = EchoFile.createChannel(this.file)) {
+			if(pool != null) {
+				for(int chunk = 0; chunk < window && chunk < numChunks; chunk++) {
+					pending[chunk] = pool.submit(this.chunkTask(chunk, buffers[chunk]));
+				}
+			}
+			for(int chunk = 0; chunk < numChunks; chunk++) {
+				int slot = chunk % window;
+				LineBuffer buffer;
+				if(pool == null) {
+					buffer = this.formatChunk(chunk, buffers[slot]);
+				} else {
+					buffer = get(pending[slot]);
+				}
+
+				for(int start = 0; start < buffer.length; ) {
+					if(!output.hasRemaining()) {
+						flush(channel, output);
+					}
+					int n = Math.min(output.remaining(), buffer.length - start);
+					output.put(buffer.bytes, start, n);
+					start += n;
+				}
+				numBytes += buffer.length;
+
+				if(pool != null && chunk + window < numChunks) {
+					pending[slot] = pool.submit(this.chunkTask(chunk + window, buffer));
+				}
+			}
+			flush(channel, output);
+		} finally {
+			for(Future<LineBuffer> future : pending) {
+				if(future != null) {
+					future.cancel(false);
+				}
+			}
+		}
+		return numBytes;
+	}
+
+	private Callable<LineBuffer> chunkTask(final int chunk, final LineBuffer buffer) {
+		return new Callable<LineBuffer>() {
+			@Override
+			public LineBuffer call() {
+				return RRGFileWriter.this.formatChunk(chunk, buffer);
+			}
+		};
+	}
+	private LineBuffer formatChunk(int chunk, LineBuffer buffer) {
+		int first = chunk * this.chunkSize;
+		int last = (int) Math.min(this.numItems, (long) first + this.chunkSize);
+		buffer.length = 0;
+		this.format.format(first, last, buffer);
+		return buffer;
+	}
+
+	private static LineBuffer get(Future<LineBuffer> future) throws InterruptedException {
+		try {
+			return future.get();
+		} catch(ExecutionException error) {
+			Throwable cause = error.getCause();
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if(cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+	private static void flush(WritableByteChannel channel, ByteBuffer output) throws IOException {
+		output.flip();
+		while(output.hasRemaining()) {
+			channel.write(output);
+		}
+		output.clear();
+	}
+}
@@ -0,0 +1,309 @@
+package route.circuit.resource;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary image of the parsed base graph of a VPR dump: the small echo
+ * files as they are, the node table and the edges of the edge file.
+ *
+ * The image starts with a key of the length and the CRC32C of every echo
+ * file it was made from, as it is on disk, compressed or not. An image is
+ * only used if the echo files still have that key, so a new dump is never
+ * read from a stale image. The arrays are memory mapped and copied into
+ * the node table and the edge store in bulk, the text files are tokenized
+ * straight from the mapping.
+ */
+public class RRGImage implements Closeable {
+	public static final String[] ECHO_FILES = {
+		"rr_indexed_data.echo",
+		"switch_info.echo",
+		"segment_info.echo",
+		"block_type_info.echo",
+		"rrNode_info.echo",
+		"rrEdge_info.echo"
+	};
+	//The echo files that are kept as text in the image
+	public static final int NUM_TEXT_FILES = 4;
+
+	private static final long MAGIC = 0x52524749_4D414745L;
+	private static final int VERSION = 2;
+
+	private static final int MAX_MAP_SIZE = 1 << 30;
+
+	private final File file;
+	private final FileChannel channel;
+	private long position;
+
+	private final String[] textNames;
+	private final ByteBuffer[] textSections;
+
+	/**
+	 * The key of the echo files in a directory
+	 */
+	public static long[] contentKey(File directory) throws IOException {
+		long[] key = new long[2 * ECHO_FILES.length];
+		for(int f = 0; f < ECHO_FILES.length; f++) {
+			long[] fileKey = fileKey(EchoFile.find(directory, ECHO_FILES[f]));
+			key[2 * f] = fileKey[0];
+			key[2 * f + 1] = fileKey[1];
+		}
+		return key;
+	}
+
+	/**
+	 * The length and the CRC32C of a file
+	 */
+	public static long[] fileKey(File file) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+		CRC32C crc = new CRC32C();
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			while(channel.read(buffer) >= 0) {
+				buffer.flip();
+				crc.update(buffer);
+				buffer.clear();
+			}
+			return new long[] {channel.size(), crc.getValue()};
+		}
+	}
+
+	/**
+	 * Open the image if it exists and was made from echo files with this key,
+	 * otherwise return null
+	 */
+	public static RRGImage open(File file, long[] key) throws IOException {
+		if(!file.exists()) {
+			return null;
+		}
+		RRGImage image = new RRGImage(file);
+		if(image.readLong() != MAGIC || image.readInt() != VERSION || !Arrays.equals(image.readLongs(key.length), key)) {
+			image.close();
+			return null;
+		}
+		for(int t = 0; t < NUM_TEXT_FILES; t++) {
+			image.textNames[t] = image.readString();
+			int length = image.readInt();
+			image.textSections[t] = image.map(length);
+		}
+		return image;
+	}
+
+	private RRGImage(File file) throws IOException {
+		this.file = file;
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		this.position = 0;
+
+		this.textNames = new String[NUM_TEXT_FILES];
+		this.textSections = new ByteBuffer[NUM_TEXT_FILES];
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	/**
+	 * A tokenizer over the image copy of one of the text echo files
+	 */
+	public EchoTokenizer textFile(String name, byte delimiter) throws IOException {
+		for(int t = 0; t < NUM_TEXT_FILES; t++) {
+			if(this.textNames[t].equals(name)) {
+				return new EchoTokenizer(this.textSections[t].duplicate(), 0, 0, this.file + ":" + name, delimiter);
+			}
+		}
+		throw new IOException("No " + name + " in " + this.file);
+	}
+
+	/********************
+	 * Reading
+	 ********************/
+	private MappedByteBuffer map(long numBytes) throws IOException {
+		MappedByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, numBytes);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		this.position += numBytes;
+		return buffer;
+	}
+
+	public int readInt() throws IOException {
+		return this.map(4).getInt();
+	}
+	public long readLong() throws IOException {
+		return this.map(8).getLong();
+	}
+	public String readString() throws IOException {
+		byte[] bytes = this.readBytes(this.readInt());
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public long[] readLongs(int length) throws IOException {
+		long[] values = new long[length];
+		this.map(8L * length).asLongBuffer().get(values);
+		return values;
+	}
+
+	/*
+	 * The arrays are read in slices, a single mapping is limited to 2GB
+	 */
+	public byte[] readBytes(int length) throws IOException {
+		byte[] values = new byte[length];
+		for(int start = 0; start < length; start += MAX_MAP_SIZE) {
+			int n = Math.min(MAX_MAP_SIZE, length - start);
+			this.map(n).get(values, start, n);
+		}
+		return values;
+	}
+	public short[] readShorts(int length) throws IOException {
+		short[] values = new short[length];
+		for(int start = 0; start < length; start += MAX_MAP_SIZE / 2) {
+			int n = Math.min(MAX_MAP_SIZE / 2, length - start);
+			this.map(2L * n).asShortBuffer().get(values, start, n);
+		}
+		return values;
+	}
+	public int[] readInts(int length) throws IOException {
+		int[] values = new int[length];
+		for(int start = 0; start < length; start += MAX_MAP_SIZE / 4) {
+			int n = Math.min(MAX_MAP_SIZE / 4, length - start);
+			this.map(4L * n).asIntBuffer().get(values, start, n);
+		}
+		return values;
+	}
+	public float[] readFloats(int length) throws IOException {
+		float[] values = new float[length];
+		for(int start = 0; start < length; start += MAX_MAP_SIZE / 4) {
+			int n = Math.min(MAX_MAP_SIZE / 4, length - start);
+			this.map(4L * n).asFloatBuffer().get(values, start, n);
+		}
+		return values;
+	}
+
+	/********************
+	 * Writing
+	 ********************/
+
+	/**
+	 * Writes an image next to its final location and moves it in place when
+	 * it is complete, so an interrupted run never leaves half an image.
+	 */
+	public static class Writer implements Closeable {
+		private final File file, tempFile;
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private boolean complete;
+
+		public Writer(File file, long[] key, File directory) throws IOException {
+			this.file = file;
+			this.tempFile = new File(file.getPath() + ".tmp");
+			this.channel = FileChannel.open(this.tempFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			this.buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+			this.complete = false;
+
+			this.writeLong(MAGIC);
+			this.writeInt(VERSION);
+			this.writeLongs(key);
+			for(int t = 0; t < NUM_TEXT_FILES; t++) {
+				byte[] text = EchoFile.readAllBytes(EchoFile.find(directory, ECHO_FILES[t]));
+				this.writeString(ECHO_FILES[t]);
+				this.writeInt(text.length);
+				this.writeBytes(text, text.length);
+			}
+		}
+
+		private void room(int numBytes) throws IOException {
+			if(this.buffer.remaining() < numBytes) {
+				this.flush();
+			}
+		}
+		private void flush() throws IOException {
+			this.buffer.flip();
+			while(this.buffer.hasRemaining()) {
+				this.channel.write(this.buffer);
+			}
+			this.buffer.clear();
+		}
+
+		public void writeInt(int value) throws IOException {
+			this.room(4);
+			this.buffer.putInt(value);
+		}
+		public void writeLong(long value) throws IOException {
+			this.room(8);
+			this.buffer.putLong(value);
+		}
+		public void writeString(String value) throws IOException {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			this.writeInt(bytes.length);
+			this.writeBytes(bytes, bytes.length);
+		}
+
+		public void writeLongs(long[] values) throws IOException {
+			for(long value : values) {
+				this.writeLong(value);
+			}
+		}
+		public void writeBytes(byte[] values, int length) throws IOException {
+			for(int start = 0; start < length; ) {
+				this.room(1);
+				int n = Math.min(this.buffer.remaining(), length - start);
+				this.buffer.put(values, start, n);
+				start += n;
+			}
+		}
+		public void writeShorts(short[] values, int length) throws IOException {
+			for(int start = 0; start < length; ) {
+				this.room(2);
+				int n = Math.min(this.buffer.remaining() / 2, length - start);
+				this.buffer.asShortBuffer().put(values, start, n);
+				this.buffer.position(this.buffer.position() + 2 * n);
+				start += n;
+			}
+		}
+		public void writeInts(int[] values, int length) throws IOException {
+			for(int start = 0; start < length; ) {
+				this.room(4);
+				int n = Math.min(this.buffer.remaining() / 4, length - start);
+				this.buffer.asIntBuffer().put(values, start, n);
+				this.buffer.position(this.buffer.position() + 4 * n);
+				start += n;
+			}
+		}
+		public void writeFloats(float[] values, int length) throws IOException {
+			for(int start = 0; start < length; ) {
+				this.room(4);
+				int n = Math.min(this.buffer.remaining() / 4, length - start);
+				this.buffer.asFloatBuffer().put(values, start, n);
+				this.buffer.position(this.buffer.position() + 4 * n);
+				start += n;
+			}
+		}
+
+		/**
+		 * Called when everything is written, the image is only put in place then
+		 */
+		public void finish() {
+			this.complete = true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.flush();
+			this.channel.close();
+			if(this.complete) {
+				Files.move(this.tempFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} else {
+				Files.deleteIfExists(this.tempFile.toPath());
+			}
+		}
+	}
+}
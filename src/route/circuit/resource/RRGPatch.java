@@ -0,0 +1,381 @@
+package route.circuit.resource;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import route.circuit.exceptions.InvalidFileFormatException;
+
+/**
+ * The changes the SLL wires make to the node and edge file of a VPR dump.
+ *
+ * All node indices are indices of the base files, the SLL wires follow the
+ * last node of the base. A patch holds the removed nodes, the node lines
+ * that change and the node lines that are added, the rows of which all
+ * edges are dropped and the edges that are added. Edges to or from a
+ * removed node are dropped as well.
+ *
+ * Applying a patch streams the base files: a line that does not change is
+ * copied, only its node indices are renumbered around the removed nodes.
+ * An added edge of a node of the base is written where the first edge of
+ * that node is, the other added edges follow the base edges.
+ *
+ * A patch file starts with the length and the CRC32C of the base files it
+ * was made for, it is only applied to those files.
+ */
+public class RRGPatch {
+	public static final String NODE_FILE = "rrNode_info.echo";
+	public static final String EDGE_FILE = "rrEdge_info.echo";
+
+	private static final String HEADER = "RRG patch";
+	private static final int VERSION = 1;
+
+	private static final RouteNodeType[] NODE_TYPES = RouteNodeType.values();
+
+	//Length and CRC32C of the node file and of the edge file, null if unknown
+	private long[] baseKey;
+
+	//Sorted
+	private final int[] removedNodes;
+	private final int[] clearedRows;
+
+	//Sorted on node
+	private final List<Integer> changedNodes;
+	private final List<String> changedLines;
+
+	private final List<Integer> addedNodes;
+	private final List<String> addedLines;
+
+	private int[] edgeChild, edgeParent, edgeSwitch;
+	private int numEdges;
+
+	public RRGPatch(int[] removedNodes, int[] clearedRows) {
+		this.removedNodes = removedNodes;
+		this.clearedRows = clearedRows;
+
+		this.changedNodes = new ArrayList<>();
+		this.changedLines = new ArrayList<>();
+		this.addedNodes = new ArrayList<>();
+		this.addedLines = new ArrayList<>();
+
+		this.edgeChild = new int[16];
+		this.edgeParent = new int[16];
+		this.edgeSwitch = new int[16];
+		this.numEdges = 0;
+	}
+
+	/**
+	 * The key of the base files, see RRGImage.fileKey
+	 */
+	public void setBaseKey(long[] nodeFileKey, long[] edgeFileKey) {
+		this.baseKey = new long[] {nodeFileKey[0], nodeFileKey[1], edgeFileKey[0], edgeFileKey[1]};
+	}
+
+	/**
+	 * Replace the line of a node of the base. The nodes are changed in
+	 * increasing order and the line starts with the index of the node.
+	 */
+	public void changeNode(int node, String line) {
+		assert this.changedNodes.isEmpty() || this.changedNodes.get(this.changedNodes.size() - 1) < node;
+		this.changedNodes.add(node);
+		this.changedLines.add(line);
+	}
+	/**
+	 * Add a node after the nodes of the base, the line starts with its index
+	 */
+	public void addNode(int node, String line) {
+		this.addedNodes.add(node);
+		this.addedLines.add(line);
+	}
+	public void addEdge(int child, int parent, int switchIndex) {
+		if(this.numEdges == this.edgeChild.length) {
+			int newLength = 2 * this.edgeChild.length;
+			this.edgeChild = Arrays.copyOf(this.edgeChild, newLength);
+			this.edgeParent = Arrays.copyOf(this.edgeParent, newLength);
+			this.edgeSwitch = Arrays.copyOf(this.edgeSwitch, newLength);
+		}
+		this.edgeChild[this.numEdges] = child;
+		this.edgeParent[this.numEdges] = parent;
+		this.edgeSwitch[this.numEdges] = switchIndex;
+		this.numEdges++;
+	}
+
+	public int numRemovedNodes() {
+		return this.removedNodes.length;
+	}
+	public int numAddedNodes() {
+		return this.addedNodes.size();
+	}
+	public int numAddedEdges() {
+		return this.numEdges;
+	}
+
+	private boolean isRemoved(int node) {
+		return Arrays.binarySearch(this.removedNodes, node) >= 0;
+	}
+	/**
+	 * The index of a node once the removed nodes are left out
+	 */
+	private int outputIndex(int node) {
+		int position = Arrays.binarySearch(this.removedNodes, node);
+		return node - (position >= 0 ? position : -position - 1);
+	}
+
+	/********************
+	 * Patch file
+	 ********************/
+
+	public void write(File file) throws IOException {
+		if(this.baseKey == null) {
+			throw new IOException("The patch " + file + " has no key of its base files");
+		}
+		try(BufferedWriter writer = EchoFile.createWriter(file)) {
+			writer.write(HEADER + ";" + VERSION + "\n");
+			writer.write("base;" + NODE_FILE + ";" + this.baseKey[0] + ";" + this.baseKey[1] + "\n");
+			writer.write("base;" + EDGE_FILE + ";" + this.baseKey[2] + ";" + this.baseKey[3] + "\n");
+
+			writer.write("removed;" + this.removedNodes.length + "\n");
+			for(int node : this.removedNodes) {
+				writer.write(node + "\n");
+			}
+			writer.write("changed;" + this.changedLines.size() + "\n");
+			for(String line : this.changedLines) {
+				writer.write(line + "\n");
+			}
+			writer.write("added;" + this.addedLines.size() + "\n");
+			for(String line : this.addedLines) {
+				writer.write(line + "\n");
+			}
+			writer.write("cleared;" + this.clearedRows.length + "\n");
+			for(int row : this.clearedRows) {
+				writer.write(row + "\n");
+			}
+			writer.write("edges;" + this.numEdges + "\n");
+			for(int edge = 0; edge < this.numEdges; edge++) {
+				writer.write(this.edgeChild[edge] + ";" + this.edgeParent[edge] + ";" + this.edgeSwitch[edge] + "\n");
+			}
+		}
+	}
+
+	public static RRGPatch read(File file) throws IOException, InvalidFileFormatException {
+		EchoTokenizer tokenizer = new EchoTokenizer(file, EchoTokenizer.SEMICOLON);
+		try {
+			if(sectionSize(tokenizer, HEADER) != VERSION) {
+				throw new InvalidFileFormatException("Unknown version of the RRG patch " + file);
+			}
+			long[] key = new long[4];
+			for(int f = 0; f < 2; f++) {
+				if(!tokenizer.nextLine() || !tokenizer.nextFieldEquals("base")) {
+					throw new InvalidFileFormatException("No base file in the RRG patch " + file);
+				}
+				tokenizer.skipField();
+				key[2 * f] = Long.parseLong(tokenizer.nextString());
+				key[2 * f + 1] = Long.parseLong(tokenizer.nextString());
+			}
+
+			int[] removedNodes = new int[sectionSize(tokenizer, "removed")];
+			for(int i = 0; i < removedNodes.length; i++) {
+				removedNodes[i] = nextLineInt(tokenizer);
+			}
+			int numChanged = sectionSize(tokenizer, "changed");
+			List<Integer> changedNodes = new ArrayList<>();
+			List<String> changedLines = new ArrayList<>();
+			for(int i = 0; i < numChanged; i++) {
+				changedNodes.add(nextLineInt(tokenizer));
+				changedLines.add(tokenizer.line());
+			}
+			int numAdded = sectionSize(tokenizer, "added");
+			List<Integer> addedNodes = new ArrayList<>();
+			List<String> addedLines = new ArrayList<>();
+			for(int i = 0; i < numAdded; i++) {
+				addedNodes.add(nextLineInt(tokenizer));
+				addedLines.add(tokenizer.line());
+			}
+			int[] clearedRows = new int[sectionSize(tokenizer, "cleared")];
+			for(int i = 0; i < clearedRows.length; i++) {
+				clearedRows[i] = nextLineInt(tokenizer);
+			}
+
+			RRGPatch patch = new RRGPatch(removedNodes, clearedRows);
+			patch.baseKey = key;
+			for(int i = 0; i < numChanged; i++) {
+				patch.changeNode(changedNodes.get(i), changedLines.get(i));
+			}
+			for(int i = 0; i < numAdded; i++) {
+				patch.addNode(addedNodes.get(i), addedLines.get(i));
+			}
+			int numEdges = sectionSize(tokenizer, "edges");
+			for(int i = 0; i < numEdges; i++) {
+				int child = nextLineInt(tokenizer);
+				int parent = tokenizer.nextInt();
+				int switchIndex = tokenizer.nextInt();
+				patch.addEdge(child, parent, switchIndex);
+			}
+			return patch;
+		} finally {
+			tokenizer.close();
+		}
+	}
+
+	private static int sectionSize(EchoTokenizer tokenizer, String section) throws IOException, InvalidFileFormatException {
+		if(!tokenizer.nextLine() || !tokenizer.nextFieldEquals(section)) {
+			throw new InvalidFileFormatException("Expected the " + section + " section of the RRG patch at byte " + tokenizer.lineOffset());
+		}
+		return tokenizer.nextInt();
+	}
+	private static int nextLineInt(EchoTokenizer tokenizer) throws IOException, InvalidFileFormatException {
+		if(!tokenizer.nextLine()) {
+			throw new InvalidFileFormatException("The RRG patch ends too early");
+		}
+		return tokenizer.nextInt();
+	}
+
+	/********************
+	 * Applying
+	 ********************/
+
+	/**
+	 * Write the patched node and edge file while the base files are read
+	 * from the directory
+	 */
+	public void apply(File baseDirectory, File nodeFile, File edgeFile) throws IOException, InvalidFileFormatException {
+		File baseNodeFile = EchoFile.find(baseDirectory, NODE_FILE);
+		File baseEdgeFile = EchoFile.find(baseDirectory, EDGE_FILE);
+		if(this.baseKey != null) {
+			long[] nodeKey = RRGImage.fileKey(baseNodeFile);
+			long[] edgeKey = RRGImage.fileKey(baseEdgeFile);
+			if(nodeKey[0] != this.baseKey[0] || nodeKey[1] != this.baseKey[1] || edgeKey[0] != this.baseKey[2] || edgeKey[1] != this.baseKey[3]) {
+				throw new InvalidFileFormatException("The RRG patch was made for other echo files than the ones in " + baseDirectory);
+			}
+		}
+		this.applyNodes(baseNodeFile, nodeFile);
+		this.applyEdges(baseEdgeFile, edgeFile);
+	}
+
+	private void applyNodes(File baseNodeFile, File nodeFile) throws IOException, InvalidFileFormatException {
+		EchoTokenizer tokenizer = new EchoTokenizer(baseNodeFile, EchoTokenizer.SEMICOLON);
+		OutputStream writer = EchoFile.createStream(nodeFile);
+
+		int changed = 0;
+		while(tokenizer.nextLine()) {
+			if(tokenizer.isBlankLine()) {
+				continue;
+			}
+			int node = tokenizer.nextInt();
+			int rest = tokenizer.position();
+			if(tokenizer.nextEnum(NODE_TYPES) == null || this.isRemoved(node)) {
+				continue;
+			}
+
+			while(changed < this.changedNodes.size() && this.changedNodes.get(changed) < node) {
+				changed++;
+			}
+			if(changed < this.changedNodes.size() && this.changedNodes.get(changed) == node) {
+				writeLine(writer, this.outputIndex(node), this.changedLines.get(changed));
+				changed++;
+			} else {
+				writeInt(writer, this.outputIndex(node));
+				writer.write(';');
+				tokenizer.writeLine(writer, rest);
+				writer.write('\n');
+			}
+		}
+		tokenizer.close();
+
+		for(int i = 0; i < this.addedNodes.size(); i++) {
+			writeLine(writer, this.outputIndex(this.addedNodes.get(i)), this.addedLines.get(i));
+		}
+		writer.close();
+	}
+
+	private void applyEdges(File baseEdgeFile, File edgeFile) throws IOException, InvalidFileFormatException {
+		EchoTokenizer tokenizer = new EchoTokenizer(baseEdgeFile, EchoTokenizer.SEMICOLON);
+		OutputStream writer = EchoFile.createStream(edgeFile);
+
+		//The added edges by parent, the first edge of a parent in the base writes them
+		long[] byParent = new long[this.numEdges];
+		for(int edge = 0; edge < this.numEdges; edge++) {
+			byParent[edge] = ((long) this.edgeParent[edge] << 32) | edge;
+		}
+		Arrays.sort(byParent);
+		boolean[] written = new boolean[this.numEdges];
+
+		while(tokenizer.nextLine()) {
+			if(tokenizer.isBlankLine()) {
+				continue;
+			}
+			int child = tokenizer.nextInt();
+			int parent = tokenizer.nextInt();
+			int rest = tokenizer.position();
+			if(this.isRemoved(parent)) {
+				continue;
+			}
+
+			int first = Arrays.binarySearch(byParent, (long) parent << 32);
+			first = first >= 0 ? first : -first - 1;
+			for(int i = first; i < byParent.length && (int) (byParent[i] >>> 32) == parent; i++) {
+				int edge = (int) byParent[i];
+				if(!written[edge]) {
+					this.writeEdge(writer, edge);
+					written[edge] = true;
+				}
+			}
+
+			if(Arrays.binarySearch(this.clearedRows, parent) >= 0 || this.isRemoved(child)) {
+				continue;
+			}
+			writeInt(writer, this.outputIndex(child));
+			writer.write(';');
+			writeInt(writer, this.outputIndex(parent));
+			writer.write(';');
+			tokenizer.writeLine(writer, rest);
+			writer.write('\n');
+		}
+		tokenizer.close();
+
+		for(int edge = 0; edge < this.numEdges; edge++) {
+			if(!written[edge]) {
+				this.writeEdge(writer, edge);
+			}
+		}
+		writer.close();
+	}
+
+	private void writeEdge(OutputStream writer, int edge) throws IOException {
+		int child = this.edgeChild[edge], parent = this.edgeParent[edge];
+		if(this.isRemoved(child) || this.isRemoved(parent)) {
+			return;
+		}
+		writeInt(writer, this.outputIndex(child));
+		writer.write(';');
+		writeInt(writer, this.outputIndex(parent));
+		writer.write(';');
+		writeInt(writer, this.edgeSwitch[edge]);
+		writer.write('\n');
+	}
+
+	/**
+	 * A node line of the patch with the index of the node in the output
+	 */
+	private static void writeLine(OutputStream writer, int outputIndex, String line) throws IOException {
+		writeInt(writer, outputIndex);
+		writer.write(line.substring(line.indexOf(';')).getBytes(StandardCharsets.US_ASCII));
+		writer.write('\n');
+	}
+
+	private static void writeInt(OutputStream writer, int value) throws IOException {
+		if(value < 0) {
+			writer.write('-');
+			value = -value;
+		}
+		if(value >= 10) {
+			writeInt(writer, value / 10);
+		}
+		writer.write('0' + value % 10);
+	}
+}
@@ -0,0 +1,364 @@
+package route.circuit.resource;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import route.circuit.exceptions.InvalidFileFormatException;
+
+/**
+ * Streams a VPR rr_graph.xml with a StAX reader, so only the element that
+ * is being read is in memory.
+ *
+ * The sections are read in the order VPR writes them. readHeader reads the
+ * switches, segments and block types up to the nodes, readNodes and
+ * readEdges then hand every node and edge to a handler. The switches and
+ * segments are also kept as lines in the format of the echo files, the
+ * files of the SLL rows are written from those lines.
+ */
+public class RRGXmlReader implements Closeable {
+	private final File file;
+	private final InputStream input;
+	private final XMLStreamReader reader;
+
+	private final List<RouteSwitch> switches;
+	private final List<String> switchLines;
+	private final Map<Integer, String> segments;
+	private final List<String> segmentLines;
+	private final Map<Integer, float[]> segmentTiming;
+	private final Map<String, BlockTypeRRG> blockTypes;
+	private String toolVersion;
+
+	public interface NodeHandler {
+		void node(int id, RouteNodeType type, String direction, int capacity, int xlow, int ylow, int xhigh, int yhigh, String side, int ptc, float r, float c, int segID);
+	}
+	public interface EdgeHandler {
+		void edge(int source, int sink, int switchIndex);
+	}
+
+	public RRGXmlReader(File file) throws IOException, InvalidFileFormatException {
+		this.file = file;
+		this.input = new BufferedInputStream(EchoFile.openStream(file), 1 << 16);
+
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		try {
+			this.reader = factory.createXMLStreamReader(this.input);
+		} catch(XMLStreamException error) {
+			this.input.close();
+			throw new InvalidFileFormatException("Cannot read " + file + ": " + error.getMessage());
+		}
+
+		this.switches = new ArrayList<>();
+		this.switchLines = new ArrayList<>();
+		this.segments = new HashMap<>();
+		this.segmentLines = new ArrayList<>();
+		this.segmentTiming = new HashMap<>();
+		this.blockTypes = new HashMap<>();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			this.reader.close();
+		} catch(XMLStreamException error) {
+			throw new IOException(error);
+		} finally {
+			this.input.close();
+		}
+	}
+
+	public List<RouteSwitch> getSwitches() {
+		return this.switches;
+	}
+	/**
+	 * The switches as lines of switch_info.echo
+	 */
+	public List<String> getSwitchLines() {
+		return this.switchLines;
+	}
+	public Map<Integer, String> getSegments() {
+		return this.segments;
+	}
+	/**
+	 * The segments as lines of segment_info.echo
+	 */
+	public List<String> getSegmentLines() {
+		return this.segmentLines;
+	}
+	/**
+	 * R and C per meter of the segments
+	 */
+	public Map<Integer, float[]> getSegmentTiming() {
+		return this.segmentTiming;
+	}
+	public Map<String, BlockTypeRRG> getBlockTypes() {
+		return this.blockTypes;
+	}
+	/**
+	 * The tool_version of the rr_graph element, null if it has none
+	 */
+	public String getToolVersion() {
+		return this.toolVersion;
+	}
+
+	/********************
+	 * Sections
+	 ********************/
+
+	/**
+	 * Read the switches, segments and block types, stops at the nodes
+	 */
+	public void readHeader() throws InvalidFileFormatException {
+		try {
+			while(this.reader.hasNext()) {
+				if(this.reader.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				String name = this.reader.getLocalName();
+				if(name.equals("rr_graph")) {
+					this.toolVersion = this.attribute("tool_version", null);
+				} else if(name.equals("switch")) {
+					this.readSwitch();
+				} else if(name.equals("segment") && this.reader.getAttributeValue(null, "name") != null) {
+					this.readSegment();
+				} else if(name.equals("block_type")) {
+					this.readBlockType();
+				} else if(name.equals("rr_nodes")) {
+					return;
+				}
+			}
+		} catch(XMLStreamException error) {
+			throw this.formatError(error.getMessage());
+		}
+		throw this.formatError("No rr_nodes");
+	}
+
+	/**
+	 * Hand every node to the handler, the nodes have to follow readHeader
+	 */
+	public int readNodes(NodeHandler handler) throws InvalidFileFormatException {
+		int numNodes = 0;
+		try {
+			while(this.reader.hasNext()) {
+				int event = this.reader.next();
+				if(event == XMLStreamConstants.END_ELEMENT && this.reader.getLocalName().equals("rr_nodes")) {
+					return numNodes;
+				} else if(event == XMLStreamConstants.START_ELEMENT && this.reader.getLocalName().equals("node")) {
+					if(this.readNode(handler)) {
+						numNodes++;
+					}
+				}
+			}
+		} catch(XMLStreamException error) {
+			throw this.formatError(error.getMessage());
+		}
+		throw this.formatError("The rr_nodes do not end");
+	}
+
+	/**
+	 * Hand every edge to the handler, the edges have to follow readNodes
+	 */
+	public long readEdges(EdgeHandler handler) throws InvalidFileFormatException {
+		long numEdges = 0;
+		try {
+			while(this.reader.hasNext()) {
+				int event = this.reader.next();
+				if(event == XMLStreamConstants.END_ELEMENT && this.reader.getLocalName().equals("rr_edges")) {
+					return numEdges;
+				} else if(event == XMLStreamConstants.START_ELEMENT && this.reader.getLocalName().equals("edge")) {
+					int source = this.intAttribute("src_node");
+					int sink = this.intAttribute("sink_node");
+					int switchIndex = this.intAttribute("switch_id");
+					handler.edge(source, sink, switchIndex);
+					numEdges++;
+				}
+			}
+		} catch(XMLStreamException error) {
+			throw this.formatError(error.getMessage());
+		}
+		throw this.formatError("No rr_edges");
+	}
+
+	/********************
+	 * Elements
+	 ********************/
+
+	private void readSwitch() throws XMLStreamException, InvalidFileFormatException {
+		int index = this.intAttribute("id");
+		String name = this.attribute("name");
+		String type = this.attribute("type");
+		String r = "0", cin = "0", cinternal = "0", cout = "0", tdel = "0";
+		String muxTransSize = "0", bufSize = "0";
+		while(this.nextChild("switch")) {
+			String child = this.reader.getLocalName();
+			if(child.equals("timing")) {
+				r = this.attribute("R", r);
+				cin = this.attribute("Cin", cin);
+				cinternal = this.attribute("Cinternal", cinternal);
+				cout = this.attribute("Cout", cout);
+				tdel = this.attribute("Tdel", tdel);
+			} else if(child.equals("sizing")) {
+				muxTransSize = this.attribute("mux_trans_size", muxTransSize);
+				bufSize = this.attribute("buf_size", bufSize);
+			}
+		}
+		this.switches.add(new RouteSwitch(index, name, type, this.parseFloat(r), this.parseFloat(cin), this.parseFloat(cinternal), this.parseFloat(cout), this.parseFloat(tdel), this.parseFloat(muxTransSize), this.parseFloat(bufSize)));
+		this.switchLines.add(index + ";" + name + ";" + type + ";" + cin + ";" + cinternal + ";" + cout + ";" + r + ";" + tdel + ";" + bufSize + ";" + muxTransSize + ";");
+	}
+
+	private void readSegment() throws XMLStreamException, InvalidFileFormatException {
+		int id = this.intAttribute("id");
+		String name = this.attribute("name");
+		String rPerMeter = "0", cPerMeter = "0";
+		while(this.nextChild("segment")) {
+			if(this.reader.getLocalName().equals("timing")) {
+				rPerMeter = this.attribute("R_per_meter", rPerMeter);
+				cPerMeter = this.attribute("C_per_meter", cPerMeter);
+			}
+		}
+		this.segments.put(id, name);
+		this.segmentTiming.put(id, new float[] {this.parseFloat(rPerMeter), this.parseFloat(cPerMeter)});
+		this.segmentLines.add(id + ";" + name + ";" + cPerMeter + ";" + rPerMeter + ";");
+	}
+
+	private void readBlockType() throws XMLStreamException, InvalidFileFormatException {
+		int id = this.intAttribute("id");
+		String name = this.attribute("name");
+		int width = this.intAttribute("width", 1);
+		int height = this.intAttribute("height", 1);
+		BlockTypeRRG blockType = this.blockTypes.get(name);
+		if(blockType == null) {
+			blockType = new BlockTypeRRG(id, height, width, name);
+			this.blockTypes.put(name, blockType);
+		}
+
+		//The pin classes are numbered in the order of the file, as VPR numbers its SOURCE and SINK ptcs
+		String pinClassType = null;
+		int classIndex = -1;
+		while(this.reader.hasNext()) {
+			int event = this.reader.next();
+			if(event == XMLStreamConstants.END_ELEMENT && this.reader.getLocalName().equals("block_type")) {
+				return;
+			} else if(event == XMLStreamConstants.START_ELEMENT) {
+				String child = this.reader.getLocalName();
+				if(child.equals("pin_class")) {
+					pinClassType = this.attribute("type");
+					classIndex++;
+				} else if(child.equals("pin")) {
+					int ptc = this.intAttribute("ptc");
+					String pinName = this.reader.getElementText().trim();
+					blockType.addPinClass(pinName, ptc, pinClassType, classIndex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns false for a node of an unknown type, it is skipped
+	 */
+	private boolean readNode(NodeHandler handler) throws XMLStreamException, InvalidFileFormatException {
+		int id = this.intAttribute("id");
+		String typeName = this.attribute("type");
+		String direction = this.attribute("direction", "none");
+		int capacity = this.intAttribute("capacity", 1);
+		int xlow = 0, ylow = 0, xhigh = 0, yhigh = 0, ptc = 0, segID = 0;
+		String side = null;
+		float r = 0, c = 0;
+		while(this.nextChild("node")) {
+			String child = this.reader.getLocalName();
+			if(child.equals("loc")) {
+				xlow = this.intAttribute("xlow");
+				ylow = this.intAttribute("ylow");
+				xhigh = this.intAttribute("xhigh");
+				yhigh = this.intAttribute("yhigh");
+				ptc = this.intAttribute("ptc");
+				side = this.attribute("side", null);
+			} else if(child.equals("timing")) {
+				r = this.parseFloat(this.attribute("R", "0"));
+				c = this.parseFloat(this.attribute("C", "0"));
+			} else if(child.equals("segment")) {
+				segID = this.intAttribute("segment_id");
+			}
+		}
+
+		RouteNodeType type;
+		try {
+			type = RouteNodeType.valueOf(typeName);
+		} catch(IllegalArgumentException error) {
+			System.out.println("Unknown type: " + typeName);
+			return false;
+		}
+		handler.node(id, type, direction, capacity, xlow, ylow, xhigh, yhigh, side, ptc, r, c, segID);
+		return true;
+	}
+
+	/**
+	 * Move to the next child element of the current element, returns false
+	 * at the end of the parent
+	 */
+	private boolean nextChild(String parent) throws XMLStreamException {
+		while(this.reader.hasNext()) {
+			int event = this.reader.next();
+			if(event == XMLStreamConstants.START_ELEMENT) {
+				return true;
+			} else if(event == XMLStreamConstants.END_ELEMENT && this.reader.getLocalName().equals(parent)) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/********************
+	 * Attributes
+	 ********************/
+
+	private String attribute(String name) throws InvalidFileFormatException {
+		String value = this.reader.getAttributeValue(null, name);
+		if(value == null) {
+			throw this.formatError("No " + name + " attribute on " + this.reader.getLocalName());
+		}
+		return value;
+	}
+	private String attribute(String name, String defaultValue) {
+		String value = this.reader.getAttributeValue(null, name);
+		return value == null ? defaultValue : value;
+	}
+
+	private int intAttribute(String name) throws InvalidFileFormatException {
+		String value = this.attribute(name);
+		try {
+			return Integer.parseInt(value);
+		} catch(NumberFormatException error) {
+			throw this.formatError("The " + name + " attribute is not an integer: " + value);
+		}
+	}
+	private int intAttribute(String name, int defaultValue) throws InvalidFileFormatException {
+		return this.reader.getAttributeValue(null, name) == null ? defaultValue : this.intAttribute(name);
+	}
+
+	private float parseFloat(String value) throws InvalidFileFormatException {
+		try {
+			return Float.parseFloat(value);
+		} catch(NumberFormatException error) {
+			throw this.formatError("Not a number: " + value);
+		}
+	}
+
+	private InvalidFileFormatException formatError(String message) {
+		return new InvalidFileFormatException(message + " in " + this.file + " at line " + this.reader.getLocation().getLineNumber());
+	}
+}
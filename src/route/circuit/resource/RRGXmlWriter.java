@@ -0,0 +1,341 @@
+package route.circuit.resource;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes a graph as a VPR rr_graph.xml with a StAX writer, element by
+ * element, through a large buffer on the file channel. The graph is gzip
+ * compressed if the file name ends in .gz.
+ *
+ * The sections are written in the order VPR reads them: channels,
+ * switches, segments, block types, grid, nodes and edges. A section is
+ * opened with startSection and closed with endSection, the grid locations,
+ * nodes and edges in between are written one at a time.
+ */
+public class RRGXmlWriter implements Closeable {
+	private final OutputStream output;
+	private final XMLStreamWriter writer;
+
+	/**
+	 * The tool_version is left out if it is null
+	 */
+	public RRGXmlWriter(File file, String toolVersion, String toolComment) throws IOException {
+		this.output = EchoFile.createStream(file);
+		try {
+			this.writer = XMLOutputFactory.newInstance().createXMLStreamWriter(this.output, "UTF-8");
+			this.writer.writeStartDocument("UTF-8", "1.0");
+			this.newLine(0);
+			this.writer.writeStartElement("rr_graph");
+			this.writer.writeAttribute("tool_name", "vpr");
+			if(toolVersion != null) {
+				this.writer.writeAttribute("tool_version", toolVersion);
+			}
+			this.writer.writeAttribute("tool_comment", toolComment);
+		} catch(XMLStreamException error) {
+			this.output.close();
+			throw new IOException(error);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			this.newLine(0);
+			this.writer.writeEndElement();
+			this.newLine(0);
+			this.writer.writeEndDocument();
+			this.writer.close();
+		} catch(XMLStreamException error) {
+			throw new IOException(error);
+		} finally {
+			this.output.close();
+		}
+	}
+
+	/********************
+	 * Sections
+	 ********************/
+
+	public void startSection(String name) throws IOException {
+		try {
+			this.newLine(1);
+			this.writer.writeStartElement(name);
+		} catch(XMLStreamException error) {
+			throw new IOException(error);
+		}
+	}
+	public void endSection() throws IOException {
+		try {
+			this.newLine(1);
+			this.writer.writeEndElement();
+		} catch(XMLStreamException error) {
+			throw new IOException(error);
+		}
+	}
+
+	/**
+	 * The number of tracks of every row of horizontal channels and of every
+	 * column of vertical channels
+	 */
+	public void writeChannels(int[] xList, int[] yList) throws IOException {
+		int xMin = min(xList), xMax = max(xList);
+		int yMin = min(yList), yMax = max(yList);
+		try {
+			this.startSection("channels");
+			this.newLine(2);
+			this.writer.writeEmptyElement("channel");
+			this.writer.writeAttribute("chan_width_max", Integer.toString(Math.max(xMax, yMax)));
+			this.writer.writeAttribute("x_min", Integer.toString(xMin));
+			this.writer.writeAttribute("y_min", Integer.toString(yMin));
+			this.writer.writeAttribute("x_max", Integer.toString(xMax));
+			this.writer.writeAttribute("y_max", Integer.toString(yMax));
+			for(int y = 0; y < xList.length; y++) {
+				this.newLine(2);
+				this.writer.writeEmptyElement("x_list");
+				this.writer.writeAttribute("index", Integer.toString(y));
+				this.writer.writeAttribute("info", Integer.toString(xList[y]));
+			}
+			for(int x = 0; x < yList.length; x++) {
+				this.newLine(2);
+				this.writer.writeEmptyElement("y_list");
+				this.writer.writeAttribute("index", Integer.toString(x));
+				this.writer.writeAttribute("info", Integer.toString(yList[x]));
+			}
+			this.endSection();
+		} catch(XMLStreamException error) {
+			throw new IOException(error);
+		}
+	}
+	private static int min(int[] values) {
+		int min = Integer.MAX_VALUE;
+		for(int value : values) {
+			min = Math.min(min, value);
+		}
+		return values.length == 0 ? 0 : min;
+	}
+	private static int max(int[] values) {
+		int max = 0;
+		for(int value : values) {
+			max = Math.max(max, value);
+		}
+		return max;
+	}
+
+	public void writeSwitches(List<RouteSwitch> switches) throws IOException {
+		try {
+			this.startSection("switches");
+			for(RouteSwitch routeSwitch : switches) {
+				this.newLine(2);
+				this.writer.writeStartElement("switch");
+				this.writer.writeAttribute("id", Integer.toString(routeSwitch.index));
+				this.writer.writeAttribute("type", routeSwitch.type);
+				this.writer.writeAttribute("name", routeSwitch.name);
+				this.newLine(3);
+				this.writer.writeEmptyElement("timing");
+				this.writer.writeAttribute("R", Float.toString(routeSwitch.r));
+				this.writer.writeAttribute("Cin", Float.toString(routeSwitch.cin));
+				this.writer.writeAttribute("Cinternal", Float.toString(routeSwitch.cinternal));
+				this.writer.writeAttribute("Cout", Float.toString(routeSwitch.cout));
+				this.writer.writeAttribute("Tdel", Float.toString(routeSwitch.tdel));
+				this.newLine(3);
+				this.writer.writeEmptyElement("sizing");
+				this.writer.writeAttribute("mux_trans_size", Float.toString(routeSwitch.mux_trans_size));
+				this.writer.writeAttribute("buf_size", Float.toString(routeSwitch.buf_size));
+				this.newLine(2);
+				this.writer.writeEndElement();
+			}
+			this.endSection();
+		} catch(XMLStreamException error) {
+			throw new IOException(error);
+		}
+	}
+
+	/**
+	 * The segments by id, the timing is R and C per meter
+	 */
+	public void writeSegments(Map<Integer, String> names, Map<Integer, float[]> timing) throws IOException {
+		List<Integer> ids = new ArrayList<>(names.keySet());
+		Collections.sort(ids);
+		try {
+			this.startSection("segments");
+			for(int id : ids) {
+				this.newLine(2);
+				this.writer.writeStartElement("segment");
+				this.writer.writeAttribute("id", Integer.toString(id));
+				this.writer.writeAttribute("name", names.get(id));
+				float[] segmentTiming = timing.get(id);
+				if(segmentTiming != null) {
+					this.newLine(3);
+					this.writer.writeEmptyElement("timing");
+					this.writer.writeAttribute("R_per_meter", Float.toString(segmentTiming[0]));
+					this.writer.writeAttribute("C_per_meter", Float.toString(segmentTiming[1]));
+				}
+				this.newLine(2);
+				this.writer.writeEndElement();
+			}
+			this.endSection();
+		} catch(XMLStreamException error) {
+			throw new IOException(error);
+		}
+	}
+
+	/**
+	 * The block types by id with their pin classes in class order. VPR
+	 * checks the classes against the architecture and the ptc of a SOURCE
+	 * or SINK is the index of its class, so every pin needs its class and
+	 * the classes of a block type have to be numbered without gaps.
+	 */
+	public void writeBlockTypes(Collection<BlockTypeRRG> blockTypes) throws IOException {
+		List<BlockTypeRRG> sorted = new ArrayList<>(blockTypes);
+		Collections.sort(sorted);
+		try {
+			this.startSection("block_types");
+			for(BlockTypeRRG blockType : sorted) {
+				this.newLine(2);
+				this.writer.writeStartElement("block_type");
+				this.writer.writeAttribute("id", Integer.toString(blockType.getBlockID()));
+				this.writer.writeAttribute("name", blockType.getBlockType());
+				this.writer.writeAttribute("width", Integer.toString(blockType.getWidth()));
+				this.writer.writeAttribute("height", Integer.toString(blockType.getHeight()));
+				for(List<BlockTypeRRG.PinClass> pinClass : pinClasses(blockType).values()) {
+					this.newLine(3);
+					this.writer.writeStartElement("pin_class");
+					this.writer.writeAttribute("type", pinClass.get(0).getPintype());
+					for(BlockTypeRRG.PinClass pin : pinClass) {
+						this.newLine(4);
+						this.writer.writeStartElement("pin");
+						this.writer.writeAttribute("ptc", Integer.toString(pin.getPinId()));
+						this.writer.writeCharacters(pin.getPinName());
+						this.writer.writeEndElement();
+					}
+					this.newLine(3);
+					this.writer.writeEndElement();
+				}
+				this.newLine(2);
+				this.writer.writeEndElement();
+			}
+			this.endSection();
+		} catch(XMLStreamException error) {
+			throw new IOException(error);
+		}
+	}
+	private static Map<Integer, List<BlockTypeRRG.PinClass>> pinClasses(BlockTypeRRG blockType) throws IOException {
+		Map<Integer, List<BlockTypeRRG.PinClass>> pinClasses = new TreeMap<>();
+		for(BlockTypeRRG.PinClass pin : blockType.getPinClasses()) {
+			if(pin.getClassIndex() < 0) {
+				throw new IOException("The pin " + pin.getPinName() + " of block type " + blockType.getBlockType() + " has no pin class");
+			}
+			List<BlockTypeRRG.PinClass> pinClass = pinClasses.get(pin.getClassIndex());
+			if(pinClass == null) {
+				pinClass = new ArrayList<>();
+				pinClasses.put(pin.getClassIndex(), pinClass);
+			}
+			pinClass.add(pin);
+		}
+		int expected = 0;
+		for(int classIndex : pinClasses.keySet()) {
+			if(classIndex != expected) {
+				throw new IOException("Block type " + blockType.getBlockType() + " has no pins of pin class " + expected);
+			}
+			expected++;
+		}
+		return pinClasses;
+	}
+
+	/********************
+	 * Elements
+	 ********************/
+
+	public void writeGridLocation(int x, int y, int blockTypeID, int widthOffset, int heightOffset) throws IOException {
+		try {
+			this.newLine(2);
+			this.writer.writeEmptyElement("grid_loc");
+			this.writer.writeAttribute("x", Integer.toString(x));
+			this.writer.writeAttribute("y", Integer.toString(y));
+			this.writer.writeAttribute("block_type_id", Integer.toString(blockTypeID));
+			this.writer.writeAttribute("width_offset", Integer.toString(widthOffset));
+			this.writer.writeAttribute("height_offset", Integer.toString(heightOffset));
+		} catch(XMLStreamException error) {
+			throw new IOException(error);
+		}
+	}
+
+	/**
+	 * A node of the table with the id it has in the written graph. VPR
+	 * needs the side of every pin, a pin without a side is an error.
+	 */
+	public void writeNode(RouteNodeTable table, int index, int id) throws IOException {
+		boolean isWire = table.isWire(index);
+		try {
+			this.newLine(2);
+			this.writer.writeStartElement("node");
+			this.writer.writeAttribute("id", Integer.toString(id));
+			this.writer.writeAttribute("type", table.type(index).name());
+			if(isWire) {
+				this.writer.writeAttribute("direction", table.direction(index));
+			}
+			this.writer.writeAttribute("capacity", Integer.toString(table.capacity(index)));
+
+			this.newLine(3);
+			this.writer.writeEmptyElement("loc");
+			this.writer.writeAttribute("xlow", Integer.toString(table.xlow(index)));
+			this.writer.writeAttribute("ylow", Integer.toString(table.ylow(index)));
+			this.writer.writeAttribute("xhigh", Integer.toString(table.xhigh(index)));
+			this.writer.writeAttribute("yhigh", Integer.toString(table.yhigh(index)));
+			if(table.type(index) == RouteNodeType.IPIN || table.type(index) == RouteNodeType.OPIN) {
+				String side = table.side(index);
+				if(side == null) {
+					throw new IOException("The " + table.type(index) + " with id " + id + " has no side");
+				}
+				this.writer.writeAttribute("side", side);
+			}
+			this.writer.writeAttribute("ptc", Integer.toString(table.ptc(index)));
+
+			this.newLine(3);
+			this.writer.writeEmptyElement("timing");
+			this.writer.writeAttribute("R", Float.toString(table.r(index)));
+			this.writer.writeAttribute("C", Float.toString(table.c(index)));
+			if(isWire) {
+				this.newLine(3);
+				this.writer.writeEmptyElement("segment");
+				this.writer.writeAttribute("segment_id", Integer.toString(table.segID(index)));
+			}
+			this.newLine(2);
+			this.writer.writeEndElement();
+		} catch(XMLStreamException error) {
+			throw new IOException(error);
+		}
+	}
+
+	public void writeEdge(int source, int sink, int switchIndex) throws IOException {
+		try {
+			this.newLine(2);
+			this.writer.writeEmptyElement("edge");
+			this.writer.writeAttribute("src_node", Integer.toString(source));
+			this.writer.writeAttribute("sink_node", Integer.toString(sink));
+			this.writer.writeAttribute("switch_id", Integer.toString(switchIndex));
+		} catch(XMLStreamException error) {
+			throw new IOException(error);
+		}
+	}
+
+	private void newLine(int depth) throws XMLStreamException {
+		this.writer.writeCharacters("\n");
+		for(int d = 0; d < depth; d++) {
+			this.writer.writeCharacters("\t");
+		}
+	}
+}
@@ -1,17 +1,26 @@
 package route.circuit.resource;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -47,26 +56,70 @@ public class ResourceGraph {
 	private final Site[][] siteArray;
 	
 	private int sllRows;
+	private final Map<String, Float> sllSegmentInfo;
 	private float sllDelay;
 	private int totDie;
-	private int dieBoundary; 
+	//The first row of every die but the first one
+	private final int[] dieBoundaries;
 	
 	private int indexStart = 0;
+	private int numThreads = Runtime.getRuntime().availableProcessors();
+	private boolean useImage = false;
+	private boolean streamBand = false;
+	private boolean writePatch = false;
+	private boolean readXml = false;
+	private boolean writeXml = false;
+	private boolean compressOutput = false;
+	private RRGXmlReader xmlReader;
+	//The tool_version of the rr_graph.xml that was read, if any
+	private String xmlToolVersion;
+	//The edges of rr_graph.xml until the edge store is built
+	private int[] xmlEdgeSource, xmlEdgeSink, xmlEdgeSwitch;
+	private int numXmlEdges;
+	private long[][] baseFileKeys;
+	private int[] bandGlobalIndex;
+	private int numBandNodes;
+	private ForkJoinPool columnPool;
+	private RouteNodeIndex nodeIndex;
+	private RRGImage image;
+	private RRGImage.Writer imageWriter;
+	private int numBaseNodes;
 	private final Map<String, BlockTypeRRG> blockTypeNodes;
-	private final List<RouteNode> routeNodes;
+	private final RouteNodeTable routeNodeTable;
+	private RouteEdgeStore edges;
 	private final List<RouteNode> routeNodesDeleted;
+	private int[] outputIndex;
 	private final List<RouteNode> boundaryDeletedNodes;
-	private final Map<String, SLLRouteNode> interposerWireNodes;
+	//One table per die boundary
+	private final SLLWireTable[] sllWires;
 	
-	private final List<RouteNode>[][] allReplaceNodes;
-	private final Map<RouteNode, List<RouteNode>> childToParentMap;
 	private Map<String, IndexedData> indexedDataList;
 	private Map<Float, String> baseCostToLength;
+	//The segment length of every wire cost index, only if the base costs do not tell the wires apart
+	private Map<Integer, String> costIndexToLength;
 	private List<RouteSwitch> switchTypesList;
 	private Map<String , Integer> lengthToSwitchMap;
+	private int[] driverSwitch;
 	private Map<Integer, String> segmentList;
+	//R and C per meter of the segments
+	private Map<Integer, float[]> segmentTiming;
 	
-	private final Map<RouteNodeType, List<RouteNode>> routeNodeMap;
+	//The small echo files as they were read, every number of SLL rows adds its own line
+	private String indexedDataText, switchText, segmentText;
+	private int lastCostIndex, lastOrthoCostIndex, lastSegIndex;
+	private int numSwitchLines;
+	private int lastSegmentID;
+	
+	//The graph a sweep variant is made from, null for a graph that is parsed
+	private final ResourceGraph base;
+	//Estimated memory of the nodes of a variant
+	private static final int BYTES_PER_BAND_NODE = 128;
+	//The output files are formatted in chunks of nodes, at most CHUNK_WINDOW chunks ahead of the writer
+	private static final int NODES_PER_CHUNK = 1 << 14;
+	private static final int CHUNK_WINDOW = 64;
+	
+	private static final RouteNodeType[] NODE_TYPES = RouteNodeType.values();
+	private static final String[] DIRECTIONS = {"none", "INC_DIR", "DEC_DIR", "BI_DIR"};
 	
 	private static int SOURCE_COST_INDEX = 0;
 	private static int SINK_COST_INDEX = 1;
@@ -74,7 +127,19 @@ public class ResourceGraph {
 	private static int IPIN_COST_INDEX = 3;
 	
     public ResourceGraph(Circuit[] circuit) {
+    	this(circuit, circuit[0].getArchitecture().getSllRows(), null);
+    }
+    
+    /**
+     * A variant of a parsed base graph with another number of SLL rows
+     */
+    private ResourceGraph(ResourceGraph base, int sllRows) {
+    	this(base.circuit, sllRows, base);
+    }
+    
+    private ResourceGraph(Circuit[] circuit, int sllRows, ResourceGraph base) {
     	this.circuit = circuit;
+    	this.base = base;
     	this.architecture = this.circuit[0].getArchitecture();
     	this.RRGFile = this.architecture.getRRGFile();
     	System.out.print("\nthe RRG is " + this.RRGFile);
@@ -82,34 +147,94 @@ public class ResourceGraph {
     	this.width = this.architecture.getWidth();
     	this.height = this.architecture.getHeight();
     	
-    	this.sllRows = this.architecture.getSllRows();
+    	this.sllRows = sllRows;
+    	this.sllSegmentInfo = this.architecture.getSLLSegmentInfo(sllRows);
     	this.sllDelay = (float) (this.architecture.getSllDelay() * 1e-12);
     	this.totDie = this.architecture.getTotDie();
-    	this.dieBoundary = this.height/this.totDie;
-		this.sites = new ArrayList<>();
-		this.siteArray = new Site[this.width+2][this.height+2];
-		
-		this.blockTypeNodes = new HashMap<>();
-		this.routeNodes = new ArrayList<>();
+    	this.dieBoundaries = new int[Math.max(0, this.totDie - 1)];
+    	for(int boundary = 0; boundary < this.dieBoundaries.length; boundary++) {
+    		this.dieBoundaries[boundary] = (boundary + 1) * this.height / this.totDie;
+    	}
+    	this.checkBands(sllRows);
+		if(base == null) {
+			this.sites = new ArrayList<>();
+			this.siteArray = new Site[this.width+2][this.height+2];
+			this.blockTypeNodes = new HashMap<>();
+			this.routeNodeTable = new RouteNodeTable(1 << 16);
+		} else {
+			//A variant only holds the wires of its interposer bands
+			this.sites = base.sites;
+			this.siteArray = base.siteArray;
+			this.blockTypeNodes = base.blockTypeNodes;
+			this.routeNodeTable = new RouteNodeTable(1 << 10);
+		}
 		this.routeNodesDeleted = new ArrayList<>();
 		this.boundaryDeletedNodes = new ArrayList<>();
 		
-		this.interposerWireNodes = new HashMap<>();
-		this.allReplaceNodes = new List[this.width][this.height];
-		this.childToParentMap = new HashMap<RouteNode, List<RouteNode>>();
-		this.routeNodeMap = new HashMap<>();
-		for(RouteNodeType routeNodeType: RouteNodeType.values()){
-			List<RouteNode> temp = new ArrayList<>();
-			this.routeNodeMap.put(routeNodeType, temp);
+		this.sllWires = new SLLWireTable[this.dieBoundaries.length];
+		for(int boundary = 0; boundary < this.dieBoundaries.length; boundary++) {
+			this.sllWires[boundary] = new SLLWireTable(this.width, this.dieBoundaries[boundary], this.sllRows);
 		}
-       	for(int i = 0; i < this.width - 1; i++) {
-        	for(int j = 0; j < this.height - 1 ; j++) {
-	        		this.allReplaceNodes[i][j] = new ArrayList<RouteNode>();
-        	}
-        }
 		
     }
     
+    /**
+     * Number of threads used to read the RRG, all processors by default
+     */
+    public void setNumThreads(int numThreads) {
+    	if(numThreads > 0) {
+    		this.numThreads = numThreads;
+    	}
+    }
+    
+    /**
+     * Only keep the interposer band in memory and copy the rest of the graph
+     * from the echo files to the output files line by line
+     */
+    public void setStreamBand(boolean streamBand) {
+    	this.streamBand = streamBand;
+    }
+    
+    /**
+     * Write the SLL changes as a patch on the node and edge echo files
+     * instead of writing the modified files, see RRGPatch
+     */
+    public void setWritePatch(boolean writePatch) {
+    	this.writePatch = writePatch;
+    }
+    
+    /**
+     * Read the graph from the rr_graph.xml file itself instead of from the
+     * echo files VPR dumps next to it
+     */
+    public void setReadXml(boolean readXml) {
+    	this.readXml = readXml;
+    }
+    
+    /**
+     * Also write the modified graph as an rr_graph.xml that VPR can read.
+     * The graph is only fully in memory without band streaming and patches.
+     */
+    public void setWriteXml(boolean writeXml) {
+    	this.writeXml = writeXml;
+    }
+    
+    /**
+     * Write the output files gzip compressed, with .gz after their name.
+     * Compressed input files are always read.
+     */
+    public void setCompressOutput(boolean compressOutput) {
+    	this.compressOutput = compressOutput;
+    }
+    
+    /**
+     * Keep a binary image of the parsed base graph next to the RRG file and
+     * read the graph from it as long as the echo files do not change
+     */
+    public void setUseImage(boolean useImage) {
+    	this.useImage = useImage;
+    }
+    
     public void build(){
         this.createSites();
         
@@ -118,6 +243,12 @@ public class ResourceGraph {
 		} catch (ParseException | IOException | InvalidFileFormatException | InterruptedException | ParserConfigurationException | SAXException error)  {
 			System.err.println("Problem in generating RRG: " + error.getMessage());
 			error.printStackTrace();
+		} finally {
+			this.closeImage();
+			if(this.columnPool != null) {
+				this.columnPool.shutdown();
+				this.columnPool = null;
+			}
 		}
 		
 		this.assignNamesToSourceAndSink();
@@ -249,19 +380,58 @@ public class ResourceGraph {
 		System.out.println("| Process RRG |");
 		System.out.println("---------------");
         
-        //Process index list
-        this.processIndexList();
-        //process channels
-        
-        //process switches
-        this.processSwitchList();
+        if(this.readXml) {
+        	if(this.streamBand || this.writePatch || this.useImage) {
+        		System.out.print("\n Band streaming, patches and images work on the echo files, the XML is read in full");
+        	}
+        	this.readXmlHeader();
+        	this.addSLLIndexedData();
+        	this.addSLLSwitch();
+        	this.buildDriverSwitchTable();
+        	this.addSLLSegment();
+        } else {
+        	if(!this.streamBand && !this.writePatch) {
+        		this.openImage();
+        	}
+        	
+        	//Process index list
+        	this.processIndexList();
+        	this.addSLLIndexedData();
+        	
+        	//process switches
+        	this.processSwitchList();
+        	this.addSLLSwitch();
+        	this.buildDriverSwitchTable();
+        	
+        	//process segments
+        	this.processSegmentList();
+        	this.addSLLSegment();
+        	//process blocktypes
+        	this.processBlockTypes();
+        	if(this.streamBand || this.writePatch) {
+        		if(this.writeXml) {
+        			System.out.print("\n Band streaming and patches only write echo files, no rr_graph.xml is written");
+        		}
+        		this.streamBandRewrite();
+        		return;
+        	}
+        }
         
-        //process segments
-        this.processSegmentList();
-        //process blocktypes
-        this.processBlockTypes();
         //process RRG nodes
-        this.processRRGNodes();
+        if(this.readXml) {
+        	this.readXmlNodes();
+        } else if(this.image != null) {
+        	this.readImageNodes();
+        } else {
+        	this.processRRGNodes(false);
+        }
+        this.numBaseNodes = this.routeNodeTable.numNodes();
+        if(this.imageWriter != null) {
+        	this.routeNodeTable.writeImage(this.imageWriter, this.numBaseNodes);
+        	this.imageWriter.writeInt(this.indexStart);
+        }
+        this.createNodeViews();
+        this.markInterposerNodes();
         
 
         //Add the interposer nodes
@@ -277,6 +447,10 @@ public class ResourceGraph {
         startTime = System.nanoTime();
         //Process RRG edges
         this.processRRGEdges();
+        if(this.writeXml && !this.readXml) {
+        	this.derivePinSides();
+        	this.derivePinClasses();
+        }
         //Add SLL edges
         endTime   = System.nanoTime();
         totalTime = endTime - startTime;
@@ -292,90 +466,126 @@ public class ResourceGraph {
         this.postProcess();
 
         
-        this.writeRRNodeToFile();
-        this.writeModifiedEdges();
+        this.writeOutputFiles();
+        if(this.writeXml) {
+        	this.writeRRGXml();
+        }
     }
     
     private void postProcess() {
     	System.out.print("\nThe postProcess is on going");
-		for(RouteNode node : this.routeNodes) {
-			for(int i = 0; i < node.getNumChildren(); i++) {
-				RouteNode child = node.children[i];
-				if(child != null) {
-					RouteSwitch routeSwitch = node.switches[i];
-					child.setDelay(routeSwitch);
+		RouteNodeTable table = this.routeNodeTable;
+		RouteEdgeStore edges = this.edges;
+		int numNodes = table.numNodes();
+		for(int node = 0; node < numNodes; node++) {
+			if(table.hasFlag(node, RouteNodeTable.REMOVED)) {
+				continue;
+			}
+			int end = edges.rowEnd(node);
+			for(int slot = edges.rowStart(node); slot < end; slot++) {
+				int child = edges.child(slot);
+				if(child != RouteEdgeStore.NO_CHILD) {
+					RouteSwitch routeSwitch = this.switchTypesList.get(edges.switchIndex(slot));
+					table.setDelay(child, routeSwitch);
 				}
-				
 			}
 		}
-		for(RouteNode node : this.routeNodeMap.get(RouteNodeType.SOURCE)) {
-			Source source = (Source) node;
-			source.setDelay(null);
+		for(int node = 0; node < numNodes; node++) {
+			if(table.type(node) == RouteNodeType.SOURCE && !table.hasFlag(node, RouteNodeTable.DELETED)) {
+				table.setDelay(node, 0);
+			}
 		}
 		
 		System.out.println();
     }
  
     private void allReplaceNodes() {
-    	int xlow, xhigh, ylow, yhigh;
-    	String direction;
-    	for(SLLRouteNode sllWire : this.interposerWireNodes.values()) {
-    		direction = sllWire.direction;
-			xlow = sllWire.xlow;
-			ylow = sllWire.ylow;
-			yhigh = sllWire.yhigh;
-    		if(direction.equals("INC_DIR")) {
-    			List<RouteNode> allNodes; 			
-    			if(!sllWire.hasSourceNode()) {
-    				allNodes = this.allReplaceNodes[xlow][ylow];
-    				for(RouteNode node: allNodes) {
-    					if(node.direction.equals(direction) && !node.isReplacedNode && (node.xlow == xlow) && (node.ylow == ylow)) {
-    						sllWire.setSourceReplaceNode(node);
-    						node.isReplacedNode();
-    						break;
-    					}
-    				}
-    			}
-    			if(!sllWire.hasSinkNode()) {
-    				allNodes = this.allReplaceNodes[xlow][yhigh];
-    				for(RouteNode node: allNodes) {
-    					if(node.direction.equals(direction) && !node.isReplacedNode && (node.xlow == xlow) && (node.yhigh == yhigh)) {
-    						sllWire.setSinkReplaceNode(node);
-    						node.isReplacedNode();
-    						break;
-    					}
-    				}
-    			}
-    		}else if(direction.equals("DEC_DIR")) {
-    			List<RouteNode> allNodes; 			
-    			if(!sllWire.hasSourceNode()) {
-    				allNodes = this.allReplaceNodes[xlow][yhigh];
-    				for(RouteNode node: allNodes) {
-    					if(node.direction.equals(direction) && !node.isReplacedNode && (node.xlow == xlow) && (node.yhigh == yhigh)) {
-    						sllWire.setSourceReplaceNode(node);
-    						node.isReplacedNode();
-    						break;
-    					}
-    				}
-    			}
-    			if(!sllWire.hasSinkNode()) {
-    				allNodes = this.allReplaceNodes[xlow][ylow];
-    				for(RouteNode node: allNodes) {
-    					if(node.direction.equals(direction) && !node.isReplacedNode && (node.xlow == xlow) && (node.ylow == ylow)) {
-    						sllWire.setSinkReplaceNode(node);
-    						node.isReplacedNode();
-    						break;
-    					}
-    				}
-    			}
-    		}   		
+    	final RouteNodeTable table = this.routeNodeTable;
+    	this.forEachColumn(new ColumnWork() {
+    		@Override
+    		public void column(SLLWireTable sllWires, int band, int column) {
+    			sllWires.matchReplaceNodes(table, column);
+    		}
+    	});
+    	for(SLLWireTable sllWires : this.sllWires) {
+    		sllWires.releaseCandidates();
+    	}
+    }
+    
+    /**
+     * Work on one column of an interposer band
+     */
+    private interface ColumnWork {
+    	void column(SLLWireTable sllWires, int band, int column);
+    }
+    
+    /**
+     * Runs work for every column of every interposer band on a ForkJoin
+     * pool. The SLL wires of a column and the wires they replace lie in that
+     * column of that band, so the columns touch disjoint nodes and edge rows.
+     * The bands are all as wide, the columns are numbered band by band.
+     */
+    private void forEachColumn(ColumnWork work) {
+    	int numBandColumns = this.sllWires.length == 0 ? 0 : this.sllWires.length * this.sllWires[0].numColumns();
+    	if(numBandColumns == 0) {
+    		return;
+    	}
+    	ColumnRange range = new ColumnRange(work, this.sllWires, 0, numBandColumns);
+    	if(this.numThreads == 1 || numBandColumns == 1) {
+    		for(int bandColumn = 0; bandColumn < numBandColumns; bandColumn++) {
+    			range.column(bandColumn);
+    		}
+    		return;
+    	}
+    	this.workPool().invoke(range);
+    }
+    
+    /**
+     * The pool of the parallel work on the graph, made the first time it is needed
+     */
+    private ForkJoinPool workPool() {
+    	if(this.columnPool == null) {
+    		this.columnPool = new ForkJoinPool(this.numThreads);
+    	}
+    	return this.columnPool;
+    }
+    
+    private static class ColumnRange extends RecursiveAction {
+    	private static final long serialVersionUID = 1L;
+    	
+    	private final ColumnWork work;
+    	private final SLLWireTable[] sllWires;
+    	private final int first, last;
+    	
+    	ColumnRange(ColumnWork work, SLLWireTable[] sllWires, int first, int last) {
+    		this.work = work;
+    		this.sllWires = sllWires;
+    		this.first = first;
+    		this.last = last;
+    	}
+    	
+    	void column(int bandColumn) {
+    		int numColumns = this.sllWires[0].numColumns();
+    		int band = bandColumn / numColumns;
+    		SLLWireTable sllWires = this.sllWires[band];
+    		this.work.column(sllWires, band, sllWires.firstColumn() + bandColumn % numColumns);
+    	}
+    	
+    	@Override
+    	protected void compute() {
+    		if(this.last - this.first == 1) {
+    			this.column(this.first);
+    		} else {
+    			int middle = (this.first + this.last) >>> 1;
+    			invokeAll(new ColumnRange(this.work, this.sllWires, this.first, middle), new ColumnRange(this.work, this.sllWires, middle, this.last));
+    		}
     	}
-
     }
     
-    private void processSegmentList() throws IOException {
+    private void processSegmentList() throws IOException, InvalidFileFormatException {
     	System.out.print("\n Processing the segmentList");
 		this.segmentList = new HashMap<>();
+		this.segmentTiming = new HashMap<>();
 		String rrgIndexFileName = this.RRGFile.getAbsolutePath();
 		System.out.print("RR file path is " + rrgIndexFileName);
         int lastSlashIndex = rrgIndexFileName.lastIndexOf("/");
@@ -385,38 +595,45 @@ public class ResourceGraph {
             newFileName = directoryPath + "segment_info.echo";
         }
             //return newFileName;
-		BufferedReader reader = null;
-		reader = new BufferedReader(new FileReader(newFileName));
+		EchoTokenizer tokenizer = this.openEchoFile(newFileName, EchoTokenizer.SEMICOLON);
 		StringBuilder contentBuilder = new StringBuilder();
 		System.out.println("\n   Read " + newFileName);
-        String line;
         int id = 0;
-        String sllInfo = "";
  
-		while ((line = reader.readLine()) != null) {
-			contentBuilder.append(line).append(System.lineSeparator());
-			line = line.trim();
+		while (tokenizer.nextLine()) {
+			tokenizer.appendLine(contentBuilder);
+			contentBuilder.append(System.lineSeparator());
 
-			if (line.length() > 0) {
-				while(line.contains("  ")) line = line.replace("  ", " ");
-				
-				String[] words = line.split(";");
-		        id = Integer.parseInt(words[0]);
-		        String name = words[1];
+			if (!tokenizer.isBlankLine()) {
+		        id = tokenizer.nextInt();
+		        String name = tokenizer.nextString();
 		        this.segmentList.put(id, name);
+		        float cPerMeter = tokenizer.nextFloat();
+		        float rPerMeter = tokenizer.nextFloat();
+		        this.segmentTiming.put(id, new float[] {rPerMeter, cPerMeter});
 
 			}
 		}
-		//Add the segment information for the SLL wire
+        tokenizer.close();
+        this.segmentText = contentBuilder.toString();
+        this.lastSegmentID = id;
+    }
+    
+    /**
+     * Add the segment of the SLL wire after the segments of the echo file
+     * and write the segment file of this number of SLL rows
+     */
+    private void addSLLSegment() throws IOException {
 		String sllName = "L" + this.sllRows + "SN";
-		id++;
+		int id = this.lastSegmentID + 1;
 		this.segmentList.put(id, sllName);
-        reader.close();
+		this.segmentTiming.put(id, new float[] {this.sllSegmentInfo.get("Rmetal"), this.sllSegmentInfo.get("Cmetal")});
+        String sllInfo = "";
     	
         float rWire, Cwire = 0;
         
-        rWire = this.architecture.getSLLSegmentInfo().get("Rmetal");
-        Cwire = this.architecture.getSLLSegmentInfo().get("Cmetal");
+        rWire = this.sllSegmentInfo.get("Rmetal");
+        Cwire = this.sllSegmentInfo.get("Cmetal");
 		
 		
         sllInfo += id + ";";
@@ -428,55 +645,63 @@ public class ResourceGraph {
         	System.out.print("\nThe id is " + idN + " and the value is " + this.segmentList.get(idN));
         }
         
-		File indexFile = new File(this.RRGFile.getParentFile(), "segment_info"+this.sllRows+"L.echo");
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(indexFile))) {
-            writer.write(contentBuilder.toString());
+		File indexFile = this.outputFile("segment_info"+this.sllRows+"L.echo");
+        try (BufferedWriter writer = EchoFile.createWriter(indexFile)) {
+            writer.write(this.segmentText);
             writer.write(sllInfo);
         }
     }
 
-	private void processSwitchList() throws IOException{
+	private void processSwitchList() throws IOException, InvalidFileFormatException {
 		System.out.print("\n Processing the switchList");
 		this.switchTypesList = new ArrayList<>();
-		this.lengthToSwitchMap = new HashMap<String, Integer>();
 		String rrgIndexFileName = this.RRGFile.getAbsolutePath();
 		System.out.print("RR file path is " + rrgIndexFileName);
         int lastSlashIndex = rrgIndexFileName.lastIndexOf("/");
         String newFileName = null;
-        String sllInfo = "";
         
         if (lastSlashIndex >= 0) {
             String directoryPath = rrgIndexFileName.substring(0, lastSlashIndex + 1); // Include the last slash
             newFileName = directoryPath + "switch_info.echo";
         }
 
-		BufferedReader reader = null;
-		reader = new BufferedReader(new FileReader(newFileName));
+		EchoTokenizer tokenizer = this.openEchoFile(newFileName, EchoTokenizer.SEMICOLON);
 		StringBuilder contentBuilder = new StringBuilder();
 		System.out.println("\n   Read " + newFileName);
-        String line;
 
         int indexCounter = 0;
-		while ((line = reader.readLine()) != null) {
-			contentBuilder.append(line).append(System.lineSeparator());
-			line = line.trim();
-			if (line.length() > 0) {
+		while (tokenizer.nextLine()) {
+			tokenizer.appendLine(contentBuilder);
+			contentBuilder.append(System.lineSeparator());
+			if (!tokenizer.isBlankLine()) {
 				
-				this.switchTypesList.add(new RouteSwitch(line));
+				this.switchTypesList.add(new RouteSwitch(tokenizer));
 			}
 			indexCounter++;
 		}
-		
+        tokenizer.close();
+        this.switchText = contentBuilder.toString();
+        this.numSwitchLines = indexCounter;
+	}
+	
+	/**
+	 * Add the driver switch of the SLL wire after the switches of the echo
+	 * file and write the switch file of this number of SLL rows
+	 */
+	private void addSLLSwitch() throws IOException {
+		this.lengthToSwitchMap = new HashMap<String, Integer>();
+		int indexCounter = this.numSwitchLines;
+        String sllInfo = "";
+        
 		//Add the switch info based on the input.
 		String switchName = "seg" + this.sllRows +"_driverSN";
 		float rsw,csw,tdel, cin = 0;
 		cin = 0.1e-15f;
-		rsw = this.architecture.getSLLSegmentInfo().get("RSwitch");
-		tdel = this.architecture.getSLLSegmentInfo().get("tdel");
-		csw = this.architecture.getSLLSegmentInfo().get("CSwitch");
+		rsw = this.sllSegmentInfo.get("RSwitch");
+		tdel = this.sllSegmentInfo.get("tdel");
+		csw = this.sllSegmentInfo.get("CSwitch");
 		RouteSwitch tempInfo = this.switchTypesList.get(indexCounter - 1);
-		this.switchTypesList.add(new RouteSwitch(indexCounter, switchName, rsw, cin, csw, tdel, tempInfo.mux_trans_size, tempInfo.buf_size));
-        reader.close();
+		this.switchTypesList.add(new RouteSwitch(indexCounter, switchName, "mux", rsw, cin, csw, tdel, tempInfo.mux_trans_size, tempInfo.buf_size));
         
         sllInfo += indexCounter + ";";
         sllInfo += switchName + ";";
@@ -493,15 +718,45 @@ public class ResourceGraph {
 			this.lengthToSwitchMap.put( switchInfor.name, switchInfor.index);
 			System.out.println("\nThe switch id is " + switchInfor.index + " and the name is " + switchInfor.name);
 		}
-		File indexFile = new File(this.RRGFile.getParentFile(), "switch_info"+this.sllRows+"L.echo");
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(indexFile))) {
-            writer.write(contentBuilder.toString());
+		File indexFile = this.outputFile("switch_info"+this.sllRows+"L.echo");
+        try (BufferedWriter writer = EchoFile.createWriter(indexFile)) {
+            writer.write(this.switchText);
             // Append additional content
             writer.write(sllInfo);
         }
 	}
 
-	private void processBlockTypes() throws IOException {
+	/**
+	 * The switch that drives a wire from an SLL depends on the length of the
+	 * wire, which follows from its cost index or else from its base cost.
+	 * Resolved once per cost index.
+	 */
+	private void buildDriverSwitchTable() {
+		int maxCostIndex = 0;
+		for(IndexedData data : this.indexedDataList.values()) {
+			maxCostIndex = Math.max(maxCostIndex, data.getIndex());
+		}
+		this.driverSwitch = new int[maxCostIndex + 1];
+		for(int i = 0; i <= maxCostIndex; i++) {
+			this.driverSwitch[i] = -1;
+		}
+		for(IndexedData data : this.indexedDataList.values()) {
+			String wireLeng = this.costIndexToLength != null ? this.costIndexToLength.get(data.getIndex()) : this.baseCostToLength.get(data.getBaseCost());
+			Integer switchIndex = this.lengthToSwitchMap.get("seg" + (wireLeng) +"_driverSN");
+			if(switchIndex != null) {
+				this.driverSwitch[data.getIndex()] = switchIndex;
+			}
+		}
+	}
+	private int getDriverSwitch(int node) {
+		int switchIndex = this.driverSwitch[this.routeNodeTable.costIndex(node)];
+		if(switchIndex < 0) {
+			throw new RuntimeException("No SLL driver switch for the wire length of node " + node);
+		}
+		return switchIndex;
+	}
+
+	private void processBlockTypes() throws IOException, InvalidFileFormatException {
 		System.out.print("\n Processing the Blocktypes");
 		String rrgIndexFileName = this.RRGFile.getAbsolutePath();
 		System.out.print("RR file path is " + rrgIndexFileName);
@@ -512,40 +767,39 @@ public class ResourceGraph {
             newFileName = directoryPath + "block_type_info.echo";
         }
             //return newFileName;
-		BufferedReader reader = null;
-		reader = new BufferedReader(new FileReader(newFileName));
+		EchoTokenizer tokenizer = this.openEchoFile(newFileName, EchoTokenizer.SEMICOLON);
 		System.out.println("\n   Read " + newFileName);
-        String line;
 
         BlockTypeRRG newBlock = null;
-		while ((line = reader.readLine()) != null) {
-			line = line.trim();
-			if (line.length() > 0) {
-				while(line.contains("  ")) line = line.replace("  ", " ");				
-				String[] words = line.split(";");
-
-		        int id = Integer.parseInt(words[1]);
-		        String name = words[2];
-	            int width = Integer.parseInt(words[3]);
-	            int height = Integer.parseInt(words[0]);  
+		while (tokenizer.nextLine()) {
+			if (!tokenizer.isBlankLine()) {
+	            int height = tokenizer.nextInt();
+		        int id = tokenizer.nextInt();
+		        String name = tokenizer.nextString();
+	            int width = tokenizer.nextInt();
 	            if(this.blockTypeNodes.get(name)!= null) {
 	            	newBlock = this.blockTypeNodes.get(name);
 	            }else {
 	            	newBlock = new BlockTypeRRG(id, height, width, name);
 	            }
-	            String pinClassType = words[4];
-	            String pinValue	= words[6];
-	            int ptc = Integer.parseInt(words[5]);
+	            String pinClassType = tokenizer.nextString();
+	            int ptc = tokenizer.nextInt();
+	            String pinValue	= tokenizer.nextString();
 	            newBlock.addPinClass(pinValue, ptc, pinClassType);
 	            this.blockTypeNodes.put(name, newBlock);
 			}
 		}
 		
-        reader.close();
+        tokenizer.close();
         
 	}
 
-	private void processRRGNodes() throws IOException {
+	/**
+	 * Read the nodes into the node table. With bandOnly, only the wires of
+	 * the interposer band are kept, at a local index, and their index in the
+	 * node file is kept in bandGlobalIndex.
+	 */
+	private void processRRGNodes(boolean bandOnly) throws IOException, InvalidFileFormatException {
     	System.out.print("\n Processing the RRGNodes");
 		String rrgIndexFileName = this.RRGFile.getAbsolutePath();
 		System.out.print("RR file path is " + rrgIndexFileName);
@@ -556,210 +810,235 @@ public class ResourceGraph {
             newFileName = directoryPath + "rrNode_info.echo";
         }
             //return newFileName;
-		BufferedReader reader = null;
-		reader = new BufferedReader(new FileReader(newFileName));
+		EchoTokenizer tokenizer = new EchoTokenizer(EchoFile.find(new File(newFileName)), EchoTokenizer.SEMICOLON);
 		System.out.println("\n   Read " + newFileName);
-		RouteNode routeNode = null;
-		BlockTypeRRG blockNode = null;
-		String currentBlockTypeName = null;
-		String currentPort = null;
-		int portIndex = -1;
-		IndexedData data = null;
-		String fullName = null;
-		String name = null;
-		String names[] = null;
-		String line;
-        String[] words = null;
-        int replaceCounter = 0; 
-        int removeCounter = 0;
-        int Counter = 0;
-        //Starting with INC_DIR, all nodes start at ylow and end at yhigh
-    	for(int xCord = 2; xCord < this.width - 2; xCord++) {
-        	for(int yCord = (this.dieBoundary - this.sllRows + 1); yCord < this.dieBoundary; yCord++) {
-        		int xlow = xCord, xhigh = xCord;
-        		int ylow = yCord;
-        		int yhigh = yCord + this.sllRows - 1;
-        		String index = "INC_" + String.valueOf(xlow) + "_" + String.valueOf(ylow);       		
-        		this.interposerWireNodes.put(index, new SLLRouteNode("INC_DIR", xlow, xhigh, ylow, yhigh));
-        		index = "DEC_" + String.valueOf(xlow) + "_" + String.valueOf(yhigh);
-        		this.interposerWireNodes.put(index,new SLLRouteNode("DEC_DIR", xlow, xhigh, ylow, yhigh));
-    		}
+		RouteNodeTable table = this.routeNodeTable;
+		IndexedData[] chanxData = this.indexedDataPerSegment(RouteNodeType.CHANX);
+		IndexedData[] chanyData = this.indexedDataPerSegment(RouteNodeType.CHANY);
+		if(bandOnly) {
+			this.bandGlobalIndex = new int[1024];
 		}
-        
-        
-        //reader.readLine();
-		while ((line = reader.readLine()) != null) {
-			line = line.trim();
-			if (line.length() > 0) {
-				while(line.contains("  ")) line = line.replace("  ", " ");
-        		words = line.split(";");
-        		int capacity = Integer.parseInt(words[3]);
-        		int index = Integer.parseInt(words[0]);
+		while (tokenizer.nextLine()) {
+			if (!tokenizer.isBlankLine()) {
+        		int index = tokenizer.nextInt();
         		this.indexStart = Math.max(this.indexStart, index);
-        		String direction = words[2];
-        		String type = words[1];
-        		//String side = words[8];
-        		int ptc = Integer.parseInt(words[8]);;
-        		int xhigh = Integer.parseInt(words[6]);
-        		int xlow  = Integer.parseInt(words[4]);
-        		int yhigh = Integer.parseInt(words[7]);
-        		int ylow  = Integer.parseInt(words[5]);
+        		RouteNodeType type = tokenizer.nextEnum(NODE_TYPES);
+        		String typeName = type == null ? tokenizer.lastField() : null;
+        		int directionKeyword = tokenizer.nextKeyword(DIRECTIONS);
+        		String direction = directionKeyword >= 0 ? DIRECTIONS[directionKeyword] : tokenizer.lastField();
+        		int capacity = tokenizer.nextInt();
+        		int xlow  = tokenizer.nextInt();
+        		int ylow  = tokenizer.nextInt();
+        		int xhigh = tokenizer.nextInt();
+        		int yhigh = tokenizer.nextInt();
+        		int ptc = tokenizer.nextInt();
       
         		int segID = 0;
-        		String chanType;
-        		float Reg = Float.parseFloat(words[9]);
-        		float Cap = Float.parseFloat(words[10]);
-        		int numChildren = Integer.parseInt(words[12]);
-        		switch (type) {
-    				case "SOURCE":        				
-    					assert Reg == 0;
-    					assert Cap == 0;
-    					data = this.indexedDataList.get(type);
-    					routeNode = new Source(index, xlow, xhigh, ylow, yhigh, ptc, capacity, data, numChildren);
-    					
-    					break;
-    				case "SINK":        				
-    					assert Reg == 0;
-    					assert Cap == 0;
-    					data = this.indexedDataList.get(type);
-    					routeNode = new Sink(index, xlow, xhigh, ylow, yhigh, ptc, capacity, data, numChildren);
-    					
-    					break;
-	    			case "IPIN":
-	    				//Assertions
-	    				assert capacity == 1;
-	    				assert Reg == 0;
-	    				assert Cap == 0;
-	    				currentBlockTypeName = this.getBlocktypeAtSite(xlow, ylow);
-
-	    				blockNode = this.blockTypeNodes.get(currentBlockTypeName);
-	    				fullName = blockNode.getPinClassNameByPinId(ptc); // currentBlockTypeName);
-	    				
-	    				names = fullName.split("\\.");
-	    				names = names[1].split("\\[");
-	    				name = names[0];
-	    				if(currentPort == null){
-	    					currentPort = name;
-	    					portIndex = 0;
-	    				}else if(!currentPort.equals(name)){
-	    					currentPort = name;
-	    					portIndex = 0;
-	    				}
-	    				data = this.indexedDataList.get(type);
-	    				routeNode = new Ipin(index, xlow, xhigh, ylow, yhigh, ptc, currentPort, portIndex, data, direction, numChildren);
-	    				
-	    				portIndex += 1;
-	    				
-	    				break;
-	    			case "OPIN":        				
-	    				//Assertions
-	    				assert capacity == 1;
-	    				assert Reg == 0;
-	    				assert Cap == 0;
-	    				
-	    				currentBlockTypeName = this.getBlocktypeAtSite(xlow, ylow);
-	    				blockNode = this.blockTypeNodes.get(currentBlockTypeName);
-	    				fullName = blockNode.getPinClassNameByPinId(ptc); //, currentBlockTypeName);
-	    				
-	    				names = fullName.split("\\.");
-	    				names = names[1].split("\\[");
-	    				name = names[0];
-	    				
-	    				if(currentPort == null){
-	    					currentPort = name;
-	    					portIndex = 0;
-	    				}else if(!currentPort.equals(name)){
-	    					currentPort = name;
-	    					portIndex = 0;
-	    				}
-	    				data = this.indexedDataList.get(type);
-	    				routeNode = new Opin(index, xlow, xhigh, ylow, yhigh, ptc, currentPort, portIndex, data, direction, numChildren);
-	    				
-	    				portIndex += 1;
-	    				
-	    				break;
-	    			case "CHANX":        				
-	    				assert capacity == 1;
-	    				segID = Integer.parseInt(words[11]);
-	    				chanType = type + "_" + this.segmentList.get(segID);
-	    				data = this.indexedDataList.get(chanType);
-	    				routeNode = new Chanx(index, xlow, xhigh, ylow, yhigh, ptc, Reg, Cap, data, direction, numChildren, segID);
-	    				
-	    				break;
-	    			case "CHANY":        				
-
-	    				assert capacity == 1;
-	    				segID = Integer.parseInt(words[11]);
-	    				chanType = type + "_" + this.segmentList.get(segID);
-	    				data = this.indexedDataList.get(chanType);
-	    				routeNode = new Chany(index, xlow, xhigh, ylow, yhigh, ptc, Reg, Cap, data, direction, numChildren, segID);
-	    				
-	    				break;
-	    			default:
-	    				System.out.println("Unknown type: " + type);
-	    				break;
-	    		}
-        		
-
-        		if(this.isInInterposerRegion(xlow, ylow, yhigh)) {
-        			if(type.equals("CHANY")) {
-        				if((yhigh - ylow == 5) && (xlow == xhigh)) {
-        					if((ylow < this.dieBoundary && yhigh >= this.dieBoundary)) {
-        						routeNode.isDeletedNode();
-                				this.routeNodesDeleted.add(routeNode);
-            					this.allReplaceNodes[xlow][ylow].add(routeNode);
-            					this.allReplaceNodes[xlow][yhigh].add(routeNode);
-        					}else{
-            					this.allReplaceNodes[xlow][ylow].add(routeNode);
-            					this.allReplaceNodes[xlow][yhigh].add(routeNode);
-        					}
-        					
-        					if(yhigh == (this.dieBoundary -1) || ylow == this.dieBoundary) {
-            					routeNode.setBorderStatus();
-            					this.boundaryDeletedNodes.add(routeNode);
-            				}
-        				}else if((ylow < this.dieBoundary && yhigh >= this.dieBoundary)) {
-        					routeNode.isDeletedNode();
-        					this.routeNodesDeleted.add(routeNode);
-        					removeCounter++;
-        				}else if(yhigh == (this.dieBoundary -1) || ylow == this.dieBoundary) {
-        					routeNode.setBorderStatus();
-        					Counter++;
-        				}
-        			}else if(type.equals("CHANX")) {
-        				if(yhigh == (this.dieBoundary -1) || ylow == this.dieBoundary) {
-        					routeNode.setBorderStatus();
-        					Counter++;
-        				}
+        		float Reg = tokenizer.nextFloat();
+        		float Cap = tokenizer.nextFloat();
+        		if(type == RouteNodeType.CHANX || type == RouteNodeType.CHANY) {
+        			segID = tokenizer.nextInt();
+        		} else {
+        			tokenizer.skipField();
+        		}
+        		int numChildren = tokenizer.nextInt();
+        		int nodeIndex;
+        		if (type == null) {
+    				System.out.println("Unknown type: " + typeName);
+    				continue;
+        		}
+        		if(bandOnly) {
+        			boolean isWire = type == RouteNodeType.CHANX || type == RouteNodeType.CHANY;
+        			if(!isWire || !this.isInInterposerRegion(xlow, ylow, yhigh)) {
+        				continue;
         			}
+        			if(table.numNodes() == this.bandGlobalIndex.length) {
+        				this.bandGlobalIndex = Arrays.copyOf(this.bandGlobalIndex, 2 * this.bandGlobalIndex.length);
+        			}
+        			this.bandGlobalIndex[table.numNodes()] = index;
+        		}
+        		nodeIndex = this.addParsedNode(type, direction, capacity, xlow, xhigh, ylow, yhigh, ptc, Reg, Cap, segID, numChildren, chanxData, chanyData);
+        		if(nodeIndex < 0) {
+        			continue;
         		}
+        		assert bandOnly || nodeIndex == index;
+			}
+		}
+        tokenizer.close();
+        System.out.print("\n RR nodes: " + table.numNodes());
+	}
 	
-        		this.addRouteNode(routeNode);
-        		
-        		
-        			
-				
+	/**
+	 * Add a node of the node file or of rr_graph.xml to the node table with
+	 * the indexed data of its type, returns -1 if the type has no node
+	 */
+	private int addParsedNode(RouteNodeType type, String direction, int capacity, int xlow, int xhigh, int ylow, int yhigh, int ptc, float Reg, float Cap, int segID, int numChildren, IndexedData[] chanxData, IndexedData[] chanyData) {
+		RouteNodeTable table = this.routeNodeTable;
+		IndexedData data = null;
+		switch (type) {
+			case SOURCE:
+			case SINK:
+				assert Reg == 0;
+				assert Cap == 0;
+				data = this.indexedDataList.get(type.name());
+				return table.addNode(type, xlow, xhigh, ylow, yhigh, ptc, capacity, 0, 0, data, "none", numChildren, 0);
+			case IPIN:
+			case OPIN:
+				//Assertions
+				assert capacity == 1;
+				assert Reg == 0;
+				assert Cap == 0;
+				data = this.indexedDataList.get(type.name());
+				return table.addNode(type, xlow, xhigh, ylow, yhigh, ptc, 1, 0, 0, data, "none", numChildren, 0);
+			case CHANX:
+				assert capacity == 1;
+				data = chanxData[segID];
+				return table.addNode(RouteNodeType.CHANX, xlow, xhigh, ylow, yhigh, ptc, 1, Reg, Cap, data, direction, numChildren, segID);
+			case CHANY:
+				assert capacity == 1;
+				data = chanyData[segID];
+				return table.addNode(RouteNodeType.CHANY, xlow, xhigh, ylow, yhigh, ptc, 1, Reg, Cap, data, direction, numChildren, segID);
+			default:
+				return -1;
+		}
+	}
+	
+	/**
+	 * Sources, sinks and pins get their view right after parsing. A pin
+	 * takes the name of its port and its index in the port from the pin of
+	 * its ptc in the block type at its site.
+	 */
+	private void createNodeViews() {
+		RouteNodeTable table = this.routeNodeTable;
+		BlockTypeRRG[][] blockTypeGrid = this.blockTypeGrid();
+		for(int nodeIndex = 0; nodeIndex < table.numNodes(); nodeIndex++) {
+			RouteNodeType type = table.type(nodeIndex);
+			switch (type) {
+				case SOURCE:
+					table.setView(nodeIndex, new Source(table, nodeIndex));
+					break;
+				case SINK:
+					table.setView(nodeIndex, new Sink(table, nodeIndex));
+					break;
+				case IPIN:
+				case OPIN:
+    				BlockTypeRRG blockType = blockTypeGrid[table.xlow(nodeIndex)][table.ylow(nodeIndex)];
+    				String portName = blockType.getPortName(table.ptc(nodeIndex));
+    				int portIndex = blockType.getPortPin(table.ptc(nodeIndex));
+    				if(type == RouteNodeType.IPIN) {
+    					table.setView(nodeIndex, new Ipin(table, nodeIndex, portName, portIndex));
+    				} else {
+    					table.setView(nodeIndex, new Opin(table, nodeIndex, portName, portIndex));
+    				}
+					break;
+				default:
+					break;
+			}
+		}
+	}
+	
+	/**
+	 * The block type of the site that covers every grid location, as
+	 * getBlocktypeAtSite finds it, without walking down the column for
+	 * every pin
+	 */
+	private BlockTypeRRG[][] blockTypeGrid() {
+		BlockTypeRRG[][] grid = new BlockTypeRRG[this.siteArray.length][];
+		for(int column = 0; column < this.siteArray.length; column++) {
+			grid[column] = new BlockTypeRRG[this.siteArray[column].length];
+			BlockTypeRRG blockType = null;
+			for(int row = 0; row < this.siteArray[column].length; row++) {
+				Site site = this.siteArray[column][row];
+				if(site != null) {
+					blockType = this.blockTypeNodes.get(site.getInstance(0).getBlockType().getName());
+				}
+				grid[column][row] = blockType;
 			}
 		}
+		return grid;
+	}
+	
+	/**
+	 * Flag the wires in the interposer bands: the vertical wires that cross
+	 * a die boundary are deleted, the wires that end at a boundary are at
+	 * the border, and the short vertical wires become SLL replacement
+	 * candidates of their band. Only the wires the spatial index finds in
+	 * the rows of the bands are visited.
+	 */
+	private void markInterposerNodes() {
+		RouteNodeTable table = this.routeNodeTable;
+		RouteNode routeNode = null;
+        int replaceCounter = 0; 
+        int removeCounter = 0;
+        int Counter = 0;
+		for(int nodeIndex : this.interposerBandWires(table, this.getNodeIndex())) {
+			RouteNodeType type = table.type(nodeIndex);
+			int xlow = table.xlow(nodeIndex), xhigh = table.xhigh(nodeIndex);
+			int ylow = table.ylow(nodeIndex), yhigh = table.yhigh(nodeIndex);
+
+    		int band = this.interposerBand(xlow, ylow, yhigh);
+    		int dieBoundary = this.dieBoundaries[band];
+    		if(type == RouteNodeType.CHANY) {
+    			if((yhigh - ylow == 5) && (xlow == xhigh)) {
+    				if((ylow < dieBoundary && yhigh >= dieBoundary)) {
+    					routeNode = table.getNode(nodeIndex);
+    					routeNode.isDeletedNode();
+            				this.routeNodesDeleted.add(routeNode);
+    				}
+    				this.sllWires[band].addCandidate(nodeIndex, xlow, ylow, yhigh, this.sllDirection(table.direction(nodeIndex)));
+    				
+    				if(yhigh == (dieBoundary -1) || ylow == dieBoundary) {
+    					routeNode = table.getNode(nodeIndex);
+        					routeNode.setBorderStatus();
+        					this.boundaryDeletedNodes.add(routeNode);
+        				}
+    			}else if((ylow < dieBoundary && yhigh >= dieBoundary)) {
+    				routeNode = table.getNode(nodeIndex);
+    				routeNode.isDeletedNode();
+    				this.routeNodesDeleted.add(routeNode);
+    				removeCounter++;
+    			}else if(yhigh == (dieBoundary -1) || ylow == dieBoundary) {
+    				table.setFlag(nodeIndex, RouteNodeTable.AT_BORDER);
+    				Counter++;
+    			}
+    		}else if(type == RouteNodeType.CHANX) {
+    			if(yhigh == (dieBoundary -1) || ylow == dieBoundary) {
+    				table.setFlag(nodeIndex, RouteNodeTable.AT_BORDER);
+    				Counter++;
+    			}
+    		}
+		}
 		System.out.print("\nThe size of routing node deleted is " + this.routeNodesDeleted.size());
 		System.out.print("available sll nodes " + replaceCounter + " removed " + removeCounter);
 		System.out.print("\n New route node is " + Counter);
-        reader.close();
-        System.out.print("\n RR nodes: " + this.routeNodes.size());
 	}
    
 	
-	public boolean checkEdgeCondition(int ylow) {
-		Boolean isValid = false;
-		
-		if((ylow >= this.dieBoundary - 5)) {
-			isValid = true;
+	/**
+	 * The indexed data of the wires of a channel type, by segment id
+	 */
+	private IndexedData[] indexedDataPerSegment(RouteNodeType type) {
+		int maxSegID = 0;
+		for(Integer segID : this.segmentList.keySet()) {
+			maxSegID = Math.max(maxSegID, segID);
 		}
-		
-		return isValid;
+		IndexedData[] data = new IndexedData[maxSegID + 1];
+		for(Integer segID : this.segmentList.keySet()) {
+			data[segID] = this.indexedDataList.get(type + "_" + this.segmentList.get(segID));
+		}
+		return data;
 	}
 	
-    private void processRRGEdges() throws IOException {
+	private int sllDirection(String direction) {
+		if(direction.equals("INC_DIR")) {
+			return SLLWireTable.INC;
+		} else if(direction.equals("DEC_DIR")) {
+			return SLLWireTable.DEC;
+		}
+		return -1;
+	}
+	
+    private void processRRGEdges() throws IOException, InvalidFileFormatException {
     	System.out.print("\n Processing the RRGEdges");
 		String rrgIndexFileName = this.RRGFile.getAbsolutePath();
 		System.out.print("\nRR file path is " + rrgIndexFileName);
@@ -769,269 +1048,1213 @@ public class ResourceGraph {
             String directoryPath = rrgIndexFileName.substring(0, lastSlashIndex + 1); // Include the last slash
             newFileName = directoryPath + "rrEdge_info.echo";
         }
-		BufferedReader reader = null;
-		reader = new BufferedReader(new FileReader(newFileName));
 		System.out.println("\n   Read " + newFileName);
+		
+		this.buildEdgeStore();
+		
 		int counterRemovd = 0;
-		String line;
-        String[] words = null;
-        int counter = 0;
-        while ((line = reader.readLine()) != null) {
-			line = line.trim();
-			if (line.length() > 0) {
-				while(line.contains("  ")) line = line.replace("  ", " ");
-        		words = line.split(";");
-        		int sinkNode = Integer.parseInt(words[0]);
-        		int sourceNode = Integer.parseInt(words[1]);
-        		int switchID = Integer.parseInt(words[2]);
-        		
-        		
-                RouteNode parent = this.routeNodes.get(sourceNode);
-                RouteNode child = this.routeNodes.get(sinkNode);
-        		//Check if node has to be removed
-                int index = parent.currentIndex;
-                if(child != null && parent != null) {
-                    
-                    parent.setChild(index, child);
-                    RouteSwitch routeSwitch = this.switchTypesList.get(switchID);
-                    parent.setSwitchType(index, routeSwitch);
-                    
-                }
-
-                if(child.replaced()) {
-                	if(this.childToParentMap.containsKey(child)) {
-                		this.childToParentMap.get(child).add(parent);
-                	}else {
-                		this.childToParentMap.put(child, new ArrayList<RouteNode>());
-                		this.childToParentMap.get(child).add(parent);
-                	}
-                }
-			}
+		long counter;
+		if(this.xmlEdgeSource != null) {
+			counter = this.addXmlEdges();
+		} else if(this.image != null) {
+			counter = this.readImageEdges();
+			this.image.close();
+			this.image = null;
+		} else {
+			RRGEdgeReader reader = new RRGEdgeReader(EchoFile.find(new File(newFileName)), this.numThreads);
+			counter = reader.read(this.edges);
+		}
+		if(this.imageWriter != null) {
+			this.writeImageEdges();
+			this.imageWriter.finish();
+			this.imageWriter.close();
+			this.imageWriter = null;
 		}
 		
-        reader.close();
+        this.edges.finishFilling();
         
         System.out.print("\n RR Edges: " + counter);
         System.out.print("\nRemoved Edges " + counterRemovd);
     }
     
-    private Boolean checkForL1Boundary(int ylowP, int yhighC) {
-    	boolean valid = false;
-    	if(ylowP == this.dieBoundary && yhighC < this.dieBoundary) {
-    		valid = true;
-    	}else if( ylowP == (this.dieBoundary -1) && yhighC > this.dieBoundary) {
-    		valid = true;
+    /********************
+     * rr_graph.xml
+     ********************/
+    
+    /**
+     * The switches, segments and block types of rr_graph.xml. The cost
+     * indices are not part of rr_graph.xml: they are read from
+     * rr_indexed_data.echo if VPR dumped it, otherwise they are numbered as
+     * VPR numbers them.
+     */
+    private void readXmlHeader() throws IOException, InvalidFileFormatException {
+    	System.out.print("\n Reading " + this.RRGFile);
+    	this.xmlReader = new RRGXmlReader(EchoFile.find(this.RRGFile));
+    	this.xmlReader.readHeader();
+    	
+    	this.switchTypesList = new ArrayList<>(this.xmlReader.getSwitches());
+    	this.switchText = joinLines(this.xmlReader.getSwitchLines());
+    	this.numSwitchLines = this.switchTypesList.size();
+    	
+    	this.segmentList = new HashMap<>(this.xmlReader.getSegments());
+    	this.segmentTiming = new HashMap<>(this.xmlReader.getSegmentTiming());
+    	this.segmentText = joinLines(this.xmlReader.getSegmentLines());
+    	for(Integer id : this.segmentList.keySet()) {
+    		this.lastSegmentID = Math.max(this.lastSegmentID, id);
     	}
-    	return valid;
+    	
+    	this.blockTypeNodes.putAll(this.xmlReader.getBlockTypes());
+    	this.xmlToolVersion = this.xmlReader.getToolVersion();
+    	
+    	if(EchoFile.find(this.RRGFile.getParentFile(), "rr_indexed_data.echo").exists()) {
+    		this.processIndexList();
+    	} else {
+    		this.numberIndexedData();
+    	}
+    	System.out.print("\n Switches: " + this.switchTypesList.size() + ", segments: " + this.segmentList.size() + ", block types: " + this.blockTypeNodes.size());
     }
     
-    private void processInterposerEdges() {
-    	System.out.print("\nAdding interposer Edges");
-    	this.processInterposerParentChildEdges();
-    	this.removeEdgesFromDeletedNodes();
-    	
+    private static String joinLines(List<String> lines) {
+    	StringBuilder text = new StringBuilder();
+    	for(String line : lines) {
+    		text.append(line).append(System.lineSeparator());
+    	}
+    	return text.toString();
     }
     
-    private void removeEdgesFromDeletedNodes() {
-    	long startTime = System.nanoTime();
-   	
+    /**
+     * The cost indices as VPR numbers them: source, sink, OPIN and IPIN,
+     * then CHANX and CHANY of every segment. Without the timing of VPR every
+     * index gets a unit base cost.
+     */
+    private void numberIndexedData() {
+    	this.indexedDataList = new HashMap<String, IndexedData>();
+    	this.baseCostToLength = new HashMap<Float, String>();
+    	//All wires have the same base cost here, the lengths are kept per cost index
+    	this.costIndexToLength = new HashMap<Integer, String>();
+    	StringBuilder text = new StringBuilder("Cost index  type  base_cost  ortho  seg  inv_length  t_linear  t_quadratic  C_load").append(System.lineSeparator());
+    	float baseCost = 1;
     	
-
-    	long endTime   = System.nanoTime();
-    	long totalTime = endTime - startTime;
-    	System.out.println("\nremove edges from deleted first nodes took " + (totalTime*1e-9) +"s");
-    	startTime = System.nanoTime();
-    	for(RouteNode deletedNode: this.routeNodesDeleted) {
-    		this.removeRouteNode(deletedNode);
+    	int index = 0;
+    	for(RouteNodeType type : new RouteNodeType[] {RouteNodeType.SOURCE, RouteNodeType.SINK, RouteNodeType.OPIN, RouteNodeType.IPIN}) {
+    		this.indexedDataList.put(type.name(), new IndexedData(index, baseCost, -1, 0, 0, 0, 0));
+    		text.append(indexedDataLine(index, type.name(), baseCost, -1, 0, Float.NaN));
+    		index++;
     	}
-    	endTime   = System.nanoTime();
-    	totalTime = endTime - startTime;
-  	  System.out.println("\nremove edges from deleted nodes took " + (totalTime*1e-9) +"s");
+    	
+    	List<Integer> segIDs = new ArrayList<>(this.segmentList.keySet());
+    	Collections.sort(segIDs);
+    	int orthoCostIndex = -1, segIndex = 0;
+    	for(RouteNodeType type : new RouteNodeType[] {RouteNodeType.CHANX, RouteNodeType.CHANY}) {
+    		for(int segID : segIDs) {
+    			String segName = this.segmentList.get(segID);
+    			String segLength = segName.replaceAll("\\D+", "");
+    			float invLength = segLength.isEmpty() ? 1 : 1.0f / Integer.parseInt(segLength);
+    			orthoCostIndex = type == RouteNodeType.CHANX ? index + segIDs.size() : index - segIDs.size();
+    			segIndex = segID;
+    			this.indexedDataList.put(type + "_" + segName, new IndexedData(index, baseCost, orthoCostIndex, invLength, 0, 0, 0));
+    			text.append(indexedDataLine(index, type + " " + segName, baseCost, orthoCostIndex, segIndex, invLength));
+    			this.costIndexToLength.put(index, segLength);
+    			index++;
+    		}
+    	}
+    	for(String dataTypes: this.indexedDataList.keySet()) {
+    		this.setOrthoData(dataTypes);
+    	}
+    	this.indexedDataText = text.toString();
+    	this.lastCostIndex = index - 1;
+    	this.lastOrthoCostIndex = orthoCostIndex;
+    	this.lastSegIndex = segIndex;
     }
     
+    private static String indexedDataLine(int index, String type, float baseCost, int orthoCostIndex, int segIndex, float invLength) {
+    	String line = String.format("%-5d", index);
+    	line += String.format("%-25s", type);
+    	line += String.format("%-20.5e", baseCost);
+    	line += String.format("%-20d", orthoCostIndex);
+    	line += String.format("%-20d", segIndex);
+    	line += Float.isNaN(invLength) ? String.format("%-20s", "nan") : String.format("%-20.6f", invLength);
+    	line += String.format("%-20.5e", 0f);
+    	line += String.format("%-20.6f", 0f);
+    	line += String.format("%-20.6f", 0f);
+    	return line + System.lineSeparator();
+    }
     
-    private void writeModifiedEdges() throws IOException {
-    	File rrEdgeFile = new File(this.RRGFile.getParentFile(), "rrEdge_info_"+this.sllRows+"L.echo");
-    	BufferedWriter writer = new BufferedWriter(new FileWriter(rrEdgeFile));
+    /**
+     * The nodes of rr_graph.xml and the edges that follow them. The number
+     * of children of a node is not in rr_graph.xml, so the edges are kept
+     * until the edge store can be sized.
+     */
+    private void readXmlNodes() throws IOException, InvalidFileFormatException {
+    	System.out.print("\n Processing the RRGNodes");
+    	final RouteNodeTable table = this.routeNodeTable;
+    	final IndexedData[] chanxData = this.indexedDataPerSegment(RouteNodeType.CHANX);
+    	final IndexedData[] chanyData = this.indexedDataPerSegment(RouteNodeType.CHANY);
+    	this.xmlReader.readNodes(new RRGXmlReader.NodeHandler() {
+    		@Override
+    		public void node(int id, RouteNodeType type, String direction, int capacity, int xlow, int ylow, int xhigh, int yhigh, String side, int ptc, float r, float c, int segID) {
+    			ResourceGraph.this.indexStart = Math.max(ResourceGraph.this.indexStart, id);
+    			int nodeIndex = ResourceGraph.this.addParsedNode(type, direction, capacity, xlow, xhigh, ylow, yhigh, ptc, r, c, segID, 0, chanxData, chanyData);
+    			assert nodeIndex < 0 || nodeIndex == id;
+    			if(nodeIndex >= 0 && side != null) {
+    				table.setSide(nodeIndex, side);
+    			}
+    		}
+    	});
+    	System.out.print("\n RR nodes: " + table.numNodes());
     	
-    	for(RouteNode allNode:this.routeNodes) {
-    		RouteNode[] children = allNode.children;
-    		for(int i=0; i< children.length;i++) {
-    			RouteNode child = children[i];
-    			if(child!=null) {
-					writer.write(child.index+";"+ allNode.index +";"+ allNode.getSwitchType(i).index +"\n");
-    				
+    	this.xmlEdgeSource = new int[1024];
+    	this.xmlEdgeSink = new int[1024];
+    	this.xmlEdgeSwitch = new int[1024];
+    	this.numXmlEdges = 0;
+    	this.xmlReader.readEdges(new RRGXmlReader.EdgeHandler() {
+    		@Override
+    		public void edge(int source, int sink, int switchIndex) {
+    			ResourceGraph graph = ResourceGraph.this;
+    			if(graph.numXmlEdges == graph.xmlEdgeSource.length) {
+    				int newLength = 2 * graph.xmlEdgeSource.length;
+    				graph.xmlEdgeSource = Arrays.copyOf(graph.xmlEdgeSource, newLength);
+    				graph.xmlEdgeSink = Arrays.copyOf(graph.xmlEdgeSink, newLength);
+    				graph.xmlEdgeSwitch = Arrays.copyOf(graph.xmlEdgeSwitch, newLength);
     			}
-    			
+    			graph.xmlEdgeSource[graph.numXmlEdges] = source;
+    			graph.xmlEdgeSink[graph.numXmlEdges] = sink;
+    			graph.xmlEdgeSwitch[graph.numXmlEdges] = switchIndex;
+    			graph.numXmlEdges++;
+    			table.setNumChildren(source, table.numChildren(source) + 1);
     		}
+    	});
+    	this.xmlReader.close();
+    	this.xmlReader = null;
+    }
+    
+    private long addXmlEdges() {
+    	for(int edge = 0; edge < this.numXmlEdges; edge++) {
+    		this.edges.addEdge(this.xmlEdgeSource[edge], this.xmlEdgeSink[edge], this.xmlEdgeSwitch[edge]);
     	}
-    	 writer.close();
+    	long numEdges = this.numXmlEdges;
+    	this.xmlEdgeSource = null;
+    	this.xmlEdgeSink = null;
+    	this.xmlEdgeSwitch = null;
+    	this.numXmlEdges = 0;
+    	return numEdges;
     }
     
-    private void processInterposerParentChildEdges() {
-    	//Since I am restricting the number of children from the SLLs, I need to make sure that only I wire type is added from each side
-    	/***********************
-    	 * index    			 Y = 		 0     1 		2       X=
-    	 * TOP	(CHANY,DEC_DIR)				 1L	   2L		6L		0
-    	 * BOTTOM (CHANY,INC_DIR)			 1L	   2L		6L		1
-    	 * LEFT (CHANX,DEC_DIR)				 1L	   2L		6L		2
-    	 * RIGHT (CHANX,INC_DIR)			 1L	   2L		6L		3
-    	 */
-    	
+    /********************
+     * Band streaming
+     ********************/
+    
+    /**
+     * Rewrite the graph with only the interposer band in memory. The band
+     * wires are read into the node table, the SLL wires are added and
+     * matched as usual. The changes are collected in a patch that is
+     * either written or applied to the echo files right away: a line that
+     * does not involve the band is copied as it is, only its node indices
+     * are remapped around the removed nodes.
+     */
+    private void streamBandRewrite() throws IOException, InvalidFileFormatException {
+    	System.out.print("\n Streaming the RRG, only the interposer band is kept");
+    	this.processRRGNodes(true);
+    	this.numBandNodes = this.routeNodeTable.numNodes();
+    	System.out.print("\n Band nodes: " + this.numBandNodes + " of " + (this.indexStart + 1));
+    	this.markInterposerNodes();
+    	this.addInterposerNodes();
+    	this.allReplaceNodes();
     	
-    	// ---------------::Source -------------------> Sink ::---------------->
-    	//--------------------for INC DIR --------------------------------------->
-    	// -------------::Child point ---------------> Parent point ::---------------->
-    	// ---------------::(xlow, ylow)  -------------------> (xhigh, yhigh) ::---------------->
+    	BandChanges changes = this.collectBandChanges();
+    	RRGPatch patch = this.buildPatch(changes);
+    	if(this.writePatch) {
+    		this.writePatchFile(patch);
+    	} else {
+    		File directory = this.RRGFile.getParentFile();
+    		patch.apply(directory, this.outputFile("rrNode_info_"+this.sllRows+"L.echo"), this.outputFile("rrEdge_info_"+this.sllRows+"L.echo"));
+    		System.out.print("\n Nodes removed: " + patch.numRemovedNodes() + ", SLL wires: " + patch.numAddedNodes() + ", edges added: " + patch.numAddedEdges());
+    	}
+    }
+    
+    /**
+     * The index in the node file of a node of the table. In band mode the
+     * SLL wires follow the last node of the file.
+     */
+    private int globalIndex(int node) {
+    	if(this.bandGlobalIndex == null) {
+    		return node;
+    	} else if(node < this.numBandNodes) {
+    		return this.bandGlobalIndex[node];
+    	}
+    	return this.indexStart + 1 + (node - this.numBandNodes);
+    }
+    
+    /**
+     * The changes the SLL wires make to the band, by index in the node file
+     */
+    private class BandChanges {
+    	//Sorted
+    	final int[] removed;
+    	final int[] startNode;
+    	//The SLL wire each start node drives, in the order of startNode
+    	final int[] startInterposer;
     	
-    	//--------------------for DEC DIR --------------------------------------->
-    	// ---------------::(xlow, ylow)  <------------------- (xhigh, yhigh) ::---------------->
-    	// -------------::Parent point <--------------- child point ::---------------->
+    	BandChanges(int[] removed, int[] startNode, int[] startInterposer) {
+    		this.removed = removed;
+    		this.startNode = startNode;
+    		this.startInterposer = startInterposer;
+    	}
     	
-    	long startTime = System.nanoTime();
+    	boolean isRemoved(int node) {
+    		return Arrays.binarySearch(this.removed, node) >= 0;
+    	}
+    	int outputIndex(int node) {
+    		int position = Arrays.binarySearch(this.removed, node);
+    		return node - (position >= 0 ? position : -position - 1);
+    	}
+    	int startPosition(int node) {
+    		return Arrays.binarySearch(this.startNode, node);
+    	}
+    }
+    
+    /**
+     * The same changes processInterposerParentChildEdges and
+     * removeEdgesFromDeletedNodes make to the graph: a start node only
+     * drives its SLL wire, an SLL wire only drives its end node and the
+     * deleted nodes are removed.
+     */
+    private BandChanges collectBandChanges() {
+    	RouteNodeTable table = this.routeNodeTable;
     	
+    	int[] removed = new int[this.routeNodesDeleted.size()];
+    	for(int i = 0; i < removed.length; i++) {
+    		removed[i] = this.globalIndex(this.routeNodesDeleted.get(i).index);
+    	}
+    	Arrays.sort(removed);
     	
-    	for(int xCord = 2; xCord < this.width - 2; xCord++) {
-        	for(int yCord = (this.dieBoundary - this.sllRows + 1); yCord < this.dieBoundary; yCord++) {
-        		int xlow = xCord;
-        		int ylow = yCord;
-        		int yhigh = yCord + this.sllRows - 1;
-        		
-        		//Starting with all INC nodes; 
-        		//The x coordinate will remain same, but we will identify based on ylow
-        		String wireIndex = "INC_" + String.valueOf(xlow) + "_" + String.valueOf(ylow);
-        		SLLRouteNode sllWireData = this.interposerWireNodes.get(wireIndex);
-        		RouteNode startPoint = sllWireData.getSourceReplaceNode();
-        		RouteNode endPoint = sllWireData.getSinkReplaceNode();
-        		RouteNode interposerNode = sllWireData.getInterposerNode();
-        		
-        		this.addInterposerNodeAsChild(interposerNode, startPoint);
-        		this.addInterposerNodeAsParent(interposerNode, endPoint);
-        		
-        		//Now doing the same with DEC nodes, the start of these nodes is at yhigh
-        		wireIndex = "DEC_" + String.valueOf(xlow) + "_" + String.valueOf(yhigh);
-        		sllWireData = this.interposerWireNodes.get(wireIndex);
-        		startPoint = sllWireData.getSourceReplaceNode();
-        		endPoint = sllWireData.getSinkReplaceNode();
-        		interposerNode = sllWireData.getInterposerNode();
-
-        		this.addInterposerNodeAsChild(interposerNode, startPoint);
-        		this.addInterposerNodeAsParent(interposerNode, endPoint);
-        	}	
-        }
+    	int numSlots = 0;
+    	for(SLLWireTable sllWires : this.sllWires) {
+    		numSlots += sllWires.numSlots();
+    	}
+    	long[] starts = new long[numSlots];
+    	int numStarts = 0;
+    	for(SLLWireTable sllWires : this.sllWires) {
+    		for(int slot = 0; slot < sllWires.numSlots(); slot++) {
+    			int startPoint = sllWires.getSourceReplaceNode(slot);
+    			int endPoint = sllWires.getSinkReplaceNode(slot);
+    			int interposerNode = sllWires.getInterposerNode(slot);
+    			if(startPoint == SLLWireTable.NO_NODE || endPoint == SLLWireTable.NO_NODE) {
+    				throw new RuntimeException("No replacement node for the SLL wire at (" + sllWires.column(slot) + "," + sllWires.ylow(slot) + ")");
+    			}
+    			table.setNumChildren(startPoint, table.numChildren(startPoint) + 2);
+    			table.setNumChildren(interposerNode, 1);
+    			starts[numStarts++] = ((long) this.globalIndex(startPoint) << 32) | this.globalIndex(interposerNode);
+    		}
+    	}
+    	Arrays.sort(starts);
+    	int[] startNode = new int[starts.length];
+    	int[] startInterposer = new int[starts.length];
+    	for(int i = 0; i < starts.length; i++) {
+    		startNode[i] = (int) (starts[i] >>> 32);
+    		startInterposer[i] = (int) starts[i];
+    	}
+    	return new BandChanges(removed, startNode, startInterposer);
+    }
+    
+    /**
+     * The changes of the SLL wires as a patch on the node and edge file
+     */
+    private RRGPatch buildPatch(BandChanges changes) {
+    	RouteNodeTable table = this.routeNodeTable;
+    	RRGPatch patch = new RRGPatch(changes.removed, changes.startNode);
+    	StringBuilder line = new StringBuilder();
+    	for(int start = 0; start < changes.startNode.length; start++) {
+    		//The number of children of a start node changes
+    		int node = changes.startNode[start];
+    		if(!changes.isRemoved(node)) {
+    			int local = Arrays.binarySearch(this.bandGlobalIndex, 0, this.numBandNodes, node);
+    			line.setLength(0);
+    			table.appendDetails(local, node, line);
+    			patch.changeNode(node, line.toString());
+    		}
+    	}
+    	for(int node = this.numBandNodes; node < table.numNodes(); node++) {
+    		line.setLength(0);
+    		table.appendDetails(node, this.globalIndex(node), line);
+    		patch.addNode(this.globalIndex(node), line.toString());
+    	}
     	
-
-    	  long endTime   = System.nanoTime();
-    	  long totalTime = endTime - startTime;
-
-  	  System.out.println("\nrouteNodeInterposerDEC took " + (totalTime*1e-9) +"s");
+    	//A start node only drives its SLL wire, an SLL wire only drives its end node
+    	for(int start = 0; start < changes.startNode.length; start++) {
+    		patch.addEdge(changes.startInterposer[start], changes.startNode[start], 5);
+    	}
+    	for(SLLWireTable sllWires : this.sllWires) {
+    		for(int slot = 0; slot < sllWires.numSlots(); slot++) {
+    			int endPoint = sllWires.getSinkReplaceNode(slot);
+    			patch.addEdge(this.globalIndex(endPoint), this.globalIndex(sllWires.getInterposerNode(slot)), this.getDriverSwitch(endPoint));
+    		}
+    	}
+    	return patch;
+    }
+    
+    /**
+     * The patch goes next to the RRG file, it is made against the node and
+     * edge file there
+     */
+    private void writePatchFile(RRGPatch patch) throws IOException {
+    	long[][] keys = this.baseFileKeys();
+    	patch.setBaseKey(keys[0], keys[1]);
+    	File patchFile = this.outputFile("rrg_patch_"+this.sllRows+"L.echo");
+    	patch.write(patchFile);
+    	System.out.print("\n RRG patch " + patchFile + ": " + patch.numRemovedNodes() + " nodes removed, " + patch.numAddedNodes() + " SLL wires, " + patch.numAddedEdges() + " edges added");
+    }
+    
+    /**
+     * The keys of the base node and edge file, the variants of a sweep share
+     * the ones of the base graph
+     */
+    private synchronized long[][] baseFileKeys() throws IOException {
+    	if(this.base != null) {
+    		return this.base.baseFileKeys();
+    	}
+    	if(this.baseFileKeys == null) {
+    		File directory = this.RRGFile.getParentFile();
+    		this.baseFileKeys = new long[][] {
+    			RRGImage.fileKey(EchoFile.find(directory, RRGPatch.NODE_FILE)),
+    			RRGImage.fileKey(EchoFile.find(directory, RRGPatch.EDGE_FILE))
+    		};
+    	}
+    	return this.baseFileKeys;
+    }
+    
+    /********************
+     * Sweep
+     ********************/
+    
+    /**
+     * Generate the RRG of every number of SLL rows in the list from a single
+     * parse of the base graph. The base graph is never changed: a variant
+     * copies the wires of its own interposer bands, makes its changes on
+     * that copy and writes the rest of the graph straight from the base.
+     * The variants run in parallel as long as their estimated memory fits
+     * in the budget, a budget of 0 takes three quarters of the free heap.
+     */
+    public void sweep(List<Integer> sllRowsList, long memoryBudget) {
+    	try {
+    		//Every number of rows is checked before the base graph is parsed
+    		for(int sllRows : sllRowsList) {
+    			if(!this.architecture.hasSLLSegmentInfo(sllRows)) {
+    				throw new IllegalArgumentException("The architecture has no L" + sllRows + "SN segment or seg" + sllRows + "_driverSN switch for " + sllRows + " SLL rows");
+    			}
+    			this.checkBands(sllRows);
+    		}
+    		this.parseBaseGraph();
+    		this.runVariants(new ArrayList<>(new LinkedHashSet<>(sllRowsList)), memoryBudget);
+    	} catch (IOException | InvalidFileFormatException | InterruptedException | IllegalArgumentException error) {
+    		System.err.println("Problem in the SLL sweep: " + error.getMessage());
+    		error.printStackTrace();
+    	} finally {
+    		this.closeImage();
+    	}
+    }
+    
+    /**
+     * The echo files without any SLL wire
+     */
+    private void parseBaseGraph() throws IOException, InvalidFileFormatException {
+		System.out.println("---------------");
+		System.out.println("| Process RRG |");
+		System.out.println("---------------");
+		
+		if(this.readXml) {
+			this.readXmlHeader();
+		} else {
+			this.openImage();
+			this.processIndexList();
+			this.processSwitchList();
+			this.processSegmentList();
+		}
+		
+        if(this.readXml) {
+        	this.readXmlNodes();
+        } else if(this.image != null) {
+        	this.readImageNodes();
+        } else {
+        	this.processRRGNodes(false);
+        }
+        this.numBaseNodes = this.routeNodeTable.numNodes();
+        if(this.imageWriter != null) {
+        	this.routeNodeTable.writeImage(this.imageWriter, this.numBaseNodes);
+        	this.imageWriter.writeInt(this.indexStart);
+        }
+        this.processRRGEdges();
+    }
+    
+    private void runVariants(List<Integer> sllRowsList, long memoryBudget) throws IOException, InvalidFileFormatException, InterruptedException {
+    	if(memoryBudget <= 0) {
+    		Runtime runtime = Runtime.getRuntime();
+    		memoryBudget = (runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory())) / 4 * 3;
+    	}
+    	//The budget is counted in KB
+    	final int budget = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget >> 10));
+    	final Semaphore memory = new Semaphore(budget, true);
     	
+    	ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(this.numThreads, sllRowsList.size())));
+    	try {
+    		List<Future<Void>> results = new ArrayList<>();
+    		for(int sllRows : sllRowsList) {
+    			final ResourceGraph variant = new ResourceGraph(this, sllRows);
+    			variant.numThreads = 1;
+    			final int permits = (int) Math.max(1, Math.min(budget, variant.estimateMemory() >> 10));
+    			System.out.print("\n Variant with " + sllRows + " SLL rows needs about " + permits + " KB");
+    			results.add(pool.submit(new Callable<Void>() {
+    				@Override
+    				public Void call() throws IOException, InvalidFileFormatException, InterruptedException {
+    					memory.acquire(permits);
+    					try {
+    						variant.rewriteFromBase();
+    					} finally {
+    						memory.release(permits);
+    					}
+    					return null;
+    				}
+    			}));
+    		}
+    		for(Future<Void> result : results) {
+    			result.get();
+    		}
+    	} catch(ExecutionException error) {
+    		Throwable cause = error.getCause();
+    		if(cause instanceof InvalidFileFormatException) {
+    			throw (InvalidFileFormatException) cause;
+    		} else if(cause instanceof IOException) {
+    			throw (IOException) cause;
+    		} else if(cause instanceof RuntimeException) {
+    			throw (RuntimeException) cause;
+    		}
+    		throw new RuntimeException(cause);
+    	} finally {
+    		pool.shutdownNow();
+    	}
     }
     
+    /**
+     * A wire is in at most one interposer band, so the bands of the die
+     * boundaries may not overlap
+     */
+    private void checkBands(int sllRows) {
+    	for(int boundary = 1; boundary < this.dieBoundaries.length; boundary++) {
+    		if(this.dieBoundaries[boundary] - this.dieBoundaries[boundary - 1] < 2 * sllRows - 1) {
+    			throw new IllegalArgumentException("The interposer bands of " + this.totDie + " dies with " + sllRows + " SLL rows overlap in a height of " + this.height);
+    		}
+    	}
+    }
+    
+    /**
+     * The memory a variant needs on top of the base graph: its copy of the
+     * wires in its interposer bands and its SLL wires
+     */
+    private long estimateMemory() {
+    	long numNodes = this.interposerBandWires(this.base.routeNodeTable, this.base.getNodeIndex()).length;
+    	for(SLLWireTable sllWires : this.sllWires) {
+    		numNodes += sllWires.numSlots();
+    	}
+    	return numNodes * BYTES_PER_BAND_NODE;
+    }
     
-    private void addInterposerNodeAsParent(RouteNode interposerNode, RouteNode EndNode) {
-    	interposerNode.setNumChildren(1);
+    /**
+     * Add the SLL wires of this number of SLL rows to a copy of the bands of
+     * the base graph and write the graph, as band streaming does with the
+     * echo files
+     */
+    private void rewriteFromBase() throws IOException {
+    	ResourceGraph base = this.base;
+    	this.indexedDataText = base.indexedDataText;
+    	this.lastCostIndex = base.lastCostIndex;
+    	this.lastOrthoCostIndex = base.lastOrthoCostIndex;
+    	this.lastSegIndex = base.lastSegIndex;
+    	this.switchText = base.switchText;
+    	this.numSwitchLines = base.numSwitchLines;
+    	this.segmentText = base.segmentText;
+    	this.lastSegmentID = base.lastSegmentID;
     	
-    	interposerNode.setChild(0, EndNode);
+    	this.indexedDataList = new HashMap<>(base.indexedDataList);
+    	this.baseCostToLength = base.baseCostToLength;
+    	this.costIndexToLength = base.costIndexToLength;
+    	this.addSLLIndexedData();
+    	this.switchTypesList = new ArrayList<>(base.switchTypesList);
+    	this.addSLLSwitch();
+    	this.buildDriverSwitchTable();
+    	this.segmentList = new HashMap<>(base.segmentList);
+    	this.segmentTiming = new HashMap<>(base.segmentTiming);
+    	this.addSLLSegment();
     	
-    	String wireLeng = this.baseCostToLength.get(EndNode.base_cost);
-		String segType = "seg" + (wireLeng) +"_driverSN";
-		RouteSwitch routeSwitch = this.switchTypesList.get(this.lengthToSwitchMap.get(segType)); // this has to be the switch of the child
-		interposerNode.setSwitchType(0, routeSwitch);
-
+    	this.copyBandNodes();
+    	this.markInterposerNodes();
+    	this.addInterposerNodes();
+    	this.allReplaceNodes();
     	
+    	BandChanges changes = this.collectBandChanges();
+    	if(base.writePatch) {
+    		this.writePatchFile(this.buildPatch(changes));
+    	} else {
+    		this.writeVariantNodes(changes);
+    		this.writeVariantEdges(changes);
+    	}
     }
     
-    private void addInterposerNodeAsChild(RouteNode interposerNode, RouteNode startNode) {
-    	List<RouteNode> allParents = this.childToParentMap.get(startNode);
-    	int numChildren = startNode.numChildren + 2;
-    	startNode.setNumChildren(numChildren);
+    /**
+     * The wires of the interposer bands of the base graph, as
+     * processRRGNodes(true) reads them from the node file
+     */
+    private void copyBandNodes() {
+    	RouteNodeTable baseTable = this.base.routeNodeTable;
+    	RouteNodeTable table = this.routeNodeTable;
+    	this.indexStart = this.base.indexStart;
+    	this.bandGlobalIndex = this.interposerBandWires(this.base.routeNodeTable, this.base.getNodeIndex());
+    	for(int node : this.bandGlobalIndex) {
+    		int xlow = baseTable.xlow(node), ylow = baseTable.ylow(node), yhigh = baseTable.yhigh(node);
+    		table.addNode(baseTable.type(node), xlow, baseTable.xhigh(node), ylow, yhigh, baseTable.ptc(node), baseTable.capacity(node), baseTable.r(node), baseTable.c(node), baseTable.indexedData(node), baseTable.direction(node), baseTable.numChildren(node), baseTable.segID(node));
+    	}
+    	this.numBandNodes = table.numNodes();
+    	System.out.print("\n Band nodes: " + this.numBandNodes + " of " + baseTable.numNodes());
+    }
+    
+    private void writeVariantNodes(BandChanges changes) throws IOException {
+    	File rrNodeFile = this.outputFile("rrNode_info_"+this.sllRows+"L.echo");
+    	BufferedWriter writer = EchoFile.createWriter(rrNodeFile);
     	
-    	int index = 0;
-//
-    	for(int i = 0; i < startNode.children.length; i ++) {
-    		if(startNode.children[i] == null) {
-    			index = i;
+    	RouteNodeTable baseTable = this.base.routeNodeTable;
+    	RouteNodeTable table = this.routeNodeTable;
+    	StringBuilder line = new StringBuilder();
+    	for(int node = 0; node < baseTable.numNodes(); node++) {
+    		if(changes.isRemoved(node)) {
+    			continue;
     		}
+    		line.setLength(0);
+    		if(changes.startPosition(node) >= 0) {
+    			//The number of children of a start node changes
+    			int local = Arrays.binarySearch(this.bandGlobalIndex, 0, this.numBandNodes, node);
+    			table.appendDetails(local, changes.outputIndex(node), line);
+    		} else {
+    			baseTable.appendDetails(node, changes.outputIndex(node), line);
+    		}
+    		line.append('\n');
+    		writer.append(line);
     	}
-    	if(index == numChildren) {
-    		System.out.print("\nError!!");
+    	for(int node = this.numBandNodes; node < table.numNodes(); node++) {
+    		line.setLength(0);
+    		table.appendDetails(node, changes.outputIndex(this.globalIndex(node)), line);
+    		line.append('\n');
+    		writer.append(line);
     	}
-    	startNode.setChild(index, interposerNode);
+    	writer.close();
+    }
+    
+    private void writeVariantEdges(BandChanges changes) throws IOException {
+    	File rrEdgeFile = this.outputFile("rrEdge_info_"+this.sllRows+"L.echo");
+    	BufferedWriter writer = EchoFile.createWriter(rrEdgeFile);
     	
-		RouteSwitch routeSwitch = this.switchTypesList.get(5);
-		startNode.setSwitchType(index, routeSwitch); 
-		
+    	RouteEdgeStore edges = this.base.edges;
+    	int numNodes = this.base.routeNodeTable.numNodes();
+    	int droppedEdges = 0;
+    	for(int node = 0; node < numNodes; node++) {
+    		if(changes.isRemoved(node)) {
+    			continue;
+    		}
+    		int start = changes.startPosition(node);
+    		if(start >= 0) {
+    			//A start node only drives its SLL wire
+    			writer.write(changes.outputIndex(changes.startInterposer[start]) + ";" + changes.outputIndex(node) + ";" + 5 + "\n");
+    			continue;
+    		}
+    		int end = edges.rowEnd(node);
+    		for(int slot = edges.rowStart(node); slot < end; slot++) {
+    			int child = edges.child(slot);
+    			if(child != RouteEdgeStore.NO_CHILD) {
+    				if(changes.isRemoved(child)) {
+    					droppedEdges++;
+    				} else {
+    					writer.write(changes.outputIndex(child) + ";" + changes.outputIndex(node) + ";" + edges.switchIndex(slot) + "\n");
+    				}
+    			}
+    		}
+    	}
+    	for(SLLWireTable sllWires : this.sllWires) {
+    		for(int slot = 0; slot < sllWires.numSlots(); slot++) {
+    			int interposerNode = this.globalIndex(sllWires.getInterposerNode(slot));
+    			int endPoint = sllWires.getSinkReplaceNode(slot);
+    			int endNode = this.globalIndex(endPoint);
+    			if(changes.isRemoved(endNode)) {
+    				droppedEdges++;
+    			} else {
+    				writer.write(changes.outputIndex(endNode) + ";" + changes.outputIndex(interposerNode) + ";" + this.getDriverSwitch(endPoint) + "\n");
+    			}
+    		}
+    	}
+    	writer.close();
+    	System.out.print("\n" + this.sllRows + " SLL rows, edges to removed nodes left out: " + droppedEdges);
+    }
+    
+    /**
+     * The image of the base graph is kept next to the RRG file. It is used
+     * if it was made from the echo files that are there now, otherwise a new
+     * image is written while the echo files are parsed.
+     */
+    private void openImage() throws IOException {
+    	if(!this.useImage) {
+    		return;
+    	}
+    	File directory = this.RRGFile.getAbsoluteFile().getParentFile();
+    	File imageFile = new File(directory, "rrg_image.bin");
+    	long[] key = RRGImage.contentKey(directory);
+    	this.image = RRGImage.open(imageFile, key);
+    	if(this.image != null) {
+    		System.out.print("\n   Read RRG image " + imageFile);
+    	} else {
+    		System.out.print("\n   Write RRG image " + imageFile);
+    		this.imageWriter = new RRGImage.Writer(imageFile, key, directory);
+    	}
+    }
+    
+    /**
+     * Releases the image after a failed parse, an unfinished image is removed
+     */
+    private void closeImage() {
+    	try {
+    		if(this.image != null) {
+    			this.image.close();
+    			this.image = null;
+    		}
+    		if(this.imageWriter != null) {
+    			this.imageWriter.close();
+    			this.imageWriter = null;
+    		}
+    	} catch(IOException error) {
+    		System.err.println("Problem in closing the RRG image: " + error.getMessage());
+    	}
+    }
+    
+    /**
+     * The echo files that are parsed as text come from the image if there is one
+     */
+    private EchoTokenizer openEchoFile(String fileName, byte delimiter) throws IOException {
+    	if(this.image != null) {
+    		return this.image.textFile(new File(fileName).getName(), delimiter);
+    	}
+    	return new EchoTokenizer(EchoFile.find(new File(fileName)), delimiter);
+    }
+    
+    /**
+     * An output file next to the RRG file, compressed if the graph this
+     * variant is made from compresses its output
+     */
+    private File outputFile(String name) {
+    	boolean compress = this.base != null ? this.base.compressOutput : this.compressOutput;
+    	return EchoFile.output(this.RRGFile.getParentFile(), name, compress);
+    }
+    
+    private void readImageNodes() throws IOException {
+    	System.out.print("\n Reading the RRGNodes from the image");
+    	this.routeNodeTable.readImage(this.image, this.indexedDataList.values());
+    	this.indexStart = this.image.readInt();
+    	System.out.print("\n RR nodes: " + this.routeNodeTable.numNodes());
+    }
+    
+    /**
+     * The edges of the base nodes in file order, as a row length per node
+     * followed by the children and the switches of all rows
+     */
+    private void writeImageEdges() throws IOException {
+    	RouteEdgeStore edges = this.edges;
+    	RRGImage.Writer image = this.imageWriter;
+    	int numRows = this.numBaseNodes;
     	
-		
+    	int[] rowLength = new int[numRows];
+    	int numEdges = 0;
+    	for(int row = 0; row < numRows; row++) {
+    		rowLength[row] = edges.numChildren(row);
+    		numEdges += rowLength[row];
+    	}
+    	int[] child = new int[numEdges];
+    	int[] switchIndex = new int[numEdges];
+    	int edge = 0;
+    	for(int row = 0; row < numRows; row++) {
+    		for(int slot = edges.rowStart(row); slot < edges.rowEnd(row); slot++) {
+    			if(edges.child(slot) != RouteEdgeStore.NO_CHILD) {
+    				child[edge] = edges.child(slot);
+    				switchIndex[edge] = edges.switchIndex(slot);
+    				edge++;
+    			}
+    		}
+    	}
+    	
+    	image.writeInt(numRows);
+    	image.writeInts(rowLength, numRows);
+    	image.writeInt(numEdges);
+    	image.writeInts(child, numEdges);
+    	image.writeInts(switchIndex, numEdges);
+    }
+    
+    private long readImageEdges() throws IOException {
+    	RRGImage image = this.image;
+    	int numRows = image.readInt();
+    	int[] rowLength = image.readInts(numRows);
+    	int numEdges = image.readInt();
+    	int[] child = image.readInts(numEdges);
+    	int[] switchIndex = image.readInts(numEdges);
+    	
+    	this.edges.fillRows(numRows, rowLength, child, switchIndex);
+    	return numEdges;
+    }
+    
+    /**
+     * The edge store reserves numChildren slots for every node read from the
+     * node file and one slot for every SLL wire, which only drives its sink
+     * replacement node.
+     */
+    private void buildEdgeStore() {
+    	RouteNodeTable table = this.routeNodeTable;
+    	int numRows = table.numNodes();
+    	
+    	int[] rowCapacity = new int[numRows];
+    	for(int i = 0; i < numRows; i++) {
+    		rowCapacity[i] = table.hasFlag(i, RouteNodeTable.SLL_WIRE) ? 1 : table.numChildren(i);
+    	}
+    	this.edges = new RouteEdgeStore(rowCapacity, numRows);
+    }
+    
+    private void processInterposerEdges() {
+    	System.out.print("\nAdding interposer Edges");
+    	this.processInterposerParentChildEdges();
+    	this.removeEdgesFromDeletedNodes();
     	
     }
-    private void processEdgesToInterposer(RouteNode interposerNode, RouteNode startNode) {
-    	//Here the interposer will be the child. We need to get all the parent edges to the source node and replace the source node with interposer node for these edges.
-    	List<RouteNode> allParents = this.childToParentMap.get(startNode);
-    	for(RouteNode parentNode: allParents) {
-    		if(parentNode.isWire) {
-    			RouteNode[] childofParent = parentNode.children;
-    			for(int i = 0; i < childofParent.length; i++) {
-    				RouteNode origChild = childofParent[i];
-    				if(origChild != null) {
-    					if(origChild == startNode) {
-    						parentNode.removeChild(i);
-    						parentNode.setNewChild(i, interposerNode);
-    						RouteSwitch routeSwitch = this.switchTypesList.get(5);
-    						parentNode.setSwitchType(i, routeSwitch); 
+    
+    private void removeEdgesFromDeletedNodes() {
+    	long startTime = System.nanoTime();
+   	
+    	
+
+    	long endTime   = System.nanoTime();
+    	long totalTime = endTime - startTime;
+    	System.out.println("\nremove edges from deleted first nodes took " + (totalTime*1e-9) +"s");
+    	startTime = System.nanoTime();
+    	for(RouteNode deletedNode: this.routeNodesDeleted) {
+    		this.removeRouteNode(deletedNode);
+    	}
+    	//The written graph leaves out the removed nodes and keeps the indices contiguous
+    	this.outputIndex = this.routeNodeTable.compactionRemap();
+    	endTime   = System.nanoTime();
+    	totalTime = endTime - startTime;
+  	  System.out.println("\nremove edges from deleted nodes took " + (totalTime*1e-9) +"s");
+    }
+    
+    
+    private void writeModifiedEdges(ExecutorService pool) throws IOException, InterruptedException {
+    	File rrEdgeFile = this.outputFile("rrEdge_info_"+this.sllRows+"L.echo");
+    	final int[] outputIndex = this.outputIndex;
+    	final RouteEdgeStore edges = this.edges;
+    	final AtomicLong droppedEdges = new AtomicLong();
+    	RRGFileWriter writer = new RRGFileWriter(rrEdgeFile, this.routeNodeTable.numNodes(), NODES_PER_CHUNK, new RRGFileWriter.ChunkFormat() {
+    		@Override
+    		public void format(int first, int last, RRGFileWriter.LineBuffer out) {
+    			int dropped = 0;
+    			for(int node = first; node < last; node++) {
+    				if(outputIndex[node] < 0) {
+    					continue;
+    				}
+    				int end = edges.rowEnd(node);
+    				for(int slot = edges.rowStart(node); slot < end; slot++) {
+    					int child = edges.child(slot);
+    					if(child != RouteEdgeStore.NO_CHILD) {
+    						//Edges to removed nodes are left out
+    						if(outputIndex[child] < 0) {
+    							dropped++;
+    						} else {
+    							out.appendInt(outputIndex[child]);
+    							out.append(';');
+    							out.appendInt(outputIndex[node]);
+    							out.append(';');
+    							out.appendInt(edges.switchIndex(slot));
+    							out.append('\n');
+    						}
     					}
     				}
     			}
-    		}else {
-    			RouteNode[] childofParent = parentNode.children;
-    			for(int i = 0; i < childofParent.length; i++) {
-    				RouteNode origChild = childofParent[i];
-    				if(origChild != null) {
-    					parentNode.removeChild(i);
-						parentNode.setNewChild(i, interposerNode);
-						RouteSwitch routeSwitch = this.switchTypesList.get(5);
-						parentNode.setSwitchType(i, routeSwitch); 
+    			droppedEdges.addAndGet(dropped);
+    		}
+    	});
+    	writer.write(pool, CHUNK_WINDOW);
+    	System.out.print("\nEdges to removed nodes left out: " + droppedEdges.get());
+    }
+    
+    /**
+     * The modified graph as an rr_graph.xml for VPR's --read_rr_graph, with
+     * the node ids of the echo files. The tool_version is the one of the
+     * rr_graph.xml that was read, the echo files do not have it.
+     */
+    private void writeRRGXml() throws IOException {
+    	File xmlFile = this.outputFile("rr_graph_"+this.sllRows+"L.xml");
+    	System.out.print("\n Writing " + xmlFile);
+    	RouteNodeTable table = this.routeNodeTable;
+    	RouteEdgeStore edges = this.edges;
+    	int[] outputIndex = this.outputIndex;
+    	int numNodes = table.numNodes();
+    	
+    	//The tracks of a channel are numbered by ptc
+    	int[] xList = new int[this.height];
+    	int[] yList = new int[this.width];
+    	for(int node = 0; node < numNodes; node++) {
+    		if(outputIndex[node] < 0) {
+    			continue;
+    		}
+    		if(table.type(node) == RouteNodeType.CHANX) {
+    			xList[table.ylow(node)] = Math.max(xList[table.ylow(node)], table.ptc(node) + 1);
+    		} else if(table.type(node) == RouteNodeType.CHANY) {
+    			yList[table.xlow(node)] = Math.max(yList[table.xlow(node)], table.ptc(node) + 1);
+    		}
+    	}
+    	
+    	RRGXmlWriter writer = new RRGXmlWriter(xmlFile, this.xmlToolVersion, this.totDie + " dies with " + this.sllRows + " SLL rows");
+    	try {
+    		writer.writeChannels(xList, yList);
+    		writer.writeSwitches(this.switchTypesList);
+    		writer.writeSegments(this.segmentList, this.segmentTiming);
+    		writer.writeBlockTypes(this.blockTypeNodes.values());
+    		
+    		writer.startSection("grid");
+    		BlockGrid grid = this.blockGrid();
+    		for(int x = 0; x < this.width; x++) {
+    			for(int y = 0; y < this.height; y++) {
+    				writer.writeGridLocation(x, y, grid.blockTypeID[x][y], grid.widthOffset[x][y], grid.heightOffset[x][y]);
+    			}
+    		}
+    		writer.endSection();
+    		
+    		writer.startSection("rr_nodes");
+    		for(int node = 0; node < numNodes; node++) {
+    			if(outputIndex[node] >= 0) {
+    				writer.writeNode(table, node, outputIndex[node]);
+    			}
+    		}
+    		writer.endSection();
+    		
+    		writer.startSection("rr_edges");
+    		for(int node = 0; node < numNodes; node++) {
+    			if(outputIndex[node] < 0) {
+    				continue;
+    			}
+    			int end = edges.rowEnd(node);
+    			for(int slot = edges.rowStart(node); slot < end; slot++) {
+    				int child = edges.child(slot);
+    				if(child != RouteEdgeStore.NO_CHILD && outputIndex[child] >= 0) {
+    					writer.writeEdge(outputIndex[node], outputIndex[child], edges.switchIndex(slot));
+    				}
+    			}
+    		}
+    		writer.endSection();
+    	} finally {
+    		writer.close();
+    	}
+    }
+    
+    /**
+     * The block type of every grid location and the offset of the location
+     * in its block, as the grid section of rr_graph.xml has them
+     */
+    private static class BlockGrid {
+    	final int[][] blockTypeID, widthOffset, heightOffset;
+    	
+    	BlockGrid(int width, int height, int emptyID) {
+    		this.blockTypeID = new int[width][height];
+    		this.widthOffset = new int[width][height];
+    		this.heightOffset = new int[width][height];
+    		for(int[] column : this.blockTypeID) {
+    			Arrays.fill(column, emptyID);
+    		}
+    	}
+    }
+    private BlockGrid blockGrid() {
+    	BlockTypeRRG empty = this.blockTypeNodes.get("EMPTY");
+    	BlockGrid grid = new BlockGrid(this.width, this.height, empty == null ? 0 : empty.getBlockID());
+    	for(int x = 0; x < this.width; x++) {
+    		for(int y = 0; y < this.height; y++) {
+    			Site site = this.siteArray[x][y];
+    			if(site == null) {
+    				continue;
+    			}
+    			String name = site.getblockType().getName();
+    			BlockTypeRRG blockType = this.blockTypeNodes.get(name);
+    			if(blockType == null) {
+    				throw new RuntimeException("The block type " + name + " at (" + x + "," + y + ") is not in the RRG");
+    			}
+    			for(int dx = 0; dx < blockType.getWidth() && x + dx < this.width; dx++) {
+    				for(int dy = 0; dy < site.getHeigth() && y + dy < this.height; dy++) {
+    					grid.blockTypeID[x + dx][y + dy] = blockType.getBlockID();
+    					grid.widthOffset[x + dx][y + dy] = dx;
+    					grid.heightOffset[x + dx][y + dy] = dy;
     				}
     			}
     		}
     	}
-		//Need to remove the children of this node.
-		
-		for(int i = 0; i < startNode.numChildren; i++) {
-			if(startNode.children[i] != null) {
-				startNode.removeChild(i);
-			}
-			
-		}
-		
-		this.routeNodesDeleted.add(startNode);
-
+    	return grid;
+    }
+    
+    /**
+     * The echo files do not have the side of a pin, which rr_graph.xml
+     * needs. VPR makes a pin node for every side a pin is on and only
+     * connects it to the channel on that side, so the side follows from the
+     * wires of the pin. A pin without wires gets the side of the pin with
+     * the same ptc at the same place in another block of its type. A pin of
+     * which the side does not follow from either is an error.
+     */
+    private void derivePinSides() {
+    	RouteNodeTable table = this.routeNodeTable;
+    	RouteEdgeStore edges = this.edges;
+    	int numNodes = table.numNodes();
+    	
+    	int fromWires = 0;
+    	for(int node = 0; node < numNodes; node++) {
+    		boolean isOpin = table.type(node) == RouteNodeType.OPIN;
+    		boolean isWire = table.isWire(node);
+    		if(!isOpin && !isWire) {
+    			continue;
+    		}
+    		int end = edges.rowEnd(node);
+    		for(int slot = edges.rowStart(node); slot < end; slot++) {
+    			int child = edges.child(slot);
+    			int pin, wire;
+    			if(child == RouteEdgeStore.NO_CHILD) {
+    				continue;
+    			} else if(isOpin && table.isWire(child)) {
+    				pin = node;
+    				wire = child;
+    			} else if(isWire && table.type(child) == RouteNodeType.IPIN) {
+    				pin = child;
+    				wire = node;
+    			} else {
+    				continue;
+    			}
+    			if(table.sideCode(pin) < 0) {
+    				int side = pinSide(table, pin, wire);
+    				if(side >= 0) {
+    					table.setSide(pin, RouteNodeTable.SIDES[side]);
+    					fromWires++;
+    				}
+    			}
+    		}
+    	}
+    	
+    	BlockGrid grid = this.blockGrid();
+    	Map<Long, Byte> blockPinSides = new HashMap<>();
+    	for(int node = 0; node < numNodes; node++) {
+    		if(isPin(table, node) && table.sideCode(node) >= 0) {
+    			long key = blockPinKey(grid, table, node);
+    			if(key >= 0) {
+    				blockPinSides.putIfAbsent(key, table.sideCode(node));
+    			}
+    		}
+    	}
+    	int fromBlocks = 0;
+    	for(int node = 0; node < numNodes; node++) {
+    		if(isPin(table, node) && table.sideCode(node) < 0) {
+    			Byte side = blockPinSides.get(blockPinKey(grid, table, node));
+    			if(side == null) {
+    				throw new RuntimeException("The side of " + table.type(node) + " " + node + " with ptc " + table.ptc(node) + " at (" + table.xlow(node) + "," + table.ylow(node) + ") does not follow from the RRG, rr_graph.xml needs it");
+    			}
+    			table.setSide(node, RouteNodeTable.SIDES[side]);
+    			fromBlocks++;
+    		}
+    	}
+    	System.out.print("\n Pin sides: " + fromWires + " from the wires, " + fromBlocks + " from the pins of the same block type");
+    }
+    /**
+     * The echo files do not have the pin classes, which rr_graph.xml needs.
+     * The ptc of a SOURCE or SINK is the index of its class in the block
+     * type, so a pin is in the class of the SOURCE that drives it or of the
+     * SINK it drives. A pin that is given two classes is an error, the
+     * writer refuses a block type of which a pin has no class.
+     */
+    private void derivePinClasses() {
+    	RouteNodeTable table = this.routeNodeTable;
+    	RouteEdgeStore edges = this.edges;
+    	int numNodes = table.numNodes();
     	
+    	BlockGrid grid = this.blockGrid();
+    	Map<Integer, BlockTypeRRG> blockTypes = new HashMap<>();
+    	for(BlockTypeRRG blockType : this.blockTypeNodes.values()) {
+    		blockTypes.put(blockType.getBlockID(), blockType);
+    	}
+    	
+    	int numPins = 0;
+    	for(int node = 0; node < numNodes; node++) {
+    		RouteNodeType type = table.type(node);
+    		if(type != RouteNodeType.SOURCE && type != RouteNodeType.IPIN) {
+    			continue;
+    		}
+    		int end = edges.rowEnd(node);
+    		for(int slot = edges.rowStart(node); slot < end; slot++) {
+    			int child = edges.child(slot);
+    			int pin, classNode;
+    			if(child == RouteEdgeStore.NO_CHILD) {
+    				continue;
+    			} else if(type == RouteNodeType.SOURCE && table.type(child) == RouteNodeType.OPIN) {
+    				pin = child;
+    				classNode = node;
+    			} else if(type == RouteNodeType.IPIN && table.type(child) == RouteNodeType.SINK) {
+    				pin = node;
+    				classNode = child;
+    			} else {
+    				continue;
+    			}
+    			int x = table.xlow(classNode), y = table.ylow(classNode);
+    			if(x >= this.width || y >= this.height) {
+    				continue;
+    			}
+    			BlockTypeRRG blockType = blockTypes.get(grid.blockTypeID[x][y]);
+    			if(blockType == null) {
+    				continue;
+    			}
+    			if(!blockType.setClassIndex(table.ptc(pin), table.ptc(classNode))) {
+    				throw new RuntimeException("The " + table.type(pin) + " with ptc " + table.ptc(pin) + " of block type " + blockType.getBlockType() + " is in more than one pin class");
+    			}
+    			numPins++;
+    		}
+    	}
+    	System.out.print("\n Pin classes: " + numPins + " pins with the class of their " + RouteNodeType.SOURCE + " or " + RouteNodeType.SINK);
+    }
+    private static boolean isPin(RouteNodeTable table, int node) {
+    	return table.type(node) == RouteNodeType.IPIN || table.type(node) == RouteNodeType.OPIN;
+    }
+    /**
+     * The position in RouteNodeTable.SIDES of the side of the pin that faces
+     * the channel of the wire, -1 if the wire does not pass the pin. The
+     * horizontal channel y is above the tiles of row y, the vertical
+     * channel x right of the tiles of column x.
+     */
+    private static int pinSide(RouteNodeTable table, int pin, int wire) {
+    	if(table.type(wire) == RouteNodeType.CHANX && table.xlow(wire) <= table.xhigh(pin) && table.xlow(pin) <= table.xhigh(wire)) {
+    		if(table.ylow(wire) == table.yhigh(pin)) {
+    			return 0; //TOP
+    		} else if(table.ylow(wire) == table.ylow(pin) - 1) {
+    			return 2; //BOTTOM
+    		}
+    	} else if(table.type(wire) == RouteNodeType.CHANY && table.ylow(wire) <= table.yhigh(pin) && table.ylow(pin) <= table.yhigh(wire)) {
+    		if(table.xlow(wire) == table.xhigh(pin)) {
+    			return 1; //RIGHT
+    		} else if(table.xlow(wire) == table.xlow(pin) - 1) {
+    			return 3; //LEFT
+    		}
+    	}
+    	return -1;
+    }
+    /**
+     * The pins with the same key are the same pin of a block type, a pin
+     * outside the grid has key -1
+     */
+    private static long blockPinKey(BlockGrid grid, RouteNodeTable table, int pin) {
+    	int x = table.xlow(pin), y = table.ylow(pin);
+    	if(x >= grid.blockTypeID.length || y >= grid.blockTypeID[x].length) {
+    		return -1;
+    	}
+    	long key = grid.blockTypeID[x][y];
+    	key = (key << 12) | grid.widthOffset[x][y];
+    	key = (key << 12) | grid.heightOffset[x][y];
+    	key = (key << 1) | (table.type(pin) == RouteNodeType.IPIN ? 1 : 0);
+    	return (key << 16) | (table.ptc(pin) & 0xFFFF);
     }
     
-    private void processEdgesFromInterposer(RouteNode interposerNode, RouteNode endNode) {
-    	//Here the interposer behaves as the parent, we need to get the children of sink node and replace them as the children of the interposer.
-    	interposerNode.setNumChildren(endNode.numChildren);
-		
-		RouteNode [] children = endNode.getChildren();
-		for(int i = 0; i < endNode.numChildren; i++) {
-				int index = interposerNode.currentIndex;
-				RouteNode childNode = children[i];
-    			if(childNode != null && childNode.isWire && !childNode.isSLLWire) {
-    				interposerNode.setChild(index, childNode);}
-        					String wireLeng = this.baseCostToLength.get(childNode.base_cost);
-        					String segType = "seg" + (wireLeng) +"_driverSN";
-        					RouteSwitch routeSwitch = this.switchTypesList.get(this.lengthToSwitchMap.get(segType)); // this has to be the switch of the child
-        					interposerNode.setSwitchType(index, routeSwitch);
-		}
+    private void processInterposerParentChildEdges() {
+    	//Since I am restricting the number of children from the SLLs, I need to make sure that only I wire type is added from each side
+    	/***********************
+    	 * index    			 Y = 		 0     1 		2       X=
+    	 * TOP	(CHANY,DEC_DIR)				 1L	   2L		6L		0
+    	 * BOTTOM (CHANY,INC_DIR)			 1L	   2L		6L		1
+    	 * LEFT (CHANX,DEC_DIR)				 1L	   2L		6L		2
+    	 * RIGHT (CHANX,INC_DIR)			 1L	   2L		6L		3
+    	 */
+    	
+    	
+    	// ---------------::Source -------------------> Sink ::---------------->
+    	//--------------------for INC DIR --------------------------------------->
+    	// -------------::Child point ---------------> Parent point ::---------------->
+    	// ---------------::(xlow, ylow)  -------------------> (xhigh, yhigh) ::---------------->
+    	
+    	//--------------------for DEC DIR --------------------------------------->
+    	// ---------------::(xlow, ylow)  <------------------- (xhigh, yhigh) ::---------------->
+    	// -------------::Parent point <--------------- child point ::---------------->
+    	
+    	long startTime = System.nanoTime();
+    	
+    	
+    	//The slots run over the columns and rows of the band, the INC wire before the DEC wire
+    	//The start of the INC wires is at ylow, the start of the DEC wires at yhigh
+    	//Edges to rows without a free slot grow the edge store, they are added after the columns
+    	final int numColumns = this.sllWires.length == 0 ? 0 : this.sllWires[0].numColumns();
+    	final List<List<Integer>> deferred = new ArrayList<>();
+    	for(int bandColumn = 0; bandColumn < this.sllWires.length * numColumns; bandColumn++) {
+    		deferred.add(new ArrayList<Integer>());
+    	}
+    	this.forEachColumn(new ColumnWork() {
+    		@Override
+    		public void column(SLLWireTable sllWires, int band, int column) {
+    			List<Integer> deferredSlots = deferred.get(band * numColumns + column - sllWires.firstColumn());
+    			for(int slot = sllWires.firstSlot(column); slot < sllWires.firstSlot(column + 1); slot++) {
+    				int startPoint = sllWires.getSourceReplaceNode(slot);
+    				int endPoint = sllWires.getSinkReplaceNode(slot);
+    				int interposerNode = sllWires.getInterposerNode(slot);
+    				if(startPoint == SLLWireTable.NO_NODE || endPoint == SLLWireTable.NO_NODE) {
+    					throw new RuntimeException("No replacement node for the SLL wire at (" + sllWires.column(slot) + "," + sllWires.ylow(slot) + ")");
+    				}
+    				
+    				if(!ResourceGraph.this.addInterposerNodeAsChild(interposerNode, startPoint)) {
+    					deferredSlots.add(slot << 1);
+    				}
+    				if(!ResourceGraph.this.addInterposerNodeAsParent(interposerNode, endPoint)) {
+    					deferredSlots.add((slot << 1) | 1);
+    				}
+    			}
+    		}
+    	});
+    	for(int bandColumn = 0; bandColumn < deferred.size(); bandColumn++) {
+    		SLLWireTable sllWires = this.sllWires[bandColumn / numColumns];
+    		for(int code : deferred.get(bandColumn)) {
+    			int slot = code >> 1;
+    			int interposerNode = sllWires.getInterposerNode(slot);
+    			if((code & 1) == 0) {
+    				this.edges.addEdge(sllWires.getSourceReplaceNode(slot), interposerNode, 5);
+    			} else {
+    				int endPoint = sllWires.getSinkReplaceNode(slot);
+    				this.edges.addEdge(interposerNode, endPoint, this.getDriverSwitch(endPoint));
+    			}
+    		}
+    	}
+    	
 
-		this.routeNodesDeleted.add(endNode);
-    }
- 					
+    	  long endTime   = System.nanoTime();
+    	  long totalTime = endTime - startTime;
 
-    private void processIndexList() throws IOException {
-    	BufferedReader reader = null;
+  	  System.out.println("\nrouteNodeInterposerDEC took " + (totalTime*1e-9) +"s");
+    	
+    }
+    
+    
+    /**
+     * The interposer node only drives the end node. Returns false if the
+     * edge still has to be added because the row has no slot.
+     */
+    private boolean addInterposerNodeAsParent(int interposerNode, int endNode) {
+    	this.routeNodeTable.setNumChildren(interposerNode, 1);
+    	
+		int switchIndex = this.getDriverSwitch(endNode); // this has to be the switch of the child
+		return this.edges.replaceRow(interposerNode, endNode, switchIndex);
+    }
+    
+    private boolean addInterposerNodeAsChild(int interposerNode, int startNode) {
+    	//The start node only drives the interposer node from now on
+    	int numChildren = this.routeNodeTable.numChildren(startNode) + 2;
+    	this.routeNodeTable.setNumChildren(startNode, numChildren);
+    	
+    	return this.edges.replaceRow(startNode, interposerNode, 5);
+    }
+    private void processIndexList() throws IOException, InvalidFileFormatException {
     	this.indexedDataList = new HashMap<String, IndexedData>();
 		String rrgIndexFileName = this.RRGFile.getAbsolutePath();
 		System.out.print("RR file path is " + rrgIndexFileName);
@@ -1042,87 +2265,109 @@ public class ResourceGraph {
             newFileName = directoryPath + "rr_indexed_data.echo";
 
         } 
-		reader = new BufferedReader(new FileReader(newFileName));
+		EchoTokenizer tokenizer = this.openEchoFile(newFileName, EchoTokenizer.WHITESPACE);
 		StringBuilder contentBuilder = new StringBuilder();
 		System.out.println("\n   Read " + newFileName);
-        String line;
         Float baseCostDefault = (float) 0.0;
         int index = 0;
-        line = reader.readLine();
-        String sllInfo ="";
+        tokenizer.nextLine();
         int orthoCostIndex = -1, segIndex = 0;
-        if(line.contains("Delay normalization factor:")) {
+        if(tokenizer.line().contains("Delay normalization factor:")) {
 
-    		String[] header = line.split(":");
+    		String[] header = tokenizer.line().split(":");
     		baseCostDefault = Float.parseFloat(header[1]);
 
     	}
         this.baseCostToLength = new HashMap<Float, String>();
         // Process each line of the file
-        while ((line = reader.readLine()) != null) {
-        	contentBuilder.append(line).append(System.lineSeparator());
-        	while(line.contains("  ")) line = line.replace("  ", " ");
-            String[] tokens = line.split("\\s");
+        while (tokenizer.nextLine()) {
+        	tokenizer.appendLine(contentBuilder);
+        	contentBuilder.append(System.lineSeparator());
             float baseCost, invLength, tLinear,tQuadratic, cLoad = 0;
             String segLength;
-            if(!tokens[0].equals("Cost")) {
-                if (tokens.length >= 8) {
-                    index = Integer.parseInt(tokens[0]);
-                    String type = tokens[1];
+            if(!tokenizer.nextFieldEquals("Cost")) {
+                if (tokenizer.countFields() >= 8) {
+                    index = tokenizer.nextInt();
+                    String type = tokenizer.nextString();
                     if(type.contains("CHAN")) {
-                    	type = tokens[1] +"_"+ tokens[2];
-                    	segLength = tokens[2].replaceAll("\\D+", "");
+                    	String segName = tokenizer.nextString();
+                    	type = type +"_"+ segName;
+                    	segLength = segName.replaceAll("\\D+", "");
                     	System.out.print("\nThe length is " + segLength);
-                    	baseCost = Float.valueOf(tokens[3]);
+                    	baseCost = tokenizer.nextFloat();
                     	this.baseCostToLength.put(baseCost, segLength);
-                        orthoCostIndex = Integer.parseInt(tokens[4]);
-                        segIndex = Integer.parseInt(tokens[5]);
-                        invLength = 0;
-                          if(tokens[6].equals("nan")) {
-                        	invLength = 0;
-                        }else {
-                        	invLength = Float.valueOf(tokens[6]);
-                        }
-                        
-                        tLinear = Float.valueOf(tokens[7]);
-                        tQuadratic = Float.valueOf(tokens[8]);
-                        cLoad = Float.valueOf(tokens[9]);
                     }else {
-                        baseCost = Float.valueOf(tokens[2]);
-                        orthoCostIndex = Integer.parseInt(tokens[3]);
-                        segIndex = Integer.parseInt(tokens[4]);
-                        invLength = 0;
-                        if(tokens[5].equals("nan")) {
-                        	invLength = 0;
-                        }else {
-                        	invLength = Float.valueOf(tokens[5]);
-                        }
-                        
-                        tLinear = Float.valueOf(tokens[6]);
-                        tQuadratic = Float.valueOf(tokens[7]);
-                        cLoad = Float.valueOf(tokens[8]);
+                        baseCost = tokenizer.nextFloat();
+                    }
+                    orthoCostIndex = tokenizer.nextInt();
+                    segIndex = tokenizer.nextInt();
+                    invLength = 0;
+                    if(tokenizer.nextFieldEquals("nan")) {
+                    	invLength = 0;
+                    }else {
+                    	invLength = tokenizer.nextFloat();
                     }
                     
+                    tLinear = tokenizer.nextFloat();
+                    tQuadratic = tokenizer.nextFloat();
+                    cLoad = tokenizer.nextFloat();
+                    
                     this.indexedDataList.put(type ,new IndexedData(index, baseCost, orthoCostIndex, invLength, tLinear, tQuadratic, cLoad));
                     this.baseCostToLength.put(baseCost, "36");
                     
                 } else {
-                    System.err.println("Invalid line: " + line);
+                    System.err.println("Invalid line: " + tokenizer.line());
                 }
             }
 
         }
+        tokenizer.close();
+        for(String dataTypes: this.indexedDataList.keySet()) {
+        	System.out.print("\nThe content of index list is " + dataTypes);
+        	this.setOrthoData(dataTypes);
+        }
+        this.indexedDataText = contentBuilder.toString();
+        this.lastCostIndex = index;
+        this.lastOrthoCostIndex = orthoCostIndex;
+        this.lastSegIndex = segIndex;
+    }
+    
+    private void setOrthoData(String dataTypes) {
+    	IndexedData data = this.indexedDataList.get(dataTypes);
+    	if (data.orthoCostIndex != -1) {
+        	
+        	String[] chann = dataTypes.split("_");
+        	String orthdata = null;
+        	if(chann[0].equals("CHANX")) {
+        		orthdata = "CHANY_" +  chann[1];
+        		
+        	}else {
+        		orthdata = "CHANX_" +  chann[1];
+        	}
+
+    		data.setOrthoData(this.indexedDataList.get(orthdata));
+    	}
+    }
+    
+    /**
+     * Add the indexed data of the SLL wire after the indexed data of the echo
+     * file and write the indexed data file of this number of SLL rows
+     */
+    private void addSLLIndexedData() throws IOException {
+        int index = this.lastCostIndex;
+        int orthoCostIndex = this.lastOrthoCostIndex, segIndex = this.lastSegIndex;
+        String sllInfo ="";
+        
         String sllName = "CHANY_L" + this.sllRows + "SN"; //The assumption is that the SLL will only go in the vertical direction
-        baseCostDefault = (float) ((1.708e-11 * this.sllRows) + 1000e-12);
+        float baseCostDefault = (float) ((1.708e-11 * this.sllRows) + 1000e-12);
         float sllInvLength = 1.0f/(float)this.sllRows;
 
         float tLinear = calculateTlinear();
         float tQuadratic = calculateTquadratic();
         float CLoad = getCload();
         this.indexedDataList.put(sllName ,new IndexedData(index+1, (baseCostDefault), orthoCostIndex + 1, sllInvLength, tLinear, tQuadratic, CLoad));     
+        this.setOrthoData(sllName);
         
-        
-
 		
         sllInfo = String.format("%-5d", (index+1));
         sllInfo += String.format("%-25s", "CHANY L" + this.sllRows +"SN");
@@ -1133,31 +2378,12 @@ public class ResourceGraph {
         sllInfo += String.format("%-20.5e", tLinear);
         sllInfo += String.format("%-20.6f", tQuadratic);
         sllInfo += String.format("%-20.6f", CLoad);
-		
-        reader.close();
-        for(String dataTypes: this.indexedDataList.keySet()) {
-        	System.out.print("\nThe content of index list is " + dataTypes);
-        	IndexedData data = this.indexedDataList.get(dataTypes);
-        	if (data.orthoCostIndex != -1) {
-            	
-            	String[] chann = dataTypes.split("_");
-            	String orthdata = null;
-            	if(chann[0].equals("CHANX")) {
-            		orthdata = "CHANY_" +  chann[1];
-            		
-            	}else {
-            		orthdata = "CHANX_" +  chann[1];
-            	}
-
-        		data.setOrthoData(this.indexedDataList.get(orthdata));
-        	}
-        }
 
         //Create a new file to accomodate the sll information
-        File indexFile = new File(this.RRGFile.getParentFile(), "rr_indexed_data_"+this.sllRows+"L.echo");
+        File indexFile = this.outputFile("rr_indexed_data_"+this.sllRows+"L.echo");
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(indexFile))) {
-            writer.write(contentBuilder.toString());
+        try (BufferedWriter writer = EchoFile.createWriter(indexFile)) {
+            writer.write(this.indexedDataText);
 
             writer.write(sllInfo);
         }
@@ -1167,10 +2393,10 @@ public class ResourceGraph {
     
     private float calculateTlinear() {
     	float tLinear, rsw, cnode, tsw = 0;
-    	tsw = this.architecture.getSLLSegmentInfo().get("tdel");
-    	rsw = this.architecture.getSLLSegmentInfo().get("RSwitch");
+    	tsw = this.sllSegmentInfo.get("tdel");
+    	rsw = this.sllSegmentInfo.get("RSwitch");
 
-    	cnode = this.architecture.getSLLSegmentInfo().get("Cmetal") + this.architecture.getSLLSegmentInfo().get("CSwitch");
+    	cnode = this.sllSegmentInfo.get("Cmetal") + this.sllSegmentInfo.get("CSwitch");
 
     	tLinear = tsw + 0.5f * rsw * cnode; 
     	return tLinear;
@@ -1178,33 +2404,33 @@ public class ResourceGraph {
     
     private float calculateTquadratic() {
     	float tquadratic,rsw, rwire, cnode, tsw = 0;
-    	rwire = this.architecture.getSLLSegmentInfo().get("Rmetal");
-    	rsw = this.architecture.getSLLSegmentInfo().get("RSwitch");
+    	rwire = this.sllSegmentInfo.get("Rmetal");
+    	rsw = this.sllSegmentInfo.get("RSwitch");
     	
-    	cnode = this.architecture.getSLLSegmentInfo().get("Cmetal") + this.architecture.getSLLSegmentInfo().get("CSwitch");
+    	cnode = this.sllSegmentInfo.get("Cmetal") + this.sllSegmentInfo.get("CSwitch");
 
     	tquadratic = 0.5f * (rsw + rwire) * cnode; 
     	return tquadratic;
     }
     
     private float getCload() {
-    	return (this.architecture.getSLLSegmentInfo().get("Cmetal") + this.architecture.getSLLSegmentInfo().get("CSwitch"));
+    	return (this.sllSegmentInfo.get("Cmetal") + this.sllSegmentInfo.get("CSwitch"));
     }
 	private void assignNamesToSourceAndSink() {
-		for(RouteNode routeNode:this.routeNodeMap.get(RouteNodeType.SOURCE)){
+		for(RouteNode routeNode : this.getRouteNodes(RouteNodeType.SOURCE)){
 			Source source = (Source) routeNode;
-			source.setName();
+			source.setName((Opin) this.getChild(source, 0));
 		}
 		
-		for(RouteNode routeNode:this.routeNodeMap.get(RouteNodeType.IPIN)){
+		for(RouteNode routeNode : this.getRouteNodes(RouteNodeType.IPIN)){
 			Ipin ipin = (Ipin) routeNode;
-			ipin.setSinkName();
+			ipin.setSinkName(this.getChild(ipin, 0));
 		}
 	}
     private void connectSourceAndSinkToSite() {
-    	for(RouteNode routeNode:this.routeNodeMap.get(RouteNodeType.SOURCE)){
+    	for(RouteNode routeNode : this.getRouteNodes(RouteNodeType.SOURCE)){
 			Source source = (Source) routeNode;
-			Site site = this.getSite(source.xlow, source.ylow);
+			Site site = this.getSite(source.getXlow(), source.getYlow());
 			
 
 			if(site.addSource((Source)routeNode) == false) {
@@ -1212,9 +2438,9 @@ public class ResourceGraph {
 				System.err.println("\nUnable to add " + routeNode + " as source to " + site);
 			}
 		}
-    	for(RouteNode routeNode:this.routeNodeMap.get(RouteNodeType.SINK)){
+    	for(RouteNode routeNode : this.getRouteNodes(RouteNodeType.SINK)){
 			Sink sink = (Sink) routeNode;
-			Site site = this.getSite(sink.xlow, sink.ylow);
+			Site site = this.getSite(sink.getXlow(), sink.getYlow());
 
 			if(site.addSink((Sink)routeNode) == false) {
 				System.err.println("\nUnable to add " + routeNode + " as sink to " + site);
@@ -1222,14 +2448,72 @@ public class ResourceGraph {
 		}
     }
 	
+    /**
+     * The keyed and spatial index of the nodes. It is built the first time
+     * it is asked for and again when nodes were added since.
+     */
+    public synchronized RouteNodeIndex getNodeIndex() {
+    	if(this.nodeIndex == null || this.nodeIndex.numNodes() != this.routeNodeTable.numNodes()) {
+    		this.nodeIndex = new RouteNodeIndex(this.routeNodeTable);
+    	}
+    	return this.nodeIndex;
+    }
+    
+    /**
+     * The node of this type with this ptc at (x, y), null if there is none
+     */
+    public RouteNode getRouteNode(RouteNodeType type, int x, int y, int ptc) {
+    	int node = this.getNodeIndex().node(type, x, y, ptc);
+    	return node == RouteNodeIndex.NO_NODE ? null : this.routeNodeTable.getNode(node);
+    }
+    
+    /**
+     * The wires of a node table that lie in the interposer bands of this
+     * graph, in node order. Only the rows of the bands are searched.
+     */
+    private int[] interposerBandWires(RouteNodeTable table, RouteNodeIndex index) {
+    	int[][] bandWires = new int[this.dieBoundaries.length][];
+    	int numWires = 0;
+    	for(int band = 0; band < this.dieBoundaries.length; band++) {
+    		int dieBoundary = this.dieBoundaries[band];
+    		int[] wires = index.wiresOverlapping(2, dieBoundary - this.sllRows + 1, Integer.MAX_VALUE, dieBoundary + this.sllRows - 1);
+    		int inBand = 0;
+    		for(int wire : wires) {
+    			if(this.interposerBand(table.xlow(wire), table.ylow(wire), table.yhigh(wire)) == band) {
+    				wires[inBand++] = wire;
+    			}
+    		}
+    		bandWires[band] = Arrays.copyOf(wires, inBand);
+    		numWires += inBand;
+    	}
+    	int[] wires = new int[numWires];
+    	int position = 0;
+    	for(int[] band : bandWires) {
+    		System.arraycopy(band, 0, wires, position, band.length);
+    		position += band.length;
+    	}
+    	Arrays.sort(wires);
+    	return wires;
+    }
+    
     private boolean isInInterposerRegion(int xCord, int yCordLow, int yCordHigh) {
-    	boolean isValid = false;
+    	return this.interposerBand(xCord, yCordLow, yCordHigh) >= 0;
+    }
+    
+    /**
+     * The die boundary of the interposer band a wire lies in, -1 if it lies
+     * in none. The bands do not overlap.
+     */
+    private int interposerBand(int xCord, int yCordLow, int yCordHigh) {
     	if(xCord >=2 && xCord < this.width -2) {
-    		if((yCordLow >= (this.dieBoundary - this.sllRows + 1)) && (yCordHigh < this.dieBoundary + this.sllRows)) {
-    			isValid = true;
+    		for(int band = 0; band < this.dieBoundaries.length; band++) {
+    			int dieBoundary = this.dieBoundaries[band];
+    			if((yCordLow >= (dieBoundary - this.sllRows + 1)) && (yCordHigh < dieBoundary + this.sllRows)) {
+    				return band;
+    			}
     		}
     	}
-		return isValid;
+		return -1;
     }
     private void addInterposerNodes() {
     	//Create nodes for the SLL interposer
@@ -1239,88 +2523,162 @@ public class ResourceGraph {
     	 * cap = length 1 x total length
     	 */
     	
-    	RouteNode routeNodeInc, routeNodeDec = null;
     	String sllName = "CHANY_L" + this.sllRows + "SN";
     	IndexedData data = this.indexedDataList.get(sllName);
     	System.out.print("\nThe indexed data is " + data.getBaseCost());
-    	float Reg = this.architecture.getSLLSegmentInfo().get("Rmetal") * this.sllRows;
-    	float Cap  = this.architecture.getSLLSegmentInfo().get("Cmetal") * this.sllRows;
+    	float Reg = this.sllSegmentInfo.get("Rmetal") * this.sllRows;
+    	float Cap  = this.sllSegmentInfo.get("Cmetal") * this.sllRows;
     	
     	int sllIndex = this.indexStart + 1;
     	
-    	for(int xCord = 2; xCord < this.width - 2; xCord++) {
-        	for(int yCord = (this.dieBoundary - this.sllRows + 1); yCord < this.dieBoundary; yCord++) {
-        		
-        		int xlow = xCord, xhigh = xCord;
-        		int ylow = yCord;
-        		int yhigh = yCord + this.sllRows - 1;
-        		
-        		String wireIndex = "INC_" + String.valueOf(xlow) + "_" + String.valueOf(ylow);
-				SLLRouteNode sllWire = this.interposerWireNodes.get(wireIndex);
-        		
-        		routeNodeInc = new Chany(sllIndex, xlow, xhigh, ylow, yhigh, 0, Reg, Cap, data, "INC_DIR");
-        		sllWire.setInterposerNode(routeNodeInc);
-
-        		
-        		sllIndex++;
-        		routeNodeInc.setSLLWireNode();
-        		this.addRouteNode(routeNodeInc);
-        		
-        		
-        		wireIndex = "DEC_" + String.valueOf(xlow) + "_" + String.valueOf(yhigh);
-        		sllWire = this.interposerWireNodes.get(wireIndex);
-        		
-        		routeNodeDec = new Chany(sllIndex, xlow, xhigh, ylow, yhigh, 0, Reg, Cap, data, "DEC_DIR");
-        		sllWire.setInterposerNode(routeNodeDec);
-        		routeNodeDec.setSLLWireNode();
-        		sllIndex++;
-        		this.addRouteNode(routeNodeDec);
-        		
-        	}
+    	//One INC and one DEC wire per slot, the indices are reserved up front
+    	//by band and in the order of the slots of the band
+    	final RouteNodeTable table = this.routeNodeTable;
+    	final int[] firstNode = new int[this.sllWires.length];
+    	for(int band = 0; band < this.sllWires.length; band++) {
+    		firstNode[band] = table.reserveNodes(this.sllWires[band].numSlots());
+    		assert this.globalIndex(firstNode[band]) == sllIndex;
+    		sllIndex += this.sllWires[band].numSlots();
     	}
+    	table.internDirection("INC_DIR");
+    	table.internDirection("DEC_DIR");
+    	table.registerIndexedData(data);
     	
-    	
+    	final IndexedData sllData = data;
+    	final float sllR = Reg, sllC = Cap;
+    	this.forEachColumn(new ColumnWork() {
+    		@Override
+    		public void column(SLLWireTable sllWires, int band, int column) {
+    			for(int slot = sllWires.firstSlot(column); slot < sllWires.firstSlot(column + 1); slot++) {
+    				int xlow = column, xhigh = xlow;
+    				int ylow = sllWires.ylow(slot);
+    				int yhigh = sllWires.yhigh(slot);
+    				String direction = sllWires.direction(slot) == SLLWireTable.INC ? "INC_DIR" : "DEC_DIR";
+    				
+    				int nodeIndex = firstNode[band] + slot;
+    				table.setNode(nodeIndex, RouteNodeType.CHANY, xlow, xhigh, ylow, yhigh, 0, 1, sllR, sllC, sllData, direction, 0, 3);
+    				table.setFlag(nodeIndex, RouteNodeTable.SLL_WIRE);
+    				sllWires.setInterposerNode(slot, nodeIndex);
+    			}
+    		}
+    	});
     }
     
     
-    private void writeRRNodeToFile() throws IOException {
-    	File rrNodeFile = new File(this.RRGFile.getParentFile(), "rrNode_info_"+this.sllRows+"L.echo");
-    	BufferedWriter writer = new BufferedWriter(new FileWriter(rrNodeFile));
-    	
-    	for(RouteNode allNode:this.routeNodes) {
-    		writer.write(allNode.getDetails() +"\n");
+    private void writeRRNodeToFile(ExecutorService pool) throws IOException, InterruptedException {
+    	File rrNodeFile = this.outputFile("rrNode_info_"+this.sllRows+"L.echo");
+    	final RouteNodeTable table = this.routeNodeTable;
+    	final int[] outputIndex = this.outputIndex;
+    	RRGFileWriter writer = new RRGFileWriter(rrNodeFile, table.numNodes(), NODES_PER_CHUNK, new RRGFileWriter.ChunkFormat() {
+    		@Override
+    		public void format(int first, int last, RRGFileWriter.LineBuffer out) {
+    			StringBuilder line = new StringBuilder();
+    			for(int node = first; node < last; node++) {
+    				if(outputIndex[node] < 0) {
+    					continue;
+    				}
+    				line.setLength(0);
+    				table.appendDetails(node, outputIndex[node], line);
+    				line.append('\n');
+    				out.append(line);
+    			}
+    		}
+    	});
+    	writer.write(pool, CHUNK_WINDOW);
+    }
+    
+    /**
+     * The node and edge file are written at the same time. Their lines are
+     * formatted in chunks on the work pool, each file is written in order
+     * by its own thread.
+     */
+    private void writeOutputFiles() throws IOException, InterruptedException {
+    	if(this.numThreads == 1) {
+    		this.writeRRNodeToFile(null);
+    		this.writeModifiedEdges(null);
+    		return;
+    	}
+    	final ExecutorService pool = this.workPool();
+    	ExecutorService fileThreads = Executors.newFixedThreadPool(2);
+    	try {
+    		Future<Void> nodes = fileThreads.submit(new Callable<Void>() {
+    			@Override
+    			public Void call() throws IOException, InterruptedException {
+    				ResourceGraph.this.writeRRNodeToFile(pool);
+    				return null;
+    			}
+    		});
+    		Future<Void> edges = fileThreads.submit(new Callable<Void>() {
+    			@Override
+    			public Void call() throws IOException, InterruptedException {
+    				ResourceGraph.this.writeModifiedEdges(pool);
+    				return null;
+    			}
+    		});
+    		nodes.get();
+    		edges.get();
+    	} catch(ExecutionException error) {
+    		Throwable cause = error.getCause();
+    		if(cause instanceof IOException) {
+    			throw (IOException) cause;
+    		}
+    		throw new RuntimeException(cause);
+    	} finally {
+    		fileThreads.shutdownNow();
     	}
-    	 writer.close();
     }
 
     private void removeRouteNode(RouteNode routeNode) {
 
-    	this.routeNodes.remove(routeNode);
+    	this.routeNodeTable.setFlag(routeNode.index, RouteNodeTable.REMOVED);
 
     }
     
-    
-	private void addRouteNode(RouteNode routeNode) {
-		assert routeNode.index == this.routeNodes.size();
-		
-		this.routeNodes.add(routeNode);
-		if(!routeNode.isDeleted) {
-			this.routeNodeMap.get(routeNode.type).add(routeNode);
-		}
-		
+	/**
+	 * Returns the n-th child of a route node, or null if it has fewer children
+	 */
+	public RouteNode getChild(RouteNode parent, int n) {
+		int child = this.edges.getChild(parent.index, n);
+		return child == RouteEdgeStore.NO_CHILD ? null : this.routeNodeTable.getNode(child);
+	}
+	public RouteEdgeStore getEdges() {
+		return this.edges;
 	}
-	public List<RouteNode> getRouteNodes() {
-		return this.routeNodes;
+	public RouteNodeTable getRouteNodeTable() {
+		return this.routeNodeTable;
+	}
+	/**
+	 * Returns the views of all nodes of this type that are not deleted
+	 */
+	public List<RouteNode> getRouteNodes(RouteNodeType type) {
+		RouteNodeTable table = this.routeNodeTable;
+		List<RouteNode> routeNodes = new ArrayList<>();
+		for(int node = 0; node < table.numNodes(); node++) {
+			if(table.type(node) == type && !table.hasFlag(node, RouteNodeTable.DELETED)) {
+				routeNodes.add(table.getNode(node));
+			}
+		}
+		return routeNodes;
 	}
 	public int numRouteNodes() {
-		return this.routeNodes.size();
+		RouteNodeTable table = this.routeNodeTable;
+		int numRouteNodes = 0;
+		for(int node = 0; node < table.numNodes(); node++) {
+			if(!table.hasFlag(node, RouteNodeTable.REMOVED)) {
+				numRouteNodes++;
+			}
+		}
+		return numRouteNodes;
 	}
 	public int numRouteNodes(RouteNodeType type) {
-		if(this.routeNodeMap.containsKey(type)) {
-			return this.routeNodeMap.get(type).size();
-		} else {
-			return 0;
+		RouteNodeTable table = this.routeNodeTable;
+		int numRouteNodes = 0;
+		for(int node = 0; node < table.numNodes(); node++) {
+			if(table.type(node) == type && !table.hasFlag(node, RouteNodeTable.DELETED)) {
+				numRouteNodes++;
+			}
 		}
+		return numRouteNodes;
 	}
 	
 	@Override
@@ -1338,38 +2696,46 @@ public class ResourceGraph {
 	/********************
 	 * Routing statistics
 	 ********************/
+	/**
+	 * Only nodes with a view can carry routing state
+	 */
+	private boolean usedWire(int node) {
+		RouteNodeTable table = this.routeNodeTable;
+		if(table.hasFlag(node, RouteNodeTable.REMOVED) || !table.isWire(node)) {
+			return false;
+		}
+		RouteNode routeNode = table.getNodeIfPresent(node);
+		return routeNode != null && routeNode.used();
+	}
 	public int totalWireLength() {
+		RouteNodeTable table = this.routeNodeTable;
 		int totalWireLength = 0;
 		int counter = 0;
-		for(RouteNode routeNode : this.routeNodes) {
-			if(routeNode.isWire) {
-				if(routeNode.used()) {
-					totalWireLength += routeNode.wireLength();
-					counter++;
-				}
+		for(int node = 0; node < table.numNodes(); node++) {
+			if(this.usedWire(node)) {
+				totalWireLength += table.wireLength(node);
+				counter++;
 			}
 		}
 		System.out.print("\nThe overall counter is " + counter);
 		return totalWireLength;
 	}
 	public int congestedTotalWireLengt() {
+		RouteNodeTable table = this.routeNodeTable;
 		int totalWireLength = 0;
-		for(RouteNode routeNode : this.routeNodes) {
-			if(routeNode.isWire) {
-				if(routeNode.used()) {
-					totalWireLength += routeNode.wireLength();
-				}
+		for(int node = 0; node < table.numNodes(); node++) {
+			if(this.usedWire(node)) {
+				totalWireLength += table.wireLength(node);
 			}
 		}
 		return totalWireLength;
 	}
 	public int wireSegmentsUsed() {
+		RouteNodeTable table = this.routeNodeTable;
 		int wireSegmentsUsed = 0;
-		for(RouteNode routeNode : this.routeNodes) {
-			if(routeNode.isWire) {
-				if(routeNode.used()) {
-					wireSegmentsUsed++;
-				}
+		for(int node = 0; node < table.numNodes(); node++) {
+			if(this.usedWire(node)) {
+				wireSegmentsUsed++;
 			}
 		}
 		return wireSegmentsUsed;
@@ -1381,10 +2747,16 @@ public class ResourceGraph {
 	}
 	public void printRoutingGraph() {
 	
-		for(RouteNode node : this.getRouteNodes()) {
-			if(node.used()) {
-				for (RouteNode child : node.children) {
-					System.out.println("\t" + child);
+		RouteNodeTable table = this.routeNodeTable;
+		for(int index = 0; index < table.numNodes(); index++) {
+			RouteNode node = table.getNodeIfPresent(index);
+			if(node != null && !table.hasFlag(index, RouteNodeTable.REMOVED) && node.used()) {
+				int end = this.edges.rowEnd(index);
+				for(int slot = this.edges.rowStart(index); slot < end; slot++) {
+					int child = this.edges.child(slot);
+					if(child != RouteEdgeStore.NO_CHILD) {
+						System.out.println("\t" + table.getNode(child));
+					}
 				}
 				System.out.println();
 			}
@@ -1414,13 +2786,14 @@ public class ResourceGraph {
 		Map<Integer, Integer> UsedWirelengthMap = new HashMap<Integer, Integer>();
 		int wireType = 0;
 		int wireLength = 0;
-		for(RouteNode node : this.routeNodes) {
-			if((node.type == RouteNodeType.CHANX) || (node.type == RouteNodeType.CHANY)) {
-				wireType = node.indexedData.length;
+		RouteNodeTable table = this.routeNodeTable;
+		for(int node = 0; node < table.numNodes(); node++) {
+			if(table.isWire(node) && !table.hasFlag(node, RouteNodeTable.REMOVED)) {
+				wireType = table.indexedData(node).length;
 				numWiresMap.put(wireType, numWiresMap.getOrDefault(wireType, 0) + 1);
-				wireLength = node.wireLength();
+				wireLength = table.wireLength(node);
 				wirelengthMap.put(wireType, wirelengthMap.getOrDefault(wireType, 0) + wireLength);
-				if(node.used()) {
+				if(this.usedWire(node)) {
 					numUsedWiresMap.put(wireType, numUsedWiresMap.getOrDefault(wireType, 0) + 1);
 					UsedWirelengthMap.put(wireType, UsedWirelengthMap.getOrDefault(wireType, 0) + wireLength);
 				}
@@ -0,0 +1,277 @@
+package route.circuit.resource;
+
+import java.util.Arrays;
+
+/**
+ * Compressed-sparse-row storage for the edges of the routing resource graph.
+ *
+ * The children of node n are stored in the slots [rowStart[n], rowEnd[n])
+ * of childIndex, with the index of the driving switch in the same slot of
+ * switchId. Rows are laid out in node order, so a pass over all edges is a
+ * linear scan over three primitive arrays. Unused or removed slots hold
+ * NO_CHILD. A row that needs more slots than were reserved for it is moved
+ * to the end of the edge arrays.
+ */
+public class RouteEdgeStore {
+	public static final int NO_CHILD = -1;
+
+	private int numRows;
+	private int[] rowStart;
+	private int[] rowEnd;
+
+	//Only used while the rows are filled from the edge file
+	private int[] fill;
+
+	private int numSlots;
+	private int[] childIndex;
+	private short[] switchId;
+
+	public RouteEdgeStore(int[] rowCapacity, int numRows) {
+		this.numRows = numRows;
+		this.rowStart = new int[numRows];
+		this.rowEnd = new int[numRows];
+		this.fill = new int[numRows];
+
+		long numSlots = 0;
+		for(int row = 0; row < numRows; row++) {
+			this.rowStart[row] = (int) numSlots;
+			this.fill[row] = (int) numSlots;
+			numSlots += rowCapacity[row];
+			this.rowEnd[row] = (int) numSlots;
+		}
+		if(numSlots > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many edges for the edge store: " + numSlots);
+		}
+
+		this.numSlots = (int) numSlots;
+		this.childIndex = new int[this.numSlots];
+		this.switchId = new short[this.numSlots];
+		Arrays.fill(this.childIndex, NO_CHILD);
+	}
+
+	public int numRows() {
+		return this.numRows;
+	}
+
+	/**
+	 * Add an empty row with room for capacity children at the end of the
+	 * store. The index of the new row is returned.
+	 */
+	public int appendRow(int capacity) {
+		if(this.numRows == this.rowStart.length) {
+			int newLength = Math.max(16, this.rowStart.length + (this.rowStart.length >> 1));
+			this.rowStart = Arrays.copyOf(this.rowStart, newLength);
+			this.rowEnd = Arrays.copyOf(this.rowEnd, newLength);
+			if(this.fill != null) {
+				this.fill = Arrays.copyOf(this.fill, newLength);
+			}
+		}
+
+		int row = this.numRows;
+		this.numRows++;
+
+		int start = this.reserveSlots(capacity);
+		this.rowStart[row] = start;
+		this.rowEnd[row] = start + capacity;
+		if(this.fill != null) {
+			this.fill[row] = start;
+		}
+		return row;
+	}
+
+	/**
+	 * Add an edge from parent to child. While the store is being filled the
+	 * edge goes to the next slot of the row, afterwards it takes the first
+	 * free slot. The row is moved to the end of the store if it is full.
+	 */
+	public void addEdge(int parent, int child, int switchIndex) {
+		int slot;
+		if(this.fill != null) {
+			slot = this.fill[parent];
+			if(slot == this.rowEnd[parent]) {
+				this.growRow(parent);
+				slot = this.fill[parent];
+			}
+			this.fill[parent] = slot + 1;
+		} else {
+			slot = this.freeSlot(parent);
+			if(slot == NO_CHILD) {
+				this.growRow(parent);
+				slot = this.freeSlot(parent);
+			}
+		}
+
+		this.childIndex[slot] = child;
+		this.switchId[slot] = switchId(switchIndex);
+	}
+
+	/**
+	 * Fill the first numRows rows in bulk while the store is being filled.
+	 * The edges of the rows follow each other in child and switchIndex. Rows
+	 * that lie next to each other in the store are copied in one go, a row
+	 * without room for its edges is moved as in addEdge.
+	 */
+	public void fillRows(int numRows, int[] rowLength, int[] child, int[] switchIndex) {
+		int edge = 0;
+		int runEdge = 0, runSlot = 0, runLength = 0;
+		for(int row = 0; row < numRows; row++) {
+			int length = rowLength[row];
+			while(this.fill[row] + length > this.rowEnd[row]) {
+				this.growRow(row);
+			}
+			int slot = this.fill[row];
+			this.fill[row] = slot + length;
+
+			if(slot != runSlot + runLength) {
+				this.copyRun(child, switchIndex, runEdge, runSlot, runLength);
+				runEdge = edge;
+				runSlot = slot;
+				runLength = 0;
+			}
+			runLength += length;
+			edge += length;
+		}
+		this.copyRun(child, switchIndex, runEdge, runSlot, runLength);
+	}
+	private void copyRun(int[] child, int[] switchIndex, int edge, int slot, int length) {
+		System.arraycopy(child, edge, this.childIndex, slot, length);
+		for(int k = 0; k < length; k++) {
+			this.switchId[slot + k] = switchId(switchIndex[edge + k]);
+		}
+	}
+
+	/**
+	 * Called once all edges of the edge file are added.
+	 * Releases the fill cursors.
+	 */
+	public void finishFilling() {
+		this.fill = null;
+	}
+
+	public int rowStart(int row) {
+		return this.rowStart[row];
+	}
+	public int rowEnd(int row) {
+		return this.rowEnd[row];
+	}
+
+	public int child(int slot) {
+		return this.childIndex[slot];
+	}
+	public int switchIndex(int slot) {
+		return this.switchId[slot];
+	}
+
+	//The switches are kept as shorts, a larger index is not cut off silently
+	private static short switchId(int switchIndex) {
+		if(switchIndex < 0 || switchIndex > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("Switch index out of range of the edge store: " + switchIndex);
+		}
+		return (short) switchIndex;
+	}
+
+	public void setEdge(int slot, int child, int switchIndex) {
+		this.childIndex[slot] = child;
+		this.switchId[slot] = switchId(switchIndex);
+	}
+	public void removeEdge(int slot) {
+		this.childIndex[slot] = NO_CHILD;
+	}
+
+	public void clearRow(int row) {
+		Arrays.fill(this.childIndex, this.rowStart[row], this.rowEnd[row], NO_CHILD);
+		if(this.fill != null) {
+			this.fill[row] = this.rowStart[row];
+		}
+	}
+
+	/**
+	 * Replace the children of a row by a single child, in the first slot of
+	 * the row. Only touches the row, so different rows can be replaced
+	 * concurrently. Returns false if the row has no slot, the edge then has
+	 * to be added with addEdge.
+	 */
+	public boolean replaceRow(int row, int child, int switchIndex) {
+		this.clearRow(row);
+		if(this.rowEnd[row] == this.rowStart[row]) {
+			return false;
+		}
+		this.childIndex[this.rowStart[row]] = child;
+		this.switchId[this.rowStart[row]] = switchId(switchIndex);
+		return true;
+	}
+
+	/**
+	 * Number of slots of this row that hold a child
+	 */
+	public int numChildren(int row) {
+		int numChildren = 0;
+		for(int slot = this.rowStart[row]; slot < this.rowEnd[row]; slot++) {
+			if(this.childIndex[slot] != NO_CHILD) {
+				numChildren++;
+			}
+		}
+		return numChildren;
+	}
+
+	/**
+	 * Returns the n-th child of the row, skipping removed slots,
+	 * or NO_CHILD if the row has fewer children.
+	 */
+	public int getChild(int row, int n) {
+		for(int slot = this.rowStart[row]; slot < this.rowEnd[row]; slot++) {
+			if(this.childIndex[slot] != NO_CHILD) {
+				if(n == 0) {
+					return this.childIndex[slot];
+				}
+				n--;
+			}
+		}
+		return NO_CHILD;
+	}
+
+	public long numSlots() {
+		return this.numSlots;
+	}
+
+	private int freeSlot(int row) {
+		for(int slot = this.rowStart[row]; slot < this.rowEnd[row]; slot++) {
+			if(this.childIndex[slot] == NO_CHILD) {
+				return slot;
+			}
+		}
+		return NO_CHILD;
+	}
+
+	private void growRow(int row) {
+		int oldStart = this.rowStart[row];
+		int oldEnd = this.rowEnd[row];
+		int oldCapacity = oldEnd - oldStart;
+		int newCapacity = Math.max(2, 2 * oldCapacity);
+
+		int newStart = this.reserveSlots(newCapacity);
+		System.arraycopy(this.childIndex, oldStart, this.childIndex, newStart, oldCapacity);
+		System.arraycopy(this.switchId, oldStart, this.switchId, newStart, oldCapacity);
+		Arrays.fill(this.childIndex, oldStart, oldEnd, NO_CHILD);
+
+		this.rowStart[row] = newStart;
+		this.rowEnd[row] = newStart + newCapacity;
+		if(this.fill != null) {
+			this.fill[row] = newStart + (this.fill[row] - oldStart);
+		}
+	}
+
+	private int reserveSlots(int numSlots) {
+		int start = this.numSlots;
+		int required = start + numSlots;
+		if(required > this.childIndex.length) {
+			int newLength = Math.max(required, this.childIndex.length + (this.childIndex.length >> 3) + 16);
+			int oldLength = this.childIndex.length;
+			this.childIndex = Arrays.copyOf(this.childIndex, newLength);
+			this.switchId = Arrays.copyOf(this.switchId, newLength);
+			Arrays.fill(this.childIndex, oldLength, newLength, NO_CHILD);
+		}
+		this.numSlots = required;
+		return start;
+	}
+}
@@ -1,284 +1,142 @@
 package route.circuit.resource;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import route.route.RouteNodeData;
 
+/**
+ * View on one node of the RouteNodeTable. The node properties live in
+ * the primitive arrays of the table, the view only adds the routing state.
+ * The routing state is made the first time it is asked for, a node that is
+ * never routed has none.
+ */
 public abstract class RouteNode implements Comparable<RouteNode> {
+	protected final RouteNodeTable table;
 	protected final int index;//Unique index number
-	
-	public final short xlow, xhigh;
-	public final short ylow, yhigh;
-	public final float centerx, centery;
-	public final short n;
-	
-	public final String direction;
-	public float delay;
-	public final float r;
-	public final float c;
-	
-	public final float base_cost;
-	public float ortho_base_cost;
-	public float ortho_inv_length = 0;
-	public float inv_lngth = 0;
-	
-	public boolean isOpin;
-	public boolean isDeleted = false;
-	public boolean isSLLWire = false;
-	public boolean isAtBorder = false; //this is to control the connects enabled by switchbox :(
-	
+
 	public final RouteNodeType type;
 	public final boolean isWire;
-	public final short capacity;
-	
-	public int numChildren;
-	public RouteNode[] children;
-	public RouteSwitch[] switches;
-	
-	public int segID;
-	public RouteNode interposerNode;
-
-	public final IndexedData indexedData;
-	public final RouteNodeData routeNodeData;
-	public int currentIndex;
-	public boolean target;
-	public boolean isReplacedNode = false;
-	
-	public RouteNode(int index, int xlow, int xhigh, int ylow, int yhigh, int n, int capacity, RouteNodeType t, float r, float c, IndexedData indexedData, String direction, int numChildren) {
-		this.index = index;
-		
-		this.isOpin = false;
-		
-		this.xlow = (short) xlow;
-		this.xhigh = (short) xhigh;
-		this.ylow = (short) ylow;
-		this.yhigh = (short) yhigh;
-		
-		this.centerx = 0.5f * (this.xlow + this.xhigh);
-		this.centery = 0.5f * (this.ylow + this.yhigh);
-		
-		this.indexedData = indexedData;
-		this.routeNodeData = new RouteNodeData(this.index);
-		
-		this.n = (short) n;
-		this.type = t;
-		if(this.type == RouteNodeType.CHANX || this.type == RouteNodeType.CHANY) {
-			this.isWire = true;
-		} else {
-			this.isWire = false;
-		}
-		this.capacity = (short) capacity;
-		
-		this.r = r;
-		this.c = c;
-		this.delay = -1;
-		this.currentIndex = 0;
-		this.interposerNode = null;
-		if(this.isWire) {
-			this.base_cost = this.indexedData.getBaseCost();
-		} else if (this.type == RouteNodeType.OPIN) {
-			this.base_cost = this.indexedData.getBaseCost();
-		} else {
-			this.base_cost = this.indexedData.getBaseCost();
-		}
-	
-		
-		this.numChildren = numChildren;
-		this.children = new RouteNode[this.numChildren + 1]; 
-		this.switches = new RouteSwitch[this.numChildren + 1]; 
-		this.direction = direction;
-		this.target = false;
-	}
-	
-	public RouteNode(int index, int xlow, int xhigh, int ylow, int yhigh, int n, int capacity, RouteNodeType t, float r, float c, IndexedData indexedData, String direction, int numChildren, int segID) {
-		this.index = index;
-		this.segID = segID;
-		this.isOpin = false;
-		
-		this.xlow = (short) xlow;
-		this.xhigh = (short) xhigh;
-		this.ylow = (short) ylow;
-		this.yhigh = (short) yhigh;
-		
-		this.centerx = 0.5f * (this.xlow + this.xhigh);
-		this.centery = 0.5f * (this.ylow + this.yhigh);
-		
-		this.indexedData = indexedData;
-		this.routeNodeData = new RouteNodeData(this.index);
-		
-		this.n = (short) n;
-		this.type = t;
-		if(this.type == RouteNodeType.CHANX || this.type == RouteNodeType.CHANY) {
-			this.isWire = true;
-		} else {
-			this.isWire = false;
-		}
-		this.capacity = (short) capacity;
-		
-		this.r = r;
-		this.c = c;
-		this.delay = -1;
-		
-		this.interposerNode = null;
-		if(this.isWire) {
 
-			this.base_cost = this.indexedData.getBaseCost();
+	private RouteNodeData routeNodeData;
+	public boolean target;
 
-		} else if (this.type == RouteNodeType.OPIN) {
+	public RouteNode(RouteNodeTable table, int index) {
+		this.table = table;
+		this.index = index;
 
-			this.base_cost = this.indexedData.getBaseCost();
-		} else {
-			this.base_cost = this.indexedData.getBaseCost();
-		}
-		
+		this.type = table.type(index);
+		this.isWire = table.isWire(index);
 
-		this.currentIndex = 0;
-		this.numChildren = numChildren;
-		this.children = new RouteNode[this.numChildren + 1]; 
-		this.switches = new RouteSwitch[this.numChildren + 1];
-		this.direction = direction;
+		this.routeNodeData = null;
 		this.target = false;
 	}
-	
-	public RouteNode(int index, int xlow, int xhigh, int ylow, int yhigh, int n, int capacity, RouteNodeType t, float r, float c, IndexedData indexedData, String direction) {
-		this.index = index;
-		this.segID = 3;
-		this.isOpin = false;
-		
-		this.xlow = (short) xlow;
-		this.xhigh = (short) xhigh;
-		this.ylow = (short) ylow;
-		this.yhigh = (short) yhigh;
-		
-		
-		this.centerx = 0.5f * (this.xlow + this.xhigh);
-		this.centery = 0.5f * (this.ylow + this.yhigh);
-		
-		this.indexedData = indexedData;
-		this.routeNodeData = new RouteNodeData(this.index);
-		
-		this.n = (short) n;
-		this.type = t;
-		if(this.type == RouteNodeType.CHANX || this.type == RouteNodeType.CHANY) {
-			this.isWire = true;
-		} else {
-			this.isWire = false;
-		}
-		this.capacity = (short) capacity;
-		
-		this.r = r;
-		this.c = c;
-		this.delay = -1;
-		
-		this.interposerNode = null;
-		if(this.isWire) {
-
-			this.base_cost = this.indexedData.getBaseCost();
 
-		} else if (this.type == RouteNodeType.OPIN) {
+	public int getIndex() {
+		return this.index;
+	}
 
-			this.base_cost = this.indexedData.getBaseCost();
-		} else {
-			this.base_cost = this.indexedData.getBaseCost();
+	public RouteNodeData getRouteNodeData() {
+		if(this.routeNodeData == null) {
+			this.routeNodeData = new RouteNodeData(this.index);
 		}
+		return this.routeNodeData;
+	}
 
-		this.currentIndex = 0;
-
-		this.direction = direction;
-		this.target = false;
+	/*
+	 * The routing state of a node that is never routed is not made to read it
+	 */
+	private int occupation() {
+		return this.routeNodeData == null ? 0 : this.routeNodeData.occupation;
+	}
+	private int numUniqueSources() {
+		return this.routeNodeData == null ? 0 : this.routeNodeData.numUniqueSources();
+	}
+	private int numUniqueParents() {
+		return this.routeNodeData == null ? 0 : this.routeNodeData.numUniqueParents();
 	}
-	
-	public void setNumChildren(int numChildren) {
-		this.numChildren = numChildren;
-		this.children = new RouteNode[this.numChildren];
-		this.switches = new RouteSwitch[this.numChildren];
-	}
-	public void setChild(int index, RouteNode child) {
-		this.children[index] = child;
-		if(this.currentIndex <= this.numChildren) {
-			this.currentIndex++;
-		}else {
-			System.err.print("\nExtra children!!");
-		}
 
+	public short getXlow() {
+		return this.table.xlow(this.index);
 	}
-	
-	public void setBorderStatus() {
-		this.isAtBorder = true;
+	public short getXhigh() {
+		return this.table.xhigh(this.index);
 	}
-	
-	public Boolean getBorderStatus() {
-		return this.isAtBorder;
+	public short getYlow() {
+		return this.table.ylow(this.index);
 	}
-	
-	public void setSLLWireNode() {
-		this.isSLLWire = true;
+	public short getYhigh() {
+		return this.table.yhigh(this.index);
 	}
-	public Boolean getSLLWireStatus() {
-		return this.isSLLWire;
+	public float getCenterX() {
+		return 0.5f * (this.getXlow() + this.getXhigh());
 	}
-	public void setNewChild(int index, RouteNode child) {
-		this.children[index] = child;
+	public float getCenterY() {
+		return 0.5f * (this.getYlow() + this.getYhigh());
 	}
-	public void removeChild(int index) {
-
-		this.children[index] = null;
-
-		
+	public short getPtc() {
+		return this.table.ptc(this.index);
 	}
-	
-	public void removeChild(RouteNode child) {
-		for(int i = 0; i < this.numChildren; i++) {
-			if(this.children[i] == child) {
-				this.children[i] = null;
-			}
-		}
+	public short getCapacity() {
+		return this.table.capacity(this.index);
 	}
-	public void isReplacedNode() {
-		this.isReplacedNode = true;
+	public String getDirection() {
+		return this.table.direction(this.index);
 	}
-	public boolean replaced() {
-		return this.isReplacedNode;
+	public float getR() {
+		return this.table.r(this.index);
 	}
-	
-	public void isDeletedNode() {
-		this.isDeleted = true;
+	public float getC() {
+		return this.table.c(this.index);
 	}
-	public Boolean getDeleteStatus() {
-		return this.isDeleted;
+	public IndexedData getIndexedData() {
+		return this.table.indexedData(this.index);
+	}
+	public float getBaseCost() {
+		return this.table.baseCost(this.index);
+	}
+	public int getSegID() {
+		return this.table.segID(this.index);
 	}
-	public void setSwitchType(int index, RouteSwitch routeSwitch) {
-		this.switches[index] = routeSwitch;
 
+	public void setNumChildren(int numChildren) {
+		this.table.setNumChildren(this.index, numChildren);
 	}
-	
-	public RouteSwitch getSwitchType(int index) {
-		return this.switches[index];
+	public int getNumChildren() {
+		return this.table.numChildren(this.index);
 	}
-	
-	public RouteNode[] getChildren() {
-		return this.children;
+
+	public void setBorderStatus() {
+		this.table.setFlag(this.index, RouteNodeTable.AT_BORDER);
 	}
-	
-	public void setInterposerNode(RouteNode InterposerNode) {
-		this.interposerNode = InterposerNode;
+	public Boolean getBorderStatus() {
+		return this.table.hasFlag(this.index, RouteNodeTable.AT_BORDER);
 	}
-	
-	public RouteNode getInterposerNode() {
-		return this.interposerNode;
+
+	public void setSLLWireNode() {
+		this.table.setFlag(this.index, RouteNodeTable.SLL_WIRE);
 	}
-	public int getNumChildren() {
-		return this.numChildren;
+	public Boolean getSLLWireStatus() {
+		return this.table.hasFlag(this.index, RouteNodeTable.SLL_WIRE);
 	}
-	
+	public void isReplacedNode() {
+		this.table.setFlag(this.index, RouteNodeTable.REPLACED);
+	}
+	public boolean replaced() {
+		return this.table.hasFlag(this.index, RouteNodeTable.REPLACED);
+	}
+
+	public void isDeletedNode() {
+		this.table.setFlag(this.index, RouteNodeTable.DELETED);
+	}
+	public Boolean getDeleteStatus() {
+		return this.table.hasFlag(this.index, RouteNodeTable.DELETED);
+	}
+
 	public int wireLength() {
-		int length = this.xhigh - this.xlow + this.yhigh - this.ylow + 1;
+		int length = this.table.wireLength(this.index);
 		if(length <= 0) System.err.println("The length of wire with type " + this.type + " is equal to " + length + " the node id is " + this.index );
-		
+
 		return length;
 	}
-	
+
 	@Override
 	public int compareTo(RouteNode o) {
 		int r = this.type.compareTo(o.type);
@@ -288,106 +146,84 @@ public abstract class RouteNode implements Comparable<RouteNode> {
 			return -1;
 		else if (r > 0)
 			return 1;
-		else if(this.xlow < o.xlow)
+		else if(this.getXlow() < o.getXlow())
 			return -1;
-		else if (this.xhigh > o.xhigh)
+		else if (this.getXhigh() > o.getXhigh())
 			return 1;
-		else if (this.ylow < o.ylow)
+		else if (this.getYlow() < o.getYlow())
 			return -1;
-		else if (this.yhigh > o.yhigh)
+		else if (this.getYhigh() > o.getYhigh())
 			return 1;
 		else if (this.index < o.index)
 			return -1;
 		else if (this.index > o.index)
 			return 1;
-		else 
+		else
 			return Long.valueOf(this.hashCode()).compareTo(Long.valueOf(o.hashCode()));
 	}
-	
+
 	@Override
 	public String toString() {
-		
+
 		String index = "" + this.index;
 		while(index.length() < 10) index = "0" + index;
-		
+
+		short xlow = this.getXlow(), xhigh = this.getXhigh();
+		short ylow = this.getYlow(), yhigh = this.getYhigh();
 		String coordinate = "";
-		if(this.xlow == this.xhigh && this.ylow == this.yhigh) {
-			coordinate = "(" + this.xlow + "," + this.ylow + ")";
+		if(xlow == xhigh && ylow == yhigh) {
+			coordinate = "(" + xlow + "," + ylow + ")";
 		} else {
-			coordinate = "(" + this.xlow + "," + this.ylow + ") to (" + this.xhigh + "," + this.yhigh + ")";
+			coordinate = "(" + xlow + "," + ylow + ") to (" + xhigh + "," + yhigh + ")";
 		}
-		
+
 		StringBuilder s = new StringBuilder();
 		s.append("RouteNode " + index + " ");
 		s.append(String.format("%-11s", coordinate));
-		s.append(String.format("ptc_num = %3d", this.n));
+		s.append(String.format("ptc_num = %3d", this.getPtc()));
 		s.append(", ");
-		s.append(String.format("basecost = %.2e", this.base_cost));
+		s.append(String.format("basecost = %.2e", this.getBaseCost()));
 		s.append(", ");
-		s.append(String.format("capacity = %2d", this.capacity));
+		s.append(String.format("capacity = %2d", this.getCapacity()));
 		s.append(", ");
-		s.append(String.format("occupation = %2d ", this.routeNodeData.occupation));
+		s.append(String.format("occupation = %2d ", this.occupation()));
 		s.append(", ");
-		s.append(String.format("num_unique_sources = %2d ", this.routeNodeData.numUniqueSources()));
+		s.append(String.format("num_unique_sources = %2d ", this.numUniqueSources()));
 		s.append(", ");
-		s.append(String.format("num_unique_parents = %2d ", this.routeNodeData.numUniqueParents()));
+		s.append(String.format("num_unique_parents = %2d ", this.numUniqueParents()));
 		s.append(", ");
 		s.append(String.format("type = %s", this.type));
 		s.append(", ");
-		s.append(String.format("direction = %s", this.direction));
+		s.append(String.format("direction = %s", this.getDirection()));
 		return s.toString();
 	}
-	
+
 	public String getDetails() {
 		StringBuilder s = new StringBuilder();
-		s.append(index + ";");
-		s.append(this.type +";");
-		s.append(this.direction +";");
-		s.append(this.capacity +";");
-		s.append(this.xlow + ";");
-		s.append(this.ylow + ";");
-		s.append(this.xhigh + ";");
-		s.append(this.yhigh + ";");
-		if(this.isWire) {
-			s.append("0;");
-		}else {
-			s.append(this.n +";");
-		}
-		
-		s.append(this.r+";");
-		s.append(this.c+";");
-		if(!this.isWire) {
-			s.append("-;");
-		}else {
-			s.append(this.segID+";");
-		}
-		
-		s.append(this.numChildren +";");
-
-		
+		this.table.appendDetails(this.index, s);
 		return s.toString();
 	}
-	
+
 	public boolean overUsed() {
-		return this.capacity < this.routeNodeData.occupation;
+		return this.getCapacity() < this.occupation();
 	}
 	public boolean used() {
-		return this.routeNodeData.occupation > 0;
+		return this.occupation() > 0;
 	}
 	public boolean illegal() {
-		return this.capacity < this.routeNodeData.numUniqueParents();
+		return this.getCapacity() < this.numUniqueParents();
 	}
-	
+
 	public float getDelay() {
-		return this.delay;
+		return this.table.delay(this.index);
 	}
-	
+
 	public void updatePresentCongestionPenalty(float pres_fac) {
-		RouteNodeData data = this.routeNodeData;
-		
+		RouteNodeData data = this.getRouteNodeData();
+
 		int occ = data.numUniqueSources();
-		int cap = this.capacity;
-		
+		int cap = this.getCapacity();
+
 		if (occ < cap) {
 			data.pres_cost = 1;
 		} else {
@@ -396,21 +232,17 @@ public abstract class RouteNode implements Comparable<RouteNode> {
 
 		data.occupation = occ;
 	}
-	
+
 	public void setDelay(RouteSwitch drivingRouteSwitch) {
-		if(this.type == RouteNodeType.SOURCE || this.type == RouteNodeType.SINK) {
-			this.delay = 0;
-		} else {
-			this.delay = this.c * (drivingRouteSwitch.r + 0.5f * this.r) + drivingRouteSwitch.tdel;
-		}
+		this.table.setDelay(this.index, drivingRouteSwitch);
 	}
-	
+
 	@Override
 	public int hashCode() {
 		return this.index;
 	}
-	
-	@Override 
+
+	@Override
 	public boolean equals(Object other) {
 		if (other == null) return false;
 		if (other == this) return true;
@@ -0,0 +1,258 @@
+package route.circuit.resource;
+
+import java.util.Arrays;
+
+/**
+ * Lookup of the nodes of a node table by location. The spatial index is
+ * built with the index, the keyed index only at the first lookup by key,
+ * so a region query does not pay for the slots of every pin.
+ *
+ * The keyed index finds a node by type, grid location, ptc and side, as
+ * rr_node_indices does in VPR. A node is found at every grid location it
+ * spans, a wire at every tile along its channel. The slots of one type at
+ * one location are a ptc-major run in a flat array, one slot per side for
+ * the pins and a single slot for the other types.
+ *
+ * The spatial index keeps the wires in buckets of square tiles of the
+ * grid, a wire in every bucket it crosses. A region query visits only the
+ * buckets of the region and reports a wire once, in the first bucket it
+ * shares with the region.
+ */
+public class RouteNodeIndex {
+	public static final int NO_NODE = -1;
+
+	private static final RouteNodeType[] TYPES = RouteNodeType.values();
+	//The sides of a pin and the slot of a pin without a side
+	private static final int PIN_SLOTS = RouteNodeTable.SIDES.length + 1;
+	private static final int TILES_PER_BUCKET = 8;
+
+	private final RouteNodeTable table;
+	private final int numNodes;
+	private final int width, height;
+
+	//By type: the first slot of every location and the node of every slot
+	private volatile int[][] locationStart;
+	private int[][] slots;
+
+	private final int bucketsX, bucketsY;
+	private final int[] bucketStart;
+	private final int[] bucketWires;
+
+	public RouteNodeIndex(RouteNodeTable table) {
+		this.table = table;
+		this.numNodes = table.numNodes();
+		int width = 0, height = 0;
+		for(int node = 0; node < this.numNodes; node++) {
+			width = Math.max(width, table.xhigh(node) + 1);
+			height = Math.max(height, table.yhigh(node) + 1);
+		}
+		this.width = width;
+		this.height = height;
+
+		//Spatial index of the wires
+		this.bucketsX = (width + TILES_PER_BUCKET - 1) / TILES_PER_BUCKET;
+		this.bucketsY = (height + TILES_PER_BUCKET - 1) / TILES_PER_BUCKET;
+		this.bucketStart = new int[this.bucketsX * this.bucketsY + 1];
+		for(int node = 0; node < this.numNodes; node++) {
+			if(!table.isWire(node)) {
+				continue;
+			}
+			for(int bx = table.xlow(node) / TILES_PER_BUCKET; bx <= table.xhigh(node) / TILES_PER_BUCKET; bx++) {
+				for(int by = table.ylow(node) / TILES_PER_BUCKET; by <= table.yhigh(node) / TILES_PER_BUCKET; by++) {
+					this.bucketStart[bx * this.bucketsY + by + 1]++;
+				}
+			}
+		}
+		for(int bucket = 0; bucket < this.bucketsX * this.bucketsY; bucket++) {
+			this.bucketStart[bucket + 1] += this.bucketStart[bucket];
+		}
+		this.bucketWires = new int[this.bucketStart[this.bucketsX * this.bucketsY]];
+		int[] fill = Arrays.copyOf(this.bucketStart, this.bucketsX * this.bucketsY);
+		for(int node = 0; node < this.numNodes; node++) {
+			if(!table.isWire(node)) {
+				continue;
+			}
+			for(int bx = table.xlow(node) / TILES_PER_BUCKET; bx <= table.xhigh(node) / TILES_PER_BUCKET; bx++) {
+				for(int by = table.ylow(node) / TILES_PER_BUCKET; by <= table.yhigh(node) / TILES_PER_BUCKET; by++) {
+					this.bucketWires[fill[bx * this.bucketsY + by]++] = node;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The keyed index, built at the first lookup by key
+	 */
+	private int[][] locationStart() {
+		int[][] locationStart = this.locationStart;
+		if(locationStart == null) {
+			synchronized(this) {
+				locationStart = this.locationStart;
+				if(locationStart == null) {
+					locationStart = this.buildKeyedIndex();
+				}
+			}
+		}
+		return locationStart;
+	}
+	private int[][] buildKeyedIndex() {
+		RouteNodeTable table = this.table;
+		int height = this.height;
+		int numLocations = this.width * height;
+
+		//The number of ptcs at every location, then the slots
+		int[][] locationStart = new int[TYPES.length][numLocations + 1];
+		for(int node = 0; node < this.numNodes; node++) {
+			int[] start = locationStart[table.type(node).ordinal()];
+			int ptcs = table.ptc(node) + 1;
+			for(int x = table.xlow(node); x <= table.xhigh(node); x++) {
+				for(int y = table.ylow(node); y <= table.yhigh(node); y++) {
+					int location = x * height + y;
+					start[location + 1] = Math.max(start[location + 1], ptcs);
+				}
+			}
+		}
+		int[][] slots = new int[TYPES.length][];
+		for(RouteNodeType type : TYPES) {
+			int[] start = locationStart[type.ordinal()];
+			int slotsPerPtc = slotsPerPtc(type);
+			for(int location = 0; location < numLocations; location++) {
+				start[location + 1] = start[location] + slotsPerPtc * start[location + 1];
+			}
+			slots[type.ordinal()] = new int[start[numLocations]];
+			Arrays.fill(slots[type.ordinal()], NO_NODE);
+		}
+		for(int node = 0; node < this.numNodes; node++) {
+			RouteNodeType type = table.type(node);
+			int slot = slotsPerPtc(type) * table.ptc(node) + sideSlot(type, table.sideCode(node));
+			int[] start = locationStart[type.ordinal()];
+			int[] typeSlots = slots[type.ordinal()];
+			for(int x = table.xlow(node); x <= table.xhigh(node); x++) {
+				for(int y = table.ylow(node); y <= table.yhigh(node); y++) {
+					int position = start[x * height + y] + slot;
+					//Of two nodes with the same key the first one is kept
+					if(typeSlots[position] == NO_NODE) {
+						typeSlots[position] = node;
+					}
+				}
+			}
+		}
+
+		this.slots = slots;
+		this.locationStart = locationStart;
+		return locationStart;
+	}
+
+	private static int slotsPerPtc(RouteNodeType type) {
+		return type == RouteNodeType.IPIN || type == RouteNodeType.OPIN ? PIN_SLOTS : 1;
+	}
+	private static int sideSlot(RouteNodeType type, int sideCode) {
+		if(slotsPerPtc(type) == 1) {
+			return 0;
+		}
+		return sideCode < 0 ? RouteNodeTable.SIDES.length : sideCode;
+	}
+
+	/**
+	 * The number of nodes of the table when the index was built. The nodes
+	 * added later are not in the index.
+	 */
+	public int numNodes() {
+		return this.numNodes;
+	}
+
+	/********************
+	 * Keyed index
+	 ********************/
+
+	/**
+	 * The node of this type with this ptc at (x, y), on any side for a pin,
+	 * or NO_NODE
+	 */
+	public int node(RouteNodeType type, int x, int y, int ptc) {
+		int first = this.firstSlot(type, x, y, ptc);
+		if(first < 0) {
+			return NO_NODE;
+		}
+		int[] slots = this.slots[type.ordinal()];
+		for(int slot = first; slot < first + slotsPerPtc(type); slot++) {
+			if(slots[slot] != NO_NODE) {
+				return slots[slot];
+			}
+		}
+		return NO_NODE;
+	}
+
+	/**
+	 * The pin of this type with this ptc at (x, y) on a side of
+	 * RouteNodeTable.SIDES, or NO_NODE. A null side asks for a pin of which
+	 * the side is not known.
+	 */
+	public int node(RouteNodeType type, int x, int y, int ptc, String side) {
+		int first = this.firstSlot(type, x, y, ptc);
+		if(first < 0) {
+			return NO_NODE;
+		}
+		int sideCode = side == null ? -1 : Arrays.asList(RouteNodeTable.SIDES).indexOf(side);
+		if(side != null && sideCode < 0) {
+			return NO_NODE;
+		}
+		return this.slots[type.ordinal()][first + sideSlot(type, sideCode)];
+	}
+
+	private int firstSlot(RouteNodeType type, int x, int y, int ptc) {
+		if(x < 0 || x >= this.width || y < 0 || y >= this.height || ptc < 0) {
+			return -1;
+		}
+		int[] start = this.locationStart()[type.ordinal()];
+		int location = x * this.height + y;
+		int first = start[location] + slotsPerPtc(type) * ptc;
+		return first < start[location + 1] ? first : -1;
+	}
+
+	/********************
+	 * Spatial index
+	 ********************/
+
+	/**
+	 * The wires that overlap the rectangle [xmin, xmax] x [ymin, ymax] of
+	 * the grid, in node order
+	 */
+	public int[] wiresOverlapping(int xmin, int ymin, int xmax, int ymax) {
+		xmin = Math.max(xmin, 0);
+		ymin = Math.max(ymin, 0);
+		xmax = Math.min(xmax, this.width - 1);
+		ymax = Math.min(ymax, this.height - 1);
+		if(xmin > xmax || ymin > ymax) {
+			return new int[0];
+		}
+
+		RouteNodeTable table = this.table;
+		int[] wires = new int[16];
+		int numWires = 0;
+		int bxMin = xmin / TILES_PER_BUCKET, bxMax = xmax / TILES_PER_BUCKET;
+		int byMin = ymin / TILES_PER_BUCKET, byMax = ymax / TILES_PER_BUCKET;
+		for(int bx = bxMin; bx <= bxMax; bx++) {
+			for(int by = byMin; by <= byMax; by++) {
+				int bucket = bx * this.bucketsY + by;
+				for(int i = this.bucketStart[bucket]; i < this.bucketStart[bucket + 1]; i++) {
+					int wire = this.bucketWires[i];
+					if(table.xhigh(wire) < xmin || table.xlow(wire) > xmax || table.yhigh(wire) < ymin || table.ylow(wire) > ymax) {
+						continue;
+					}
+					//Only the first bucket the wire shares with the rectangle reports it
+					if(bx != Math.max(bxMin, table.xlow(wire) / TILES_PER_BUCKET) || by != Math.max(byMin, table.ylow(wire) / TILES_PER_BUCKET)) {
+						continue;
+					}
+					if(numWires == wires.length) {
+						wires = Arrays.copyOf(wires, 2 * wires.length);
+					}
+					wires[numWires++] = wire;
+				}
+			}
+		}
+		wires = Arrays.copyOf(wires, numWires);
+		Arrays.sort(wires);
+		return wires;
+	}
+}
@@ -0,0 +1,469 @@
+package route.circuit.resource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Struct-of-arrays storage for the nodes of the routing resource graph.
+ *
+ * Every property of node i lives in slot i of a primitive array. Type and
+ * direction are stored as byte codes and the status booleans as a bitfield.
+ * The indexed data of a node is a short reference into a small table of
+ * IndexedData objects, keyed on the cost index.
+ *
+ * RouteNode objects are views on a slot of this table. They are only
+ * created when a node is asked for, except for the pin nodes, which carry
+ * their port name and are created while parsing.
+ */
+public class RouteNodeTable {
+	public static final byte DELETED = 0x01;
+	public static final byte SLL_WIRE = 0x02;
+	public static final byte AT_BORDER = 0x04;
+	public static final byte REPLACED = 0x08;
+	public static final byte REMOVED = 0x10;
+
+	private static final RouteNodeType[] TYPES = RouteNodeType.values();
+
+	//The sides of a pin as rr_graph.xml names them
+	public static final String[] SIDES = {"TOP", "RIGHT", "BOTTOM", "LEFT"};
+	private static final byte NO_SIDE = -1;
+
+	private int numNodes;
+
+	private short[] xlow, xhigh;
+	private short[] ylow, yhigh;
+	private short[] ptc;
+	private short[] capacity;
+	private byte[] type;
+	private byte[] direction;
+	private byte[] flags;
+	private byte[] side;
+	private short[] segID;
+	private short[] costIndex;
+	private int[] numChildren;
+
+	private float[] r;
+	private float[] c;
+	private float[] delay;
+
+	private IndexedData[] indexedData;
+	private final List<String> directionNames;
+
+	private RouteNode[] views;
+
+	public RouteNodeTable(int initialCapacity) {
+		initialCapacity = Math.max(initialCapacity, 16);
+
+		this.numNodes = 0;
+
+		this.xlow = new short[initialCapacity];
+		this.xhigh = new short[initialCapacity];
+		this.ylow = new short[initialCapacity];
+		this.yhigh = new short[initialCapacity];
+		this.ptc = new short[initialCapacity];
+		this.capacity = new short[initialCapacity];
+		this.type = new byte[initialCapacity];
+		this.direction = new byte[initialCapacity];
+		this.flags = new byte[initialCapacity];
+		this.side = new byte[initialCapacity];
+		this.segID = new short[initialCapacity];
+		this.costIndex = new short[initialCapacity];
+		this.numChildren = new int[initialCapacity];
+
+		this.r = new float[initialCapacity];
+		this.c = new float[initialCapacity];
+		this.delay = new float[initialCapacity];
+
+		this.views = new RouteNode[initialCapacity];
+
+		this.indexedData = new IndexedData[16];
+		this.directionNames = new ArrayList<>();
+		this.directionNames.add("none");
+	}
+
+	/**
+	 * Add a node at the end of the table and return its index.
+	 */
+	public int addNode(RouteNodeType type, int xlow, int xhigh, int ylow, int yhigh, int ptc, int capacity, float r, float c, IndexedData indexedData, String direction, int numChildren, int segID) {
+		int index = this.reserveNodes(1);
+		this.setNode(index, type, xlow, xhigh, ylow, yhigh, ptc, capacity, r, c, indexedData, direction, numChildren, segID);
+		return index;
+	}
+
+	/**
+	 * Add count nodes at the end of the table, to be filled in with setNode,
+	 * and return the index of the first one.
+	 */
+	public int reserveNodes(int count) {
+		while(this.numNodes + count > this.type.length) {
+			this.grow();
+		}
+
+		int index = this.numNodes;
+		this.numNodes += count;
+		return index;
+	}
+
+	/**
+	 * Set all properties of a reserved node. Different nodes can be set
+	 * concurrently once their direction and indexed data are known to the
+	 * table, see internDirection and registerIndexedData.
+	 */
+	public void setNode(int index, RouteNodeType type, int xlow, int xhigh, int ylow, int yhigh, int ptc, int capacity, float r, float c, IndexedData indexedData, String direction, int numChildren, int segID) {
+		this.xlow[index] = (short) xlow;
+		this.xhigh[index] = (short) xhigh;
+		this.ylow[index] = (short) ylow;
+		this.yhigh[index] = (short) yhigh;
+		this.ptc[index] = (short) ptc;
+		this.capacity[index] = (short) capacity;
+		this.type[index] = (byte) type.ordinal();
+		this.direction[index] = this.directionCode(direction);
+		this.flags[index] = 0;
+		this.side[index] = NO_SIDE;
+		this.segID[index] = (short) segID;
+		this.costIndex[index] = this.costIndex(indexedData);
+		this.numChildren[index] = numChildren;
+
+		this.r[index] = r;
+		this.c[index] = c;
+		this.delay[index] = -1;
+	}
+
+	public void internDirection(String direction) {
+		this.directionCode(direction);
+	}
+	public void registerIndexedData(IndexedData data) {
+		this.costIndex(data);
+	}
+
+	private void grow() {
+		int newLength = Math.max(16, this.type.length + (this.type.length >> 1));
+
+		this.xlow = Arrays.copyOf(this.xlow, newLength);
+		this.xhigh = Arrays.copyOf(this.xhigh, newLength);
+		this.ylow = Arrays.copyOf(this.ylow, newLength);
+		this.yhigh = Arrays.copyOf(this.yhigh, newLength);
+		this.ptc = Arrays.copyOf(this.ptc, newLength);
+		this.capacity = Arrays.copyOf(this.capacity, newLength);
+		this.type = Arrays.copyOf(this.type, newLength);
+		this.direction = Arrays.copyOf(this.direction, newLength);
+		this.flags = Arrays.copyOf(this.flags, newLength);
+		this.side = Arrays.copyOf(this.side, newLength);
+		this.segID = Arrays.copyOf(this.segID, newLength);
+		this.costIndex = Arrays.copyOf(this.costIndex, newLength);
+		this.numChildren = Arrays.copyOf(this.numChildren, newLength);
+
+		this.r = Arrays.copyOf(this.r, newLength);
+		this.c = Arrays.copyOf(this.c, newLength);
+		this.delay = Arrays.copyOf(this.delay, newLength);
+
+		this.views = Arrays.copyOf(this.views, newLength);
+	}
+
+	private byte directionCode(String direction) {
+		for(int code = 0; code < this.directionNames.size(); code++) {
+			if(this.directionNames.get(code).equals(direction)) {
+				return (byte) code;
+			}
+		}
+		this.directionNames.add(direction);
+		return (byte) (this.directionNames.size() - 1);
+	}
+
+	private short costIndex(IndexedData data) {
+		int index = data.getIndex();
+		if(index >= this.indexedData.length) {
+			this.indexedData = Arrays.copyOf(this.indexedData, Math.max(index + 1, 2 * this.indexedData.length));
+		}
+		if(this.indexedData[index] != data) {
+			this.indexedData[index] = data;
+		}
+		return (short) index;
+	}
+
+	public int numNodes() {
+		return this.numNodes;
+	}
+
+	/********************
+	 * Views
+	 ********************/
+	public void setView(int index, RouteNode view) {
+		this.views[index] = view;
+	}
+
+	/**
+	 * Returns the RouteNode view of a node, creating it the first time.
+	 */
+	public RouteNode getNode(int index) {
+		RouteNode view = this.views[index];
+		if(view == null) {
+			switch(TYPES[this.type[index]]) {
+				case SOURCE:
+					view = new Source(this, index);
+					break;
+				case SINK:
+					view = new Sink(this, index);
+					break;
+				case CHANX:
+					view = new Chanx(this, index);
+					break;
+				case CHANY:
+					view = new Chany(this, index);
+					break;
+				default:
+					//Pins carry their port name and are created while parsing
+					throw new IllegalStateException("No view for node " + index + " of type " + TYPES[this.type[index]]);
+			}
+			this.views[index] = view;
+		}
+		return view;
+	}
+
+	/**
+	 * Returns the view of a node if it was ever created, null otherwise
+	 */
+	public RouteNode getNodeIfPresent(int index) {
+		return this.views[index];
+	}
+
+	/********************
+	 * Node properties
+	 ********************/
+	public RouteNodeType type(int index) {
+		return TYPES[this.type[index]];
+	}
+	public boolean isWire(int index) {
+		RouteNodeType type = TYPES[this.type[index]];
+		return type == RouteNodeType.CHANX || type == RouteNodeType.CHANY;
+	}
+
+	public short xlow(int index) {
+		return this.xlow[index];
+	}
+	public short xhigh(int index) {
+		return this.xhigh[index];
+	}
+	public short ylow(int index) {
+		return this.ylow[index];
+	}
+	public short yhigh(int index) {
+		return this.yhigh[index];
+	}
+	public short ptc(int index) {
+		return this.ptc[index];
+	}
+	public short capacity(int index) {
+		return this.capacity[index];
+	}
+	public String direction(int index) {
+		return this.directionNames.get(this.direction[index]);
+	}
+	public byte directionCode(int index) {
+		return this.direction[index];
+	}
+
+	/**
+	 * The side of a pin, null if it is not known. The echo files do not
+	 * have the side of a pin, it is derived from the edges when the graph
+	 * is written as rr_graph.xml.
+	 */
+	public String side(int index) {
+		return this.side[index] == NO_SIDE ? null : SIDES[this.side[index]];
+	}
+	/**
+	 * The position of the side of a pin in SIDES, -1 if it is not known
+	 */
+	public byte sideCode(int index) {
+		return this.side[index];
+	}
+	public void setSide(int index, String side) {
+		for(int code = 0; code < SIDES.length; code++) {
+			if(SIDES[code].equals(side)) {
+				this.side[index] = (byte) code;
+				return;
+			}
+		}
+		this.side[index] = NO_SIDE;
+	}
+
+	public float r(int index) {
+		return this.r[index];
+	}
+	public float c(int index) {
+		return this.c[index];
+	}
+	public float delay(int index) {
+		return this.delay[index];
+	}
+	public void setDelay(int index, float delay) {
+		this.delay[index] = delay;
+	}
+	public void setDelay(int index, RouteSwitch drivingRouteSwitch) {
+		RouteNodeType type = TYPES[this.type[index]];
+		if(type == RouteNodeType.SOURCE || type == RouteNodeType.SINK) {
+			this.delay[index] = 0;
+		} else {
+			this.delay[index] = this.c[index] * (drivingRouteSwitch.r + 0.5f * this.r[index]) + drivingRouteSwitch.tdel;
+		}
+	}
+
+	public IndexedData indexedData(int index) {
+		return this.indexedData[this.costIndex[index]];
+	}
+	public int costIndex(int index) {
+		return this.costIndex[index];
+	}
+	public float baseCost(int index) {
+		return this.indexedData[this.costIndex[index]].getBaseCost();
+	}
+
+	public int segID(int index) {
+		return this.segID[index];
+	}
+	public int numChildren(int index) {
+		return this.numChildren[index];
+	}
+	public void setNumChildren(int index, int numChildren) {
+		this.numChildren[index] = numChildren;
+	}
+
+	public int wireLength(int index) {
+		return this.xhigh[index] - this.xlow[index] + this.yhigh[index] - this.ylow[index] + 1;
+	}
+
+	public boolean hasFlag(int index, byte flag) {
+		return (this.flags[index] & flag) != 0;
+	}
+	public void setFlag(int index, byte flag) {
+		this.flags[index] |= flag;
+	}
+
+	/**
+	 * Returns the index every node gets when the removed nodes are left
+	 * out of the graph, or -1 for a removed node. A single pass over the
+	 * flags, so deleting nodes costs nothing more than setting the flag.
+	 */
+	public int[] compactionRemap() {
+		int[] remap = new int[this.numNodes];
+		int newIndex = 0;
+		for(int index = 0; index < this.numNodes; index++) {
+			if((this.flags[index] & REMOVED) != 0) {
+				remap[index] = -1;
+			} else {
+				remap[index] = newIndex;
+				newIndex++;
+			}
+		}
+		return remap;
+	}
+
+	/********************
+	 * Image
+	 ********************/
+
+	/**
+	 * Write the properties of the first numNodes nodes as they were parsed.
+	 * Flags and delays are set later on and are not part of the image.
+	 */
+	public void writeImage(RRGImage.Writer image, int numNodes) throws IOException {
+		image.writeInt(numNodes);
+		image.writeShorts(this.xlow, numNodes);
+		image.writeShorts(this.xhigh, numNodes);
+		image.writeShorts(this.ylow, numNodes);
+		image.writeShorts(this.yhigh, numNodes);
+		image.writeShorts(this.ptc, numNodes);
+		image.writeShorts(this.capacity, numNodes);
+		image.writeBytes(this.type, numNodes);
+		image.writeBytes(this.direction, numNodes);
+		image.writeShorts(this.segID, numNodes);
+		image.writeShorts(this.costIndex, numNodes);
+		image.writeInts(this.numChildren, numNodes);
+		image.writeFloats(this.r, numNodes);
+		image.writeFloats(this.c, numNodes);
+
+		image.writeInt(this.directionNames.size());
+		for(String name : this.directionNames) {
+			image.writeString(name);
+		}
+	}
+
+	/**
+	 * Replace the nodes of this table by the nodes of an image. The indexed
+	 * data the cost indices refer to comes from the index list.
+	 */
+	public void readImage(RRGImage image, Collection<IndexedData> indexedData) throws IOException {
+		int numNodes = image.readInt();
+		this.numNodes = numNodes;
+
+		this.xlow = image.readShorts(numNodes);
+		this.xhigh = image.readShorts(numNodes);
+		this.ylow = image.readShorts(numNodes);
+		this.yhigh = image.readShorts(numNodes);
+		this.ptc = image.readShorts(numNodes);
+		this.capacity = image.readShorts(numNodes);
+		this.type = image.readBytes(numNodes);
+		this.direction = image.readBytes(numNodes);
+		this.flags = new byte[numNodes];
+		//The echo files have no sides
+		this.side = new byte[numNodes];
+		Arrays.fill(this.side, NO_SIDE);
+		this.segID = image.readShorts(numNodes);
+		this.costIndex = image.readShorts(numNodes);
+		this.numChildren = image.readInts(numNodes);
+
+		this.r = image.readFloats(numNodes);
+		this.c = image.readFloats(numNodes);
+		this.delay = new float[numNodes];
+		Arrays.fill(this.delay, -1);
+
+		this.views = new RouteNode[numNodes];
+
+		this.directionNames.clear();
+		int numDirections = image.readInt();
+		for(int d = 0; d < numDirections; d++) {
+			this.directionNames.add(image.readString());
+		}
+
+		for(IndexedData data : indexedData) {
+			this.costIndex(data);
+		}
+	}
+
+	/**
+	 * The line of node i in the rrNode_info echo format
+	 */
+	public void appendDetails(int index, StringBuilder s) {
+		this.appendDetails(index, index, s);
+	}
+	public void appendDetails(int index, int outputIndex, StringBuilder s) {
+		boolean isWire = this.isWire(index);
+
+		s.append(outputIndex).append(';');
+		s.append(TYPES[this.type[index]]).append(';');
+		s.append(this.directionNames.get(this.direction[index])).append(';');
+		s.append(this.capacity[index]).append(';');
+		s.append(this.xlow[index]).append(';');
+		s.append(this.ylow[index]).append(';');
+		s.append(this.xhigh[index]).append(';');
+		s.append(this.yhigh[index]).append(';');
+		if(isWire) {
+			s.append("0;");
+		}else {
+			s.append(this.ptc[index]).append(';');
+		}
+
+		s.append(this.r[index]).append(';');
+		s.append(this.c[index]).append(';');
+		if(!isWire) {
+			s.append("-;");
+		}else {
+			s.append(this.segID[index]).append(';');
+		}
+
+		s.append(this.numChildren[index]).append(';');
+	}
+}
@@ -1,37 +1,44 @@
 package route.circuit.resource;
 
+import route.circuit.exceptions.InvalidFileFormatException;
+
 public class RouteSwitch {
 	public final int index;
 	//public final boolean buffered;
 	
 	public final float r;
 	public final float cin;
+	public final float cinternal;
 	public final float cout;
 	public final float tdel;
 	
 	public final float mux_trans_size;
 	public final float buf_size;
 	public final String name;
-	public RouteSwitch(String line) {
-		while(line.contains("  ")) line = line.replace("  ", " ");
-		
-		String[] words = line.split(";");
+	public final String type;
+	public RouteSwitch(EchoTokenizer tokenizer) throws InvalidFileFormatException {
+		this.index = tokenizer.nextInt();
+		this.name = tokenizer.nextString();
+		this.type = tokenizer.nextString();
+		this.cin = tokenizer.nextFloat();
+		this.cinternal = tokenizer.nextFloat();
+		this.cout = tokenizer.nextFloat();
+		this.r = tokenizer.nextFloat();
 		
-		this.index = Integer.parseInt(words[0]);
-		this.name = words[1];
-		this.r = Float.parseFloat(words[6]);
-		this.cin = Float.parseFloat(words[3]);
-		this.cout = Float.parseFloat(words[5]);
-		
-		this.tdel = Float.parseFloat(words[7]);
-		this.mux_trans_size = Float.parseFloat(words[9]);
-		this.buf_size = Float.parseFloat(words[8]);
+		this.tdel = tokenizer.nextFloat();
+		this.buf_size = tokenizer.nextFloat();
+		this.mux_trans_size = tokenizer.nextFloat();
+	}
+	public RouteSwitch(int Id, String name, String type, float res, float capIn, float capOut, float tdel, float trans_size, float buf_size) {
+		this(Id, name, type, res, capIn, 0, capOut, tdel, trans_size, buf_size);
 	}
-	public RouteSwitch(int Id, String name, float res, float capIn, float capOut, float tdel, float trans_size, float buf_size) {
+	public RouteSwitch(int Id, String name, String type, float res, float capIn, float capInternal, float capOut, float tdel, float trans_size, float buf_size) {
 		this.index = Id;
 		this.name = name;
+		this.type = type;
 		this.r = res;
 		this.cin = capIn;
+		this.cinternal = capInternal;
 		this.cout = capOut;
 		this.tdel =tdel;
 		this.mux_trans_size = trans_size;
@@ -47,6 +54,7 @@ public class RouteSwitch {
 		result += "switch " + this.index + ":" + "\n";
 		result += "               r: " + this.r + "\n";
 		result += "             cin: " + this.cin + "\n";
+		result += "       cinternal: " + this.cinternal + "\n";
 		result += "            cout: " + this.cout + "\n";
 		result += "            tdel: " + this.tdel + "\n";
 		result += "  mux_trans_size: " + this.mux_trans_size + "\n";
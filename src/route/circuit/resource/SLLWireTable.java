@@ -0,0 +1,227 @@
+package route.circuit.resource;
+
+import java.util.Arrays;
+
+/**
+ * Dense table of the SLL wires of one interposer band and of the wires
+ * they can replace.
+ *
+ * There is an INC_DIR and a DEC_DIR SLL wire for every column in
+ * [2, width - 2) and every start row in [boundary - sllRows + 1, boundary).
+ * The wire of (column, row offset, direction) has slot
+ * ((column - 2) * numRowOffsets + rowOffset) * 2 + direction, and the
+ * table keeps its interposer node and its source and sink replacement node.
+ *
+ * The replacement candidates are the short vertical wires in the band. They
+ * are bucketed at ingest on (column, row, direction, end), with end the low
+ * or the high end of the wire. Every bucket is a linked list in file order,
+ * so matching a wire to its replacement nodes takes the first candidate of
+ * a bucket that is not yet claimed.
+ */
+public class SLLWireTable {
+	public static final int INC = 0;
+	public static final int DEC = 1;
+
+	private static final int LOW_END = 0;
+	private static final int HIGH_END = 1;
+
+	public static final int NO_NODE = -1;
+
+	private final int firstColumn, numColumns;
+	private final int firstRow, numRowOffsets;
+	private final int sllRows;
+
+	private final int[] interposerNode;
+	private final int[] sourceReplaceNode;
+	private final int[] sinkReplaceNode;
+
+	//Candidate buckets
+	private final int firstBucketRow, numBucketRows;
+	private final int[] bucketHead;
+	private final int[] bucketTail;
+	private int numEntries;
+	private int[] entryNode;
+	private int[] entryNext;
+
+	public SLLWireTable(int width, int dieBoundary, int sllRows) {
+		this.sllRows = sllRows;
+
+		this.firstColumn = 2;
+		this.numColumns = Math.max(0, width - 4);
+		this.firstRow = dieBoundary - sllRows + 1;
+		this.numRowOffsets = Math.max(0, sllRows - 1);
+
+		int numSlots = this.numColumns * this.numRowOffsets * 2;
+		this.interposerNode = new int[numSlots];
+		this.sourceReplaceNode = new int[numSlots];
+		this.sinkReplaceNode = new int[numSlots];
+		Arrays.fill(this.interposerNode, NO_NODE);
+		Arrays.fill(this.sourceReplaceNode, NO_NODE);
+		Arrays.fill(this.sinkReplaceNode, NO_NODE);
+
+		//The candidates lie within the interposer region of the band
+		this.firstBucketRow = dieBoundary - sllRows + 1;
+		this.numBucketRows = Math.max(0, 2 * sllRows - 1);
+		int numBuckets = this.numColumns * this.numBucketRows * 4;
+		this.bucketHead = new int[numBuckets];
+		this.bucketTail = new int[numBuckets];
+		Arrays.fill(this.bucketHead, -1);
+		Arrays.fill(this.bucketTail, -1);
+
+		this.numEntries = 0;
+		this.entryNode = new int[1024];
+		this.entryNext = new int[1024];
+	}
+
+	/********************
+	 * Wire slots
+	 ********************/
+	public int numSlots() {
+		return this.interposerNode.length;
+	}
+	public int firstColumn() {
+		return this.firstColumn;
+	}
+	public int numColumns() {
+		return this.numColumns;
+	}
+	/**
+	 * The slots of a column are [firstSlot(column), firstSlot(column + 1))
+	 */
+	public int firstSlot(int column) {
+		return (column - this.firstColumn) * this.numRowOffsets * 2;
+	}
+	public int slot(int column, int ylow, int direction) {
+		return ((column - this.firstColumn) * this.numRowOffsets + (ylow - this.firstRow)) * 2 + direction;
+	}
+
+	public int column(int slot) {
+		return this.firstColumn + (slot >> 1) / this.numRowOffsets;
+	}
+	public int ylow(int slot) {
+		return this.firstRow + (slot >> 1) % this.numRowOffsets;
+	}
+	public int yhigh(int slot) {
+		return this.ylow(slot) + this.sllRows - 1;
+	}
+	public int direction(int slot) {
+		return slot & 1;
+	}
+
+	public void setInterposerNode(int slot, int node) {
+		this.interposerNode[slot] = node;
+	}
+	public int getInterposerNode(int slot) {
+		return this.interposerNode[slot];
+	}
+	public int getSourceReplaceNode(int slot) {
+		return this.sourceReplaceNode[slot];
+	}
+	public int getSinkReplaceNode(int slot) {
+		return this.sinkReplaceNode[slot];
+	}
+
+	/********************
+	 * Replacement candidates
+	 ********************/
+	private int bucket(int column, int row, int direction, int end) {
+		int rowOffset = row - this.firstBucketRow;
+		if(column < this.firstColumn || column >= this.firstColumn + this.numColumns || rowOffset < 0 || rowOffset >= this.numBucketRows) {
+			return -1;
+		}
+		return (((column - this.firstColumn) * this.numBucketRows + rowOffset) * 2 + direction) * 2 + end;
+	}
+
+	/**
+	 * Add a vertical wire of the band as candidate for both of its ends.
+	 * Wires that are not INC_DIR or DEC_DIR can not be replaced.
+	 */
+	public void addCandidate(int node, int column, int ylow, int yhigh, int direction) {
+		if(direction != INC && direction != DEC) {
+			return;
+		}
+		this.addEntry(this.bucket(column, ylow, direction, LOW_END), node);
+		this.addEntry(this.bucket(column, yhigh, direction, HIGH_END), node);
+	}
+
+	private void addEntry(int bucket, int node) {
+		if(bucket < 0) {
+			return;
+		}
+		if(this.numEntries == this.entryNode.length) {
+			int newLength = 2 * this.entryNode.length;
+			this.entryNode = Arrays.copyOf(this.entryNode, newLength);
+			this.entryNext = Arrays.copyOf(this.entryNext, newLength);
+		}
+		int entry = this.numEntries;
+		this.numEntries++;
+
+		this.entryNode[entry] = node;
+		this.entryNext[entry] = -1;
+		if(this.bucketTail[bucket] < 0) {
+			this.bucketHead[bucket] = entry;
+		} else {
+			this.entryNext[this.bucketTail[bucket]] = entry;
+		}
+		this.bucketTail[bucket] = entry;
+	}
+
+	/**
+	 * Claims the first unclaimed candidate of a bucket. A candidate can be in
+	 * two buckets, so the claimed entries at the head of the bucket are
+	 * dropped on the way; every entry is passed at most once.
+	 */
+	private int claim(int bucket, RouteNodeTable table) {
+		if(bucket < 0) {
+			return NO_NODE;
+		}
+		int entry = this.bucketHead[bucket];
+		while(entry >= 0 && table.hasFlag(this.entryNode[entry], RouteNodeTable.REPLACED)) {
+			entry = this.entryNext[entry];
+		}
+		if(entry < 0) {
+			this.bucketHead[bucket] = -1;
+			return NO_NODE;
+		}
+		int node = this.entryNode[entry];
+		table.setFlag(node, RouteNodeTable.REPLACED);
+		this.bucketHead[bucket] = this.entryNext[entry];
+		return node;
+	}
+
+	/**
+	 * Match every SLL wire of a column with the wire it replaces at its
+	 * source end and at its sink end, by row and INC_DIR before DEC_DIR.
+	 * The buckets and candidates of a column belong to no other column, so
+	 * the columns can be matched concurrently.
+	 */
+	public void matchReplaceNodes(RouteNodeTable table, int column) {
+		for(int slot = this.firstSlot(column); slot < this.firstSlot(column + 1); slot++) {
+			int ylow = this.ylow(slot);
+			int yhigh = this.yhigh(slot);
+			if(this.direction(slot) == INC) {
+				if(this.sourceReplaceNode[slot] == NO_NODE) {
+					this.sourceReplaceNode[slot] = this.claim(this.bucket(column, ylow, INC, LOW_END), table);
+				}
+				if(this.sinkReplaceNode[slot] == NO_NODE) {
+					this.sinkReplaceNode[slot] = this.claim(this.bucket(column, yhigh, INC, HIGH_END), table);
+				}
+			} else {
+				if(this.sourceReplaceNode[slot] == NO_NODE) {
+					this.sourceReplaceNode[slot] = this.claim(this.bucket(column, yhigh, DEC, HIGH_END), table);
+				}
+				if(this.sinkReplaceNode[slot] == NO_NODE) {
+					this.sinkReplaceNode[slot] = this.claim(this.bucket(column, ylow, DEC, LOW_END), table);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Called when all columns are matched
+	 */
+	public void releaseCandidates() {
+		this.entryNode = null;
+		this.entryNext = null;
+	}
+}
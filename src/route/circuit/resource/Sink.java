@@ -3,8 +3,8 @@ package route.circuit.resource;
 public class Sink extends RouteNode {
 	private String name;
 	
-	public Sink(int index, int xlow, int xhigh, int ylow, int yhigh, int n, int capacity, IndexedData indexedData, int numChildren) {
-		super(index, xlow, xhigh, ylow, yhigh, n, capacity, RouteNodeType.SINK, 0, 0, indexedData, "none", numChildren);
+	public Sink(RouteNodeTable table, int index) {
+		super(table, index);
 		
 		this.name = null;
 	}
@@ -1,23 +1,29 @@
 package route.circuit.timing;
 
+import java.util.Arrays;
+
 import route.circuit.architecture.BlockCategory;
 import route.circuit.architecture.DelayTables;
 
 public class TimingEdge {
 	private float fixedDelay, wireDelay;
-	private float slack, criticality;
+	private float criticality;
 	
-	private final DelayTables delayTables;
 	private final TimingNode source, sink;
+	
+	//The timing levels with this edge and the index of the edge in each of them,
+	//they are told when the delay changes
+	private TimingLevels[] levels;
+	private int[] levelIndices;
+	//The timing levels that wrote the criticality last
+	private TimingLevels criticalityWriter;
 
-    TimingEdge(float fixedDelay, TimingNode source, TimingNode sink, DelayTables delayTables){
+    TimingEdge(float fixedDelay, TimingNode source, TimingNode sink){
         this.fixedDelay = fixedDelay;
         this.wireDelay = 0;
         
         this.source = source;
         this.sink = sink;
-        
-        this.delayTables = delayTables;
     }
     
     public TimingNode getSource(){
@@ -27,17 +33,24 @@ public class TimingEdge {
     	return this.sink;
     }
 
-    public void calculatePlacementEstimatedWireDelay(){
+    public void calculatePlacementEstimatedWireDelay(DelayTables delayTables){
         int deltaX = Math.abs(this.source.getGlobalBlock().getColumn() - this.sink.getGlobalBlock().getColumn());
         int deltaY = Math.abs(this.source.getGlobalBlock().getRow() - this.sink.getGlobalBlock().getRow());
 
         BlockCategory fromCategory = this.source.getGlobalBlock().getCategory();
         BlockCategory toCategory = this.sink.getGlobalBlock().getCategory();
 
-        this.wireDelay = this.delayTables.getDelay(fromCategory, toCategory, deltaX, deltaY);
+        this.setWireDelay(delayTables.getDelay(fromCategory, toCategory, deltaX, deltaY));
     }
     public void setWireDelay(float wireDelay){
-        this.wireDelay = wireDelay;
+    	if(Float.floatToRawIntBits(wireDelay) != Float.floatToRawIntBits(this.wireDelay)) {
+    		this.wireDelay = wireDelay;
+    		if(this.levels != null) {
+    			for(int i = 0; i < this.levels.length; i++) {
+    				this.levels[i].delayChanged(this.levelIndices[i]);
+    			}
+    		}
+    	}
     }
 
     public float getTotalDelay(){
@@ -58,21 +71,65 @@ public class TimingEdge {
     
     public void calculateCriticality(float maxDelay, float maxCriticality, float criticalityExponent) {
     	if(this.source.hasArrivalTime() && this.sink.hasRequiredTime()) {
-        	this.slack = this.sink.getRequiredTime() - this.source.getArrivalTime() - this.getTotalDelay();
-        	
-        	//Fix rounding errors
-        	this.slack = Math.max(this.slack, 0);
-        	this.slack = Math.min(this.slack, maxDelay);
-        	
-        	float tempCriticality  = (1 - this.slack / maxDelay);
-        	tempCriticality = (float) (Math.pow(tempCriticality, criticalityExponent) * maxCriticality);
-        	
-        	//Fix rounding errors
-        	tempCriticality = Math.min(tempCriticality, maxCriticality);
+        	float tempCriticality = criticality(this.source.getArrivalTime(), this.sink.getRequiredTime(), this.getTotalDelay(), maxDelay, maxCriticality, criticalityExponent);
         	
         	if(tempCriticality > this.criticality) this.criticality = tempCriticality;
     	}
     }
+    static float criticality(float arrivalTime, float requiredTime, float delay, float maxDelay, float maxCriticality, float criticalityExponent) {
+    	float slack = requiredTime - arrivalTime - delay;
+    	
+    	//Fix rounding errors
+    	slack = Math.max(slack, 0);
+    	slack = Math.min(slack, maxDelay);
+    	
+    	float tempCriticality  = (1 - slack / maxDelay);
+    	tempCriticality = (float) (Math.pow(tempCriticality, criticalityExponent) * maxCriticality);
+    	
+    	//Fix rounding errors
+    	return Math.min(tempCriticality, maxCriticality);
+    }
+    public void setCriticality(float criticality) {
+    	this.criticality = criticality;
+    }
+
+    
+    void addLevels(TimingLevels levels, int index) {
+    	if(this.levels == null) {
+    		this.levels = new TimingLevels[] {levels};
+    		this.levelIndices = new int[] {index};
+    	} else {
+    		this.levels = Arrays.copyOf(this.levels, this.levels.length + 1);
+    		this.levelIndices = Arrays.copyOf(this.levelIndices, this.levelIndices.length + 1);
+    		this.levels[this.levels.length - 1] = levels;
+    		this.levelIndices[this.levelIndices.length - 1] = index;
+    	}
+    }
+    void removeLevels(TimingLevels levels) {
+    	for(int i = 0; this.levels != null && i < this.levels.length; i++) {
+    		if(this.levels[i] == levels) {
+    			if(this.levels.length == 1) {
+    				this.levels = null;
+    				this.levelIndices = null;
+    			} else {
+    				System.arraycopy(this.levels, i + 1, this.levels, i, this.levels.length - i - 1);
+    				System.arraycopy(this.levelIndices, i + 1, this.levelIndices, i, this.levelIndices.length - i - 1);
+    				this.levels = Arrays.copyOf(this.levels, this.levels.length - 1);
+    				this.levelIndices = Arrays.copyOf(this.levelIndices, this.levelIndices.length - 1);
+    			}
+    			return;
+    		}
+    	}
+    }
+    
+    /**
+     * Set the writer of the criticality and return the previous one
+     */
+    TimingLevels setCriticalityWriter(TimingLevels writer) {
+    	TimingLevels previous = this.criticalityWriter;
+    	this.criticalityWriter = writer;
+    	return previous;
+    }
 
     @Override
     public String toString() {
@@ -1,15 +1,20 @@
 package route.circuit.timing;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
 
 import route.util.Pair;
 import route.circuit.Circuit;
 import route.circuit.architecture.BlockCategory;
 import route.circuit.architecture.BlockType;
+import route.circuit.architecture.DelayTables;
 import route.circuit.architecture.PortType;
 import route.circuit.block.AbstractBlock;
 import route.circuit.block.GlobalBlock;
@@ -48,10 +53,12 @@ public class TimingGraph {
     private float[][] maxDelay;
     private float globalMaxDelay;
     
-    //Tarjan's strongly connected components algorithm
-    private int index;
-    private Stack<TimingNode> stack;
-    private List<SCC> scc;
+    //Topological levels of the timing nodes
+    private TimingLevels levels;
+    
+    //Threads of the analysis of the clock domain pairs
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+    private ForkJoinPool timingPool;
 
     public TimingGraph(Circuit circuit) {
         this.circuit = circuit;
@@ -80,6 +87,8 @@ public class TimingGraph {
         
         this.setClockDomains();
         
+        this.levelize();
+        
         System.out.println("Timing Graph:");
         
         System.out.println("   Num clock domains " + this.numClockDomains);
@@ -373,7 +382,7 @@ public class TimingGraph {
                 TimingNode pathSinkNode = sourcePin.getTimingNode();
 
                 if(pathSinkNode != null) {
-                    TimingEdge edge = pathSourceNode.addSink(pathSinkNode, delay, this.circuit.getArchitecture().getDelayTables());
+                    TimingEdge edge = pathSourceNode.addSink(pathSinkNode, delay);
                     this.timingEdges.add(edge);
 
                     GlobalBlock pathSinkBlock = pathSinkNode.getGlobalBlock();
@@ -478,118 +487,120 @@ public class TimingGraph {
     }
     
     /****************************************************
-     * Functionality to find combinational loops with   *
-     * Tarjan's strongly connected components algorithm *
+     * Functionality to cut combinational loops with a  *
+     * depth first search                               *
      ****************************************************/
     private void cutCombLoop(){
 
     	long start = System.nanoTime();
 
-    	System.out.println("Cut combinational loops iteratively");
-
-    	int iteration = 0;
-    	boolean finalIteration = false;
-    	
-    	while(!finalIteration){
+    	System.out.println("Cut combinational loops");
 
-    		int cutLoops = 0;
-    		finalIteration = true;
+    	for(TimingNode v:this.timingNodes){
+    		v.reset();
+    	}
 
-    		//Initialize iteration
-        	this.index = 0;
-        	this.stack = new Stack<>();
-        	this.scc = new ArrayList<>();
-        	for(TimingNode v:this.timingNodes){
-        		v.reset();
-        	}
+    	//An edge to a node on the path of the search closes a loop and is
+    	//cut, the graph without these edges has no loops. The search keeps
+    	//its path on an explicit stack, with the next sink edge of every node.
+    	Set<TimingEdge> cutEdges = new HashSet<>();
+    	TimingNode[] path = new TimingNode[64];
+    	int[] nextSink = new int[64];
+    	int index = 0;
+
+    	for(TimingNode root:this.timingNodes){
+    		if(!root.undefined()){
+    			continue;
+    		}
 
-        	//Find SCC
-        	for(TimingNode v:this.timingNodes){
-        		if(v.undefined()){
-        			strongConnect(v);
-        		}
-        	}
+    		int depth = 0;
+    		path[0] = root;
+    		nextSink[0] = 0;
+    		root.setIndex(index++);
+    		root.putOnStack();
+
+    		while(depth >= 0){
+    			TimingNode v = path[depth];
+
+    			if(nextSink[depth] < v.getNumSinks()){
+    				TimingEdge e = v.getSinkEdge(nextSink[depth]);
+    				TimingNode w = e.getSink();
+
+    				if(w.onStack()){
+    					//The next sink edge moves into this slot
+    					v.removeSink(e);
+    					w.removeSource(e);
+    					cutEdges.add(e);
+    				}else{
+    					nextSink[depth]++;
+
+    					if(w.undefined()){
+    						depth++;
+    						if(depth == path.length){
+    							path = Arrays.copyOf(path, 2 * depth);
+    							nextSink = Arrays.copyOf(nextSink, 2 * depth);
+    						}
+    						path[depth] = w;
+    						nextSink[depth] = 0;
+    						w.setIndex(index++);
+    						w.putOnStack();
+    					}
+    				}
+    			}else{
+    				v.removeFromStack();
+    				path[depth] = null;
+    				depth--;
+    			}
+    		}
+    	}
 
-        	//Analyze SCC
-        	for(SCC scc:this.scc){
-        		if(scc.size > 1){
-        			this.timingEdges.remove(scc.cutLoop());
-        			finalIteration = false;
-        			cutLoops++;
-        		}
-        	}
-        	
-        	System.out.println("\titeration " + iteration + " | " + cutLoops + " loops cut");
+    	if(!cutEdges.isEmpty()){
+    		this.timingEdges.removeAll(cutEdges);
     	}
+    	System.out.println("\t" + cutEdges.size() + " loops cut");
 
     	long end = System.nanoTime();
     	System.out.printf("\n\tcut loops took %.2f s\n\n", (end - start) * 1e-9);
     }
-    private void strongConnect(TimingNode v){
-    	v.setIndex(this.index);
-    	v.setLowLink(this.index);
-    	this.index++;
-
-    	this.stack.add(v);
-    	v.putOnStack();
-
-    	for(TimingEdge e:v.getSinkEdges()){
-    		TimingNode w = e.getSink();
-    		if(w.undefined()){
-    			strongConnect(w);
-    			
-    			int lowLink = Math.min(v.getLowLink(), w.getLowLink());
-    			v.setLowLink(lowLink);
-    		}else if(w.onStack()){
-    			int lowLink = Math.min(v.getLowLink(), w.getIndex());
-    			v.setLowLink(lowLink);
-    		}
-    	}
-    	
-    	if(v.getLowLink() == v.getIndex()){
-    		TimingNode w;
-    		SCC scc = new SCC();
-    		do{
-    			w = this.stack.pop();
-    			w.removeFromStack();
-    			scc.addElement(w);
-    		}while(w != v);
-    		this.scc.add(scc);
+
+    /**
+     * Number of threads that analyse the clock domain pairs, all processors by default
+     */
+    public void setNumThreads(int numThreads) {
+    	if(numThreads > 0) {
+    		this.numThreads = numThreads;
     	}
     }
     
-    public class SCC {
-    	//Class for strongly connected component
-    	List<TimingNode> elements;
-    	int size;
-
-    	SCC(){
-    		this.elements = new ArrayList<>();
-    		this.size = 0;
+    /**
+     * The pool of the clock domain pairs, made the first time it is needed
+     */
+    private ForkJoinPool timingPool() {
+    	if(this.numThreads == 1) {
+    		return null;
     	}
-
-    	void addElement(TimingNode v){
-    		this.elements.add(v);
-    		this.size++;
+    	if(this.timingPool == null) {
+    		this.timingPool = new ForkJoinPool(this.numThreads);
     	}
-
-    	TimingEdge cutLoop(){
-    		TimingNode v = this.elements.get(this.elements.size()-1);
-
-    		for(TimingEdge e:v.getSinkEdges()){
-    			TimingNode w = e.getSink();
-    			if(w == this.elements.get(this.elements.size()-2)){
-    	    		v.removeSink(e);
-    	    		w.removeSource(e);
-
-    	    		return e;
-    			}
-    		}
-    		System.out.println("Edge not cut correctly");
-    		return null;
+    	return this.timingPool;
+    }
+    
+    /******************************************************
+     * Levelization of the timing graph for the timing    *
+     * sweeps, the nodes in topological order             *
+     ******************************************************/
+    private void levelize() {
+    	long start = System.nanoTime();
+    	
+    	if(this.levels != null) {
+    		this.levels.release();
     	}
+    	this.levels = new TimingLevels(this.timingNodes);
+    	
+    	long end = System.nanoTime();
+    	System.out.printf("Levelize timing graph: %d nodes in %d levels took %.2f s\n\n", this.levels.numNodes(), this.levels.numLevels(), (end - start) * 1e-9);
     }
-
+    
     /****************************************************************
      * These functions calculate the criticality of all connections *
      ****************************************************************/
@@ -598,8 +609,9 @@ public class TimingGraph {
     }
 
     public void calculatePlacementEstimatedWireDelay() {
+    	DelayTables delayTables = this.circuit.getArchitecture().getDelayTables();
     	for(TimingEdge edge : this.timingEdges) {
-    		edge.calculatePlacementEstimatedWireDelay();
+    		edge.calculatePlacementEstimatedWireDelay(delayTables);
     	}
     }
     public void calculateActualWireDelay() {
@@ -617,52 +629,32 @@ public class TimingGraph {
     	//Initialization
         this.globalMaxDelay = 0;
         
-        for(Connection connection : this.circuit.getConnections()) {
-        	connection.resetCriticality();
+        if(this.levels == null || this.levels.isStale()) {
+        	this.levelize();
         }
         
+        //The clock domain pairs are analysed independently
+        List<int[]> clockDomainPairs = new ArrayList<>();
         for(int sourceClockDomain = 0; sourceClockDomain < this.numClockDomains; sourceClockDomain++) {
         	for(int sinkClockDomain = 0; sinkClockDomain < this.numClockDomains; sinkClockDomain++) {
         		if(this.includeClockDomain(sourceClockDomain, sinkClockDomain)) {
-        			float maxDelay = 0;
-        			
-        			for(TimingNode node : this.timingNodes) {
-        				node.resetArrivalAndRequiredTime();
-        			}
-                	
-        			List<TimingNode> clockDomainRootNodes = this.rootNodes.get(sourceClockDomain);
-        			List<TimingNode> clockDomainLeafNodes = this.leafNodes.get(sinkClockDomain);
-        			
-        			//Arrival time
-        			for(TimingNode rootNode: clockDomainRootNodes){
-        				rootNode.setArrivalTime(0);
-        			}
-        			for(TimingNode leafNode: clockDomainLeafNodes){
-        				leafNode.recursiveArrivalTime(sourceClockDomain);
-        				
-        				maxDelay = Math.max((leafNode.getArrivalTime() - leafNode.clockDelay), maxDelay);
-        			}
-                    
-        			this.maxDelay[sourceClockDomain][sinkClockDomain] = maxDelay;
-        			if(maxDelay > this.globalMaxDelay) {
-        				this.globalMaxDelay = maxDelay;
-        			}
-
-        			//Required time
-        			for(TimingNode leafNode: clockDomainLeafNodes) {
-        				leafNode.setRequiredTime(maxDelay + leafNode.clockDelay);
-        			}
-        			for(TimingNode rootNode: clockDomainRootNodes) {
-        				rootNode.recursiveRequiredTime(sinkClockDomain);
-        			}
-        			
-        			//Criticality
-        			for(Connection connection : this.circuit.getConnections()) {
-        				connection.calculateCriticality(maxDelay, maxCriticality, criticalityExponent);
-        			}
+        			clockDomainPairs.add(new int[] {sourceClockDomain, sinkClockDomain});
         		}
         	}
         }
+        
+        List<Connection> connections = this.circuit.getConnections();
+        
+        //Updates the criticality of the connections and the times of the nodes
+        TimingLevels.Times[] times = this.levels.update(this.timingPool(), clockDomainPairs, this.rootNodes, this.leafNodes, connections, maxCriticality, criticalityExponent);
+        
+        for(TimingLevels.Times pairTimes : times) {
+        	float maxDelay = pairTimes.maxDelay;
+        	this.maxDelay[pairTimes.sourceClockDomain][pairTimes.sinkClockDomain] = maxDelay;
+        	if(maxDelay > this.globalMaxDelay) {
+        		this.globalMaxDelay = maxDelay;
+        	}
+        }
     }
     
     public float calculateTotalCost() {
@@ -5,10 +5,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
 
 import route.circuit.Circuit;
 import route.circuit.architecture.BlockCategory;
 import route.circuit.architecture.BlockType;
+import route.circuit.architecture.DelayTables;
 import route.circuit.architecture.PortType;
 import route.circuit.block.AbstractBlock;
 import route.circuit.block.GlobalBlock;
@@ -38,8 +40,9 @@ public class TimingGraphSLL {
 
     private List<TimingNode> alltimingNodes = new ArrayList<>();
     private List<TimingNode> allSLLNodes = new ArrayList<>();;
-    private List<TimingEdge> alltimingEdges  = new ArrayList<>();
-    private List<List<TimingEdge>> allTimingNets = new ArrayList<>();
+    //The edges and nets of the SLLs, those of the dies stay in the die graphs
+    private List<TimingEdge> sllTimingEdges  = new ArrayList<>();
+    private List<List<TimingEdge>> sllTimingNets = new ArrayList<>();
     
     private Map<Integer, List<TimingNode>> allRootNodes, allLeafNodes;
     //Multi-Clock Domain
@@ -49,11 +52,19 @@ public class TimingGraphSLL {
     private float[][] maxDelay;
     private float globalMaxDelay;
     private int totaldie;
+    //Topological levels of the timing nodes
+    private TimingLevels levels;
+    
+    //Threads of the analysis of the clock domain pairs
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+    private ForkJoinPool timingPool;
     //Tarjan's strongly connected components algorithm
     private int index;
     private Stack<TimingNode> stack;
     private List<Connection> allConnections = new ArrayList<>();
     private List<Connection> sllConnections = new ArrayList<>();
+    //The connections of the timing analysis, the die connections and the SLL connections
+    private List<Connection> timingConnections;
 
     public TimingGraphSLL(Circuit[] circuit, HashMap<String, SllNetData> sllInfo, List<Connection> sllConns, int totDie) {
         this.circuitdie = circuit;
@@ -86,6 +97,8 @@ public class TimingGraphSLL {
         
         this.setClockDomains();
         
+        this.levelize();
+        
         System.out.println("Timing Graph:");
         
         System.out.println("   Num clock domains " + this.numClockDomainsTot);
@@ -109,8 +122,6 @@ public class TimingGraphSLL {
     	for(int i = 0; i < this.totaldie; i ++) {
     		this.timingGraphDie[i] = this.circuitdie[i].getTimingGraph();
     		this.alltimingNodes.addAll(this.timingGraphDie[i].getTimingNodes());
-    		this.alltimingEdges.addAll(this.timingGraphDie[i].getTimingEdges());
-    		this.allTimingNets.addAll(this.timingGraphDie[i].getTimingNets());
     		this.allSLLNodes.addAll(this.timingGraphDie[i].getSlltimingNodes());
     		
     		this.numClockDomainsTot = Math.max(this.numClockDomainsTot, this.timingGraphDie[i].getNumClockDomains());
@@ -131,8 +142,8 @@ public class TimingGraphSLL {
     					int delay = 0; 
     		            AbstractPin sinkPin = sinkMap.getValue();
     		            TimingNode sinkNode = sinkPin.getTimingNode();
-    		            TimingEdge edge = sourceNode.addSink(sinkNode, delay, this.circuitdie[0].getArchitecture().getDelayTables());
-    		            this.alltimingEdges.add(edge);
+    		            TimingEdge edge = sourceNode.addSink(sinkNode, delay);
+    		            this.sllTimingEdges.add(edge);
     		            
                         if(sinkNode.getGlobalBlock() != sourceNode.getGlobalBlock()) {
                             if(!sourceTimingNets.containsKey(sinkNode.getGlobalBlock())) {
@@ -145,7 +156,7 @@ public class TimingGraphSLL {
     			}
     			
     	        for(List<TimingEdge> timingNet : sourceTimingNets.values()) {
-    	            this.allTimingNets.add(timingNet);
+    	            this.sllTimingNets.add(timingNet);
     	        }
     			
     		}
@@ -172,6 +183,7 @@ public class TimingGraphSLL {
     
     public void addSLLConnections(List<Connection> sllConnections) {
     	this.sllConnections = sllConnections;
+    	this.timingConnections = null;
     	for(int i = 0; i < this.totaldie; i ++) {
     		this.allConnections.addAll(this.circuitdie[i].getConnections());
     	}
@@ -205,6 +217,44 @@ public class TimingGraphSLL {
 
 
 
+    /**
+     * Number of threads that analyse the clock domain pairs, all processors by default
+     */
+    public void setNumThreads(int numThreads) {
+    	if(numThreads > 0) {
+    		this.numThreads = numThreads;
+    	}
+    }
+    
+    /**
+     * The pool of the clock domain pairs, made the first time it is needed
+     */
+    private ForkJoinPool timingPool() {
+    	if(this.numThreads == 1) {
+    		return null;
+    	}
+    	if(this.timingPool == null) {
+    		this.timingPool = new ForkJoinPool(this.numThreads);
+    	}
+    	return this.timingPool;
+    }
+    
+    /******************************************************
+     * Levelization of the timing graph for the timing    *
+     * sweeps, the nodes in topological order             *
+     ******************************************************/
+    private void levelize() {
+    	long start = System.nanoTime();
+    	
+    	if(this.levels != null) {
+    		this.levels.release();
+    	}
+    	this.levels = new TimingLevels(this.alltimingNodes);
+    	
+    	long end = System.nanoTime();
+    	System.out.printf("Levelize timing graph: %d nodes in %d levels took %.2f s\n\n", this.levels.numNodes(), this.levels.numLevels(), (end - start) * 1e-9);
+    }
+    
     /****************************************************************
      * These functions calculate the criticality of all connections *
      ****************************************************************/
@@ -214,8 +264,12 @@ public class TimingGraphSLL {
 
  
     public void calculatePlacementEstimatedWireDelay() {
-    	for(TimingEdge edge : this.alltimingEdges) {
-    		edge.calculatePlacementEstimatedWireDelay();
+    	for(TimingGraph timingGraph : this.timingGraphDie) {
+    		timingGraph.calculatePlacementEstimatedWireDelay();
+    	}
+    	DelayTables delayTables = this.circuitdie[0].getArchitecture().getDelayTables();
+    	for(TimingEdge edge : this.sllTimingEdges) {
+    		edge.calculatePlacementEstimatedWireDelay(delayTables);
     	}
     }
     public void calculateActualWireDelay() {
@@ -233,60 +287,42 @@ public class TimingGraphSLL {
     	//Initialization
         this.globalMaxDelay = 0;
         
-        for(Connection connection : this.allConnections) {
-        	connection.resetCriticality();
-        }
-        for(Connection sllConn : this.sllConnections) {
-        	sllConn.resetCriticality();
+        if(this.levels == null || this.levels.isStale()) {
+        	this.levelize();
         }
-
         
+        //The clock domain pairs are analysed independently
+        List<int[]> clockDomainPairs = new ArrayList<>();
         for(int sourceClockDomain = 0; sourceClockDomain < this.numClockDomainsTot; sourceClockDomain++) {
         	for(int sinkClockDomain = 0; sinkClockDomain < this.numClockDomainsTot; sinkClockDomain++) {
         		if(this.includeClockDomain(sourceClockDomain, sinkClockDomain)) {
-        			float maxDelay = 0;
-        			
-        			for(TimingNode node : this.alltimingNodes) {
-        				node.resetArrivalAndRequiredTime();
-        			}
-                	
-        			List<TimingNode> clockDomainRootNodes = this.allRootNodes.get(sourceClockDomain);
-        			List<TimingNode> clockDomainLeafNodes = this.allLeafNodes.get(sinkClockDomain);
-        			
-        			//Arrival time
-        			for(TimingNode rootNode: clockDomainRootNodes){
-        				rootNode.setArrivalTime(0);
-        			}
-        			for(TimingNode leafNode: clockDomainLeafNodes){
-        				leafNode.recursiveArrivalTime(sourceClockDomain);
-        				
-        				maxDelay = Math.max((leafNode.getArrivalTime() - leafNode.clockDelay), maxDelay);
-        				System.out.print("\nThe leafNode is " + leafNode + " max delay is " + maxDelay);
-        			}
-                    
-        			this.maxDelay[sourceClockDomain][sinkClockDomain] = maxDelay;
-        			if(maxDelay > this.globalMaxDelay) {
-        				this.globalMaxDelay = maxDelay;
-        			}
-
-        			//Required time
-        			for(TimingNode leafNode: clockDomainLeafNodes) {
-        				leafNode.setRequiredTime(maxDelay + leafNode.clockDelay);
-        			}
-        			for(TimingNode rootNode: clockDomainRootNodes) {
-        				rootNode.recursiveRequiredTime(sinkClockDomain);
-        			}
-        			
-        			//Criticality : TODO
-        			for(Connection connection : this.allConnections) {
-        				connection.calculateCriticality(maxDelay, maxCriticality, criticalityExponent);
-        			}
-        			for(Connection sllConn : this.sllConnections) {
-        				sllConn.calculateCriticality(maxDelay, maxCriticality, criticalityExponent);
-        			}
+        			clockDomainPairs.add(new int[] {sourceClockDomain, sinkClockDomain});
         		}
         	}
         }
+        
+        if(this.timingConnections == null) {
+        	this.timingConnections = new ArrayList<>(this.allConnections);
+        	this.timingConnections.addAll(this.sllConnections);
+        }
+        List<Connection> connections = this.timingConnections;
+        
+        //Updates the criticality of the connections and the times of the nodes
+        TimingLevels.Times[] times = this.levels.update(this.timingPool(), clockDomainPairs, this.allRootNodes, this.allLeafNodes, connections, maxCriticality, criticalityExponent);
+        
+        for(TimingLevels.Times pairTimes : times) {
+        	List<TimingNode> clockDomainLeafNodes = this.allLeafNodes.get(pairTimes.sinkClockDomain);
+        	float leafMaxDelay = 0;
+        	for(int leaf = 0; leaf < clockDomainLeafNodes.size(); leaf++) {
+        		leafMaxDelay = Math.max((this.levels.arrivalTime(pairTimes, clockDomainLeafNodes.get(leaf)) - clockDomainLeafNodes.get(leaf).clockDelay), leafMaxDelay);
+        		System.out.print("\nThe leafNode is " + clockDomainLeafNodes.get(leaf) + " max delay is " + leafMaxDelay);
+        	}
+        	float maxDelay = pairTimes.maxDelay;
+        	this.maxDelay[pairTimes.sourceClockDomain][pairTimes.sinkClockDomain] = maxDelay;
+        	if(maxDelay > this.globalMaxDelay) {
+        		this.globalMaxDelay = maxDelay;
+        	}
+        }
     }
     
     public float calculateTotalCost() {
@@ -0,0 +1,1016 @@
+package route.circuit.timing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import route.route.Connection;
+
+/**
+ * The nodes of a timing graph in topological order, level by level, with
+ * the edges in arrays indexed by that order.
+ *
+ * The arrival times are a forward sweep over the order and the required
+ * times a backward sweep, instead of a recursion per combinational stage.
+ * A sweep sets the times of the same nodes as the recursion from the leaves
+ * or roots of TimingNode does, with the same values. The graph is closed
+ * over the edges, so the nodes that an edge leads to outside the node list
+ * are in the order as well. A node on a combinational loop has no level and
+ * is left out of the sweeps.
+ *
+ * The clock domain pairs are analysed independently, every pair with
+ * arrays of its own, and the criticality of a connection is the max over
+ * the pairs. The times of the pairs are kept, an update after a change of
+ * a few delays only propagates the times that change.
+ *
+ * The levels register with their nodes and edges. An edge reports a change
+ * of its delay, and a node a change of its edges or clock domains, to every
+ * levels it is in, so the die graphs and the system graph that share them
+ * each get the change.
+ */
+class TimingLevels {
+	private final List<TimingNode> graphNodes;
+	private final TimingNode[] allNodes;
+	private final Map<TimingNode, Integer> positions;
+
+	private final TimingNode[] nodes;
+	private final int numLevels;
+
+	//The source edges of every node, the delays are kept by source edge
+	private final int[] sourceStart;
+	private final int[] sourceNode;
+	private final TimingEdge[] sourceEdge;
+	private final int[] edgeSink;
+	private final float[] delay;
+
+	//The sink edges of every node, with the index of the source edge
+	private final int[] sinkStart;
+	private final int[] sinkNode;
+	private final int[] sinkEdge;
+
+	//A change of more than this fraction of the edges is analysed from scratch
+	private static final int INCREMENTAL_EDGES_FRACTION = 8;
+
+	//The edges of which the delay changed since the previous update, every edge once
+	private final boolean[] delayChanged;
+	private final int[] changedEdges;
+	private int numChangedEdges;
+	//Set when the edges or the clock domains of the nodes changed
+	private boolean stale, clockDomainsChanged;
+
+	//The analysis of the previous update. The criticality of every
+	//connection is kept as well: the graphs of the dies and the system
+	//share nodes and connections, and when another graph wrote over the
+	//times or criticalities of this one, the next update writes all of them.
+	private Times[] times;
+	private float[] criticality;
+	private float maxCriticality, criticalityExponent;
+	private boolean overwritten;
+	//The clock domain flags of the nodes
+	private boolean[][] sourceClockDomains, sinkClockDomains;
+	private int[] rootClockDomain, leafClockDomain;
+	private Map<Integer, List<TimingNode>> rootNodes, leafNodes;
+
+	//The connections, their edges and the connections of every node
+	private List<Connection> connections;
+	private int[] connectionEdges;
+	private int[] nodeConnectionStart;
+	private int[] nodeConnections;
+	//The connections of which the criticality changed in an incremental update
+	private boolean[] connectionUpdated;
+	private int[] updatedConnections;
+	private int numUpdatedConnections;
+
+	TimingLevels(List<TimingNode> graphNodes) {
+		this.graphNodes = graphNodes;
+
+		//All nodes that the edges of the graph reach
+		Map<TimingNode, Integer> ids = new IdentityHashMap<>();
+		List<TimingNode> all = new ArrayList<>(graphNodes.size());
+		for(TimingNode node : graphNodes) {
+			if(!ids.containsKey(node)) {
+				ids.put(node, all.size());
+				all.add(node);
+			}
+		}
+		for(int i = 0; i < all.size(); i++) {
+			TimingNode node = all.get(i);
+			for(TimingEdge edge : node.getSourceEdges()) {
+				if(!ids.containsKey(edge.getSource())) {
+					ids.put(edge.getSource(), all.size());
+					all.add(edge.getSource());
+				}
+			}
+			for(TimingEdge edge : node.getSinkEdges()) {
+				if(!ids.containsKey(edge.getSink())) {
+					ids.put(edge.getSink(), all.size());
+					all.add(edge.getSink());
+				}
+			}
+		}
+		this.allNodes = all.toArray(new TimingNode[all.size()]);
+
+		//Kahn's algorithm, one level at a time
+		int[] numSources = new int[all.size()];
+		List<TimingNode> order = new ArrayList<>(all.size());
+		for(int i = 0; i < all.size(); i++) {
+			numSources[i] = all.get(i).getSourceEdges().size();
+			if(numSources[i] == 0) {
+				order.add(all.get(i));
+			}
+		}
+		int numLevels = 0;
+		int levelStart = 0;
+		while(levelStart < order.size()) {
+			int levelEnd = order.size();
+			for(int i = levelStart; i < levelEnd; i++) {
+				for(TimingEdge edge : order.get(i).getSinkEdges()) {
+					int sink = ids.get(edge.getSink());
+					if(--numSources[sink] == 0) {
+						order.add(edge.getSink());
+					}
+				}
+			}
+			levelStart = levelEnd;
+			numLevels++;
+		}
+		this.numLevels = numLevels;
+		if(order.size() < all.size()) {
+			System.err.println((all.size() - order.size()) + " timing nodes are on a combinational loop and have no level");
+		}
+
+		int numNodes = order.size();
+		this.nodes = order.toArray(new TimingNode[numNodes]);
+		this.positions = new IdentityHashMap<>();
+		for(int p = 0; p < numNodes; p++) {
+			this.positions.put(this.nodes[p], p);
+		}
+
+		//Source edges, every source of a node with a level has a level
+		Map<TimingEdge, Integer> edgeIndex = new IdentityHashMap<>();
+		this.sourceStart = new int[numNodes + 1];
+		for(int p = 0; p < numNodes; p++) {
+			this.sourceStart[p + 1] = this.sourceStart[p] + this.nodes[p].getSourceEdges().size();
+		}
+		int numEdges = this.sourceStart[numNodes];
+		this.sourceNode = new int[numEdges];
+		this.sourceEdge = new TimingEdge[numEdges];
+		this.edgeSink = new int[numEdges];
+		this.delay = new float[numEdges];
+		for(int p = 0; p < numNodes; p++) {
+			int k = this.sourceStart[p];
+			for(TimingEdge edge : this.nodes[p].getSourceEdges()) {
+				this.sourceNode[k] = this.positions.get(edge.getSource());
+				this.sourceEdge[k] = edge;
+				this.edgeSink[k] = p;
+				edgeIndex.put(edge, k);
+				k++;
+			}
+		}
+
+		//Sink edges, without the edges to a node on a loop
+		this.sinkStart = new int[numNodes + 1];
+		for(int p = 0; p < numNodes; p++) {
+			int numSinks = 0;
+			for(TimingEdge edge : this.nodes[p].getSinkEdges()) {
+				if(edgeIndex.containsKey(edge)) {
+					numSinks++;
+				}
+			}
+			this.sinkStart[p + 1] = this.sinkStart[p] + numSinks;
+		}
+		this.sinkNode = new int[this.sinkStart[numNodes]];
+		this.sinkEdge = new int[this.sinkStart[numNodes]];
+		for(int p = 0; p < numNodes; p++) {
+			int k = this.sinkStart[p];
+			for(TimingEdge edge : this.nodes[p].getSinkEdges()) {
+				Integer index = edgeIndex.get(edge);
+				if(index != null) {
+					this.sinkNode[k] = this.positions.get(edge.getSink());
+					this.sinkEdge[k] = index;
+					k++;
+				}
+			}
+		}
+
+		//All delays are read at the first update
+		this.delayChanged = new boolean[numEdges];
+		this.changedEdges = new int[numEdges];
+		for(int k = 0; k < numEdges; k++) {
+			this.delayChanged(k);
+		}
+		for(TimingNode node : this.allNodes) {
+			node.addLevels(this);
+		}
+		for(int k = 0; k < numEdges; k++) {
+			this.sourceEdge[k].addLevels(this, k);
+		}
+	}
+
+	/**
+	 * Unregister from the nodes and edges, the levels get no more changes
+	 */
+	void release() {
+		for(TimingNode node : this.allNodes) {
+			node.removeLevels(this);
+		}
+		for(TimingEdge edge : this.sourceEdge) {
+			edge.removeLevels(this);
+		}
+	}
+
+	/**
+	 * True if edges were added to or removed from the nodes since the
+	 * levels were built
+	 */
+	boolean isStale() {
+		return this.stale;
+	}
+
+	void edgesChanged() {
+		this.stale = true;
+	}
+	void clockDomainsChanged() {
+		this.clockDomainsChanged = true;
+	}
+	void delayChanged(int k) {
+		if(!this.delayChanged[k]) {
+			this.delayChanged[k] = true;
+			this.changedEdges[this.numChangedEdges++] = k;
+		}
+	}
+
+	int numNodes() {
+		return this.nodes.length;
+	}
+	int numLevels() {
+		return this.numLevels;
+	}
+
+	/********************
+	 * Timing update
+	 ********************/
+
+	/**
+	 * The times of one clock domain pair. They are kept after the analysis,
+	 * so that a change of a few delays only updates the times it affects.
+	 */
+	static class Times {
+		final int sourceClockDomain, sinkClockDomain;
+
+		private final float[] arrivalTime, requiredTime;
+		private final boolean[] hasArrivalTime, hasRequiredTime;
+		//Queue marks of the incremental update, made the first time it is needed
+		private boolean[] queued;
+
+		float maxDelay;
+
+		private Times(int numNodes, int sourceClockDomain, int sinkClockDomain) {
+			this.sourceClockDomain = sourceClockDomain;
+			this.sinkClockDomain = sinkClockDomain;
+
+			this.arrivalTime = new float[numNodes];
+			this.requiredTime = new float[numNodes];
+			this.hasArrivalTime = new boolean[numNodes];
+			this.hasRequiredTime = new boolean[numNodes];
+		}
+	}
+
+	/**
+	 * Update the times of the clock domain pairs, the criticality of the
+	 * connections and the times of the nodes, and return the times of the
+	 * pairs in the order of the pairs.
+	 *
+	 * The edges that reported a change of their delay are compared with the
+	 * delays of the previous update. If the pairs and the connections are the same and only a few
+	 * delays changed, the times are only propagated from the changed edges
+	 * through their fanout and fanin until they no longer change, and only
+	 * the criticality of the connections with a changed time or delay is
+	 * calculated again. Otherwise all pairs are analysed from scratch.
+	 */
+	Times[] update(ForkJoinPool pool, List<int[]> clockDomainPairs, Map<Integer, List<TimingNode>> rootNodes, Map<Integer, List<TimingNode>> leafNodes, List<Connection> connections, float maxCriticality, float criticalityExponent) {
+		int[] changedEdges = this.updateDelays();
+
+		boolean sameAnalysis = this.times != null
+				&& this.connections == connections && this.connectionEdges.length == connections.size()
+				&& this.samePairs(clockDomainPairs)
+				&& !this.clockDomainsChanged;
+		if(!sameAnalysis || changedEdges.length > this.delay.length / INCREMENTAL_EDGES_FRACTION) {
+			this.analyse(pool, clockDomainPairs, rootNodes, leafNodes, connections, maxCriticality, criticalityExponent);
+		} else {
+			this.updateIncrementally(pool, changedEdges, maxCriticality, criticalityExponent);
+		}
+		this.maxCriticality = maxCriticality;
+		this.criticalityExponent = criticalityExponent;
+		return this.times;
+	}
+
+	private boolean samePairs(List<int[]> clockDomainPairs) {
+		if(clockDomainPairs.size() != this.times.length) {
+			return false;
+		}
+		for(int pair = 0; pair < this.times.length; pair++) {
+			if(clockDomainPairs.get(pair)[0] != this.times[pair].sourceClockDomain || clockDomainPairs.get(pair)[1] != this.times[pair].sinkClockDomain) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Read the delays of the edges that reported a change and return the
+	 * edges of which the delay is not the same as at the previous update
+	 */
+	private int[] updateDelays() {
+		int[] changedEdges = new int[this.numChangedEdges];
+		int numChanged = 0;
+		for(int i = 0; i < this.numChangedEdges; i++) {
+			int k = this.changedEdges[i];
+			this.delayChanged[k] = false;
+			float delay = this.sourceEdge[k].getTotalDelay();
+			if(Float.floatToRawIntBits(delay) != Float.floatToRawIntBits(this.delay[k])) {
+				this.delay[k] = delay;
+				changedEdges[numChanged++] = k;
+			}
+		}
+		this.numChangedEdges = 0;
+		return Arrays.copyOf(changedEdges, numChanged);
+	}
+
+	/**
+	 * The clock domain flags of the nodes, the roots and leaves of every
+	 * clock domain, and the connections of every node. The flags are read
+	 * from the nodes again, their clock domains may have changed.
+	 */
+	private void prepare(List<int[]> clockDomainPairs, Map<Integer, List<TimingNode>> rootNodes, Map<Integer, List<TimingNode>> leafNodes, List<Connection> connections) {
+		int numNodes = this.nodes.length;
+		int numClockDomains = 0;
+		for(int[] clockDomainPair : clockDomainPairs) {
+			numClockDomains = Math.max(numClockDomains, Math.max(clockDomainPair[0], clockDomainPair[1]) + 1);
+		}
+		this.clockDomainsChanged = false;
+		this.sourceClockDomains = new boolean[numClockDomains][];
+		this.sinkClockDomains = new boolean[numClockDomains][];
+		for(int[] clockDomainPair : clockDomainPairs) {
+			if(this.sourceClockDomains[clockDomainPair[0]] == null) {
+				boolean[] flags = new boolean[numNodes];
+				for(int p = 0; p < numNodes; p++) {
+					flags[p] = this.nodes[p].hasClockDomainAsSource(clockDomainPair[0]);
+				}
+				this.sourceClockDomains[clockDomainPair[0]] = flags;
+			}
+			if(this.sinkClockDomains[clockDomainPair[1]] == null) {
+				boolean[] flags = new boolean[numNodes];
+				for(int p = 0; p < numNodes; p++) {
+					flags[p] = this.nodes[p].hasClockDomainAsSink(clockDomainPair[1]);
+				}
+				this.sinkClockDomains[clockDomainPair[1]] = flags;
+			}
+		}
+
+		this.rootClockDomain = new int[numNodes];
+		this.leafClockDomain = new int[numNodes];
+		Arrays.fill(this.rootClockDomain, -1);
+		Arrays.fill(this.leafClockDomain, -1);
+		for(Map.Entry<Integer, List<TimingNode>> roots : rootNodes.entrySet()) {
+			for(TimingNode rootNode : roots.getValue()) {
+				int p = this.position(rootNode);
+				if(p >= 0) {
+					this.rootClockDomain[p] = roots.getKey();
+				}
+			}
+		}
+		for(Map.Entry<Integer, List<TimingNode>> leaves : leafNodes.entrySet()) {
+			for(TimingNode leafNode : leaves.getValue()) {
+				int p = this.position(leafNode);
+				if(p >= 0) {
+					this.leafClockDomain[p] = leaves.getKey();
+				}
+			}
+		}
+		this.rootNodes = rootNodes;
+		this.leafNodes = leafNodes;
+
+		//The edge of every connection, -1 if the sink of the edge is on a loop
+		this.connections = connections;
+		this.connectionEdges = new int[connections.size()];
+		this.nodeConnectionStart = new int[numNodes + 1];
+		for(int c = 0; c < this.connectionEdges.length; c++) {
+			TimingEdge edge = connections.get(c).getTimingEdge();
+			int sink = this.position(edge.getSink());
+			this.connectionEdges[c] = -1;
+			if(sink >= 0) {
+				for(int k = this.sourceStart[sink]; k < this.sourceStart[sink + 1]; k++) {
+					if(this.sourceEdge[k] == edge) {
+						this.connectionEdges[c] = k;
+					}
+				}
+			}
+			int k = this.connectionEdges[c];
+			if(k >= 0) {
+				this.nodeConnectionStart[this.sourceNode[k] + 1]++;
+				this.nodeConnectionStart[this.edgeSink[k] + 1]++;
+			}
+		}
+		for(int p = 0; p < numNodes; p++) {
+			this.nodeConnectionStart[p + 1] += this.nodeConnectionStart[p];
+		}
+		this.nodeConnections = new int[this.nodeConnectionStart[numNodes]];
+		this.connectionUpdated = new boolean[this.connectionEdges.length];
+		this.updatedConnections = new int[this.connectionEdges.length];
+		int[] fill = Arrays.copyOf(this.nodeConnectionStart, numNodes);
+		for(int c = 0; c < this.connectionEdges.length; c++) {
+			int k = this.connectionEdges[c];
+			if(k >= 0) {
+				this.nodeConnections[fill[this.sourceNode[k]]++] = c;
+				this.nodeConnections[fill[this.edgeSink[k]]++] = c;
+			}
+		}
+	}
+
+	/********************
+	 * Full analysis
+	 ********************/
+
+	/**
+	 * Analyse all clock domain pairs from scratch, on the pool if there is one
+	 */
+	private void analyse(ForkJoinPool pool, List<int[]> clockDomainPairs, Map<Integer, List<TimingNode>> rootNodes, Map<Integer, List<TimingNode>> leafNodes, List<Connection> connections, float maxCriticality, float criticalityExponent) {
+		this.prepare(clockDomainPairs, rootNodes, leafNodes, connections);
+		this.times = new Times[clockDomainPairs.size()];
+
+		if(clockDomainPairs.isEmpty()) {
+			this.criticality = new float[connections.size()];
+			this.setCriticality();
+			this.overwritten = false;
+			return;
+		}
+
+		DomainPairs pairs = new DomainPairs(clockDomainPairs, maxCriticality, criticalityExponent, 0, clockDomainPairs.size());
+		float[] criticality;
+		if(pool == null) {
+			criticality = pairs.analyse(0);
+			for(int pair = 1; pair < clockDomainPairs.size(); pair++) {
+				maxCriticality(criticality, pairs.analyse(pair));
+			}
+		} else {
+			criticality = pool.invoke(pairs);
+		}
+
+		this.criticality = criticality;
+		this.setCriticality();
+		this.setTimes(this.times[this.times.length - 1]);
+		this.overwritten = false;
+	}
+
+	/**
+	 * A range of clock domain pairs, split in halves until every pair is a
+	 * task of its own. The criticality of the halves is merged when both are
+	 * done, so only the pairs that run at the same time have an array of
+	 * criticalities.
+	 */
+	private class DomainPairs extends RecursiveTask<float[]> {
+		private static final long serialVersionUID = 1L;
+
+		private final List<int[]> clockDomainPairs;
+		private final float maxCriticality, criticalityExponent;
+		private final int first, last;
+
+		DomainPairs(List<int[]> clockDomainPairs, float maxCriticality, float criticalityExponent, int first, int last) {
+			this.clockDomainPairs = clockDomainPairs;
+			this.maxCriticality = maxCriticality;
+			this.criticalityExponent = criticalityExponent;
+			this.first = first;
+			this.last = last;
+		}
+
+		@Override
+		protected float[] compute() {
+			if(this.last - this.first == 1) {
+				return this.analyse(this.first);
+			}
+			int middle = (this.first + this.last) / 2;
+			DomainPairs left = new DomainPairs(this.clockDomainPairs, this.maxCriticality, this.criticalityExponent, this.first, middle);
+			DomainPairs right = new DomainPairs(this.clockDomainPairs, this.maxCriticality, this.criticalityExponent, middle, this.last);
+			right.fork();
+			float[] criticality = left.compute();
+			maxCriticality(criticality, right.join());
+			return criticality;
+		}
+
+		private float[] analyse(int pair) {
+			int sourceClockDomain = this.clockDomainPairs.get(pair)[0];
+			int sinkClockDomain = this.clockDomainPairs.get(pair)[1];
+			TimingLevels levels = TimingLevels.this;
+			Times times = new Times(levels.nodes.length, sourceClockDomain, sinkClockDomain);
+			levels.times[pair] = times;
+
+			boolean[] visit = new boolean[levels.nodes.length];
+			levels.calculateArrivalTimes(times, levels.rootNodes.get(sourceClockDomain), levels.leafNodes.get(sinkClockDomain), visit);
+			times.maxDelay = levels.maxDelay(times);
+			Arrays.fill(visit, false);
+			levels.calculateRequiredTimes(times, levels.rootNodes.get(sourceClockDomain), levels.leafNodes.get(sinkClockDomain), visit);
+
+			float[] criticality = new float[levels.connectionEdges.length];
+			for(int c = 0; c < criticality.length; c++) {
+				float connectionCriticality = levels.criticality(times, c, this.maxCriticality, this.criticalityExponent);
+				if(connectionCriticality > criticality[c]) {
+					criticality[c] = connectionCriticality;
+				}
+			}
+			return criticality;
+		}
+	}
+
+	private static void maxCriticality(float[] criticality, float[] other) {
+		for(int c = 0; c < criticality.length; c++) {
+			if(other[c] > criticality[c]) {
+				criticality[c] = other[c];
+			}
+		}
+	}
+
+	/**
+	 * The criticality of a connection in the times of a pair, 0 if the edge
+	 * of the connection is not on a path of the pair
+	 */
+	private float criticality(Times times, int connection, float maxCriticality, float criticalityExponent) {
+		int k = this.connectionEdges[connection];
+		if(k < 0) {
+			return 0;
+		}
+		int source = this.sourceNode[k];
+		int sink = this.edgeSink[k];
+		if(times.hasArrivalTime[source] && times.hasRequiredTime[sink]) {
+			return TimingEdge.criticality(times.arrivalTime[source], times.requiredTime[sink], this.delay[k], times.maxDelay, maxCriticality, criticalityExponent);
+		}
+		return 0;
+	}
+
+	/**
+	 * The max delay of a pair, over the leaves of the sink clock domain in order
+	 */
+	private float maxDelay(Times times) {
+		float maxDelay = 0;
+		for(TimingNode leafNode : this.leafNodes.get(times.sinkClockDomain)) {
+			maxDelay = Math.max((this.arrivalTime(times, leafNode) - leafNode.clockDelay), maxDelay);
+		}
+		return maxDelay;
+	}
+
+	/**
+	 * The arrival time of the leaves of the sink clock domain and of the
+	 * nodes on their paths from the roots of the source clock domain
+	 */
+	private void calculateArrivalTimes(Times times, List<TimingNode> rootNodes, List<TimingNode> leafNodes, boolean[] visit) {
+		int numNodes = this.nodes.length;
+		float[] arrivalTime = times.arrivalTime;
+		boolean[] hasArrivalTime = times.hasArrivalTime;
+		boolean[] hasClockDomain = this.sourceClockDomains[times.sourceClockDomain];
+
+		for(TimingNode rootNode : rootNodes) {
+			int p = this.position(rootNode);
+			if(p >= 0) {
+				arrivalTime[p] = 0;
+				hasArrivalTime[p] = true;
+			}
+		}
+		for(TimingNode leafNode : leafNodes) {
+			int p = this.position(leafNode);
+			if(p >= 0) {
+				visit[p] = true;
+			}
+		}
+
+		//Backward: the nodes of which the arrival time is needed
+		for(int p = numNodes - 1; p >= 0; p--) {
+			if(visit[p] && !hasArrivalTime[p]) {
+				for(int k = this.sourceStart[p]; k < this.sourceStart[p + 1]; k++) {
+					int source = this.sourceNode[k];
+					if(hasClockDomain[source]) {
+						visit[source] = true;
+					}
+				}
+			}
+		}
+
+		//Forward: the arrival times
+		for(int p = 0; p < numNodes; p++) {
+			if(visit[p] && !hasArrivalTime[p]) {
+				arrivalTime[p] = this.arrivalTime(p, arrivalTime, hasClockDomain);
+				hasArrivalTime[p] = true;
+			}
+		}
+	}
+	private float arrivalTime(int p, float[] arrivalTime, boolean[] hasClockDomain) {
+		float maxArrivalTime = 0;
+		for(int k = this.sourceStart[p]; k < this.sourceStart[p + 1]; k++) {
+			int source = this.sourceNode[k];
+			if(hasClockDomain[source]) {
+				float localArrivalTime = arrivalTime[source] + this.delay[k];
+				if(localArrivalTime > maxArrivalTime) {
+					maxArrivalTime = localArrivalTime;
+				}
+			}
+		}
+		return maxArrivalTime;
+	}
+
+	/**
+	 * The required time of the leaves of the sink clock domain is the max
+	 * delay plus their clock delay, then the required time of the roots of
+	 * the source clock domain and the nodes on their paths to those leaves
+	 */
+	private void calculateRequiredTimes(Times times, List<TimingNode> rootNodes, List<TimingNode> leafNodes, boolean[] visit) {
+		int numNodes = this.nodes.length;
+		float[] requiredTime = times.requiredTime;
+		boolean[] hasRequiredTime = times.hasRequiredTime;
+		boolean[] hasClockDomain = this.sinkClockDomains[times.sinkClockDomain];
+
+		for(TimingNode leafNode : leafNodes) {
+			int p = this.position(leafNode);
+			if(p >= 0) {
+				requiredTime[p] = times.maxDelay + leafNode.clockDelay;
+				hasRequiredTime[p] = true;
+			}
+		}
+		for(TimingNode rootNode : rootNodes) {
+			int p = this.position(rootNode);
+			if(p >= 0) {
+				visit[p] = true;
+			}
+		}
+
+		//Forward: the nodes of which the required time is needed
+		for(int p = 0; p < numNodes; p++) {
+			if(visit[p] && !hasRequiredTime[p]) {
+				for(int k = this.sinkStart[p]; k < this.sinkStart[p + 1]; k++) {
+					int sink = this.sinkNode[k];
+					if(hasClockDomain[sink]) {
+						visit[sink] = true;
+					}
+				}
+			}
+		}
+
+		//Backward: the required times
+		for(int p = numNodes - 1; p >= 0; p--) {
+			if(visit[p] && !hasRequiredTime[p]) {
+				requiredTime[p] = this.requiredTime(p, requiredTime, hasClockDomain);
+				hasRequiredTime[p] = true;
+			}
+		}
+	}
+	private float requiredTime(int p, float[] requiredTime, boolean[] hasClockDomain) {
+		float minRequiredTime = Integer.MAX_VALUE;
+		for(int k = this.sinkStart[p]; k < this.sinkStart[p + 1]; k++) {
+			int sink = this.sinkNode[k];
+			if(hasClockDomain[sink]) {
+				float localRequiredTime = requiredTime[sink] - this.delay[this.sinkEdge[k]];
+				if(localRequiredTime < minRequiredTime) {
+					minRequiredTime = localRequiredTime;
+				}
+			}
+		}
+		return minRequiredTime;
+	}
+
+	/********************
+	 * Incremental update
+	 ********************/
+
+	/**
+	 * The nodes of which a time changed in the update of one pair, or all
+	 * nodes if the max delay of the pair changed
+	 */
+	private static class PairUpdate {
+		int[] changedNodes = new int[16];
+		int numChangedNodes = 0;
+		boolean maxDelayChanged = false;
+
+		void add(int p) {
+			if(this.numChangedNodes == this.changedNodes.length) {
+				this.changedNodes = Arrays.copyOf(this.changedNodes, 2 * this.changedNodes.length);
+			}
+			this.changedNodes[this.numChangedNodes++] = p;
+		}
+	}
+
+	private void updateIncrementally(ForkJoinPool pool, final int[] changedEdges, float maxCriticality, float criticalityExponent) {
+		if(this.times.length == 0) {
+			if(this.overwritten) {
+				this.setCriticality();
+				this.overwritten = false;
+			}
+			return;
+		}
+		final PairUpdate[] updates = new PairUpdate[this.times.length];
+		if(pool == null || this.times.length < 2) {
+			for(int pair = 0; pair < this.times.length; pair++) {
+				updates[pair] = this.updatePair(this.times[pair], changedEdges);
+			}
+		} else {
+			List<RecursiveAction> tasks = new ArrayList<>();
+			for(int pair = 0; pair < this.times.length; pair++) {
+				final int updatePair = pair;
+				tasks.add(new RecursiveAction() {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected void compute() {
+						updates[updatePair] = TimingLevels.this.updatePair(TimingLevels.this.times[updatePair], changedEdges);
+					}
+				});
+			}
+			pool.invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+		}
+
+		//The connections of which the criticality has to be calculated again
+		boolean allConnections = maxCriticality != this.maxCriticality || criticalityExponent != this.criticalityExponent;
+		for(PairUpdate update : updates) {
+			allConnections |= update.maxDelayChanged;
+		}
+		if(allConnections) {
+			for(int c = 0; c < this.connectionEdges.length; c++) {
+				this.updateCriticality(c, maxCriticality, criticalityExponent);
+			}
+		} else {
+			for(int k : changedEdges) {
+				this.updateConnections(this.edgeSink[k], maxCriticality, criticalityExponent);
+			}
+			for(PairUpdate update : updates) {
+				for(int i = 0; i < update.numChangedNodes; i++) {
+					this.updateConnections(update.changedNodes[i], maxCriticality, criticalityExponent);
+				}
+			}
+		}
+
+		//Only the changed criticalities and times are written, unless another
+		//graph with some of the same connections and nodes wrote over them
+		if(allConnections || this.overwritten) {
+			this.setCriticality();
+		} else {
+			for(int i = 0; i < this.numUpdatedConnections; i++) {
+				this.setCriticality(this.updatedConnections[i]);
+			}
+		}
+		for(int i = 0; i < this.numUpdatedConnections; i++) {
+			this.connectionUpdated[this.updatedConnections[i]] = false;
+		}
+		this.numUpdatedConnections = 0;
+
+		Times last = this.times[this.times.length - 1];
+		PairUpdate lastUpdate = updates[updates.length - 1];
+		if(this.overwritten || lastUpdate.maxDelayChanged) {
+			this.setTimes(last);
+		} else {
+			for(int i = 0; i < lastUpdate.numChangedNodes; i++) {
+				this.setTimes(last, lastUpdate.changedNodes[i]);
+			}
+		}
+		this.overwritten = false;
+	}
+
+	private void updateConnections(int p, float maxCriticality, float criticalityExponent) {
+		for(int i = this.nodeConnectionStart[p]; i < this.nodeConnectionStart[p + 1]; i++) {
+			int c = this.nodeConnections[i];
+			if(!this.connectionUpdated[c]) {
+				this.connectionUpdated[c] = true;
+				this.updatedConnections[this.numUpdatedConnections++] = c;
+				this.updateCriticality(c, maxCriticality, criticalityExponent);
+			}
+		}
+	}
+
+	/**
+	 * The criticality of a connection is the max over the pairs
+	 */
+	private void updateCriticality(int connection, float maxCriticality, float criticalityExponent) {
+		float criticality = 0;
+		for(Times times : this.times) {
+			float pairCriticality = this.criticality(times, connection, maxCriticality, criticalityExponent);
+			if(pairCriticality > criticality) {
+				criticality = pairCriticality;
+			}
+		}
+		this.criticality[connection] = criticality;
+	}
+
+	/**
+	 * Propagate the changed delays through the times of one pair. A time is
+	 * calculated again when a time or delay it depends on changed, in the
+	 * order of the levels, and the propagation stops at the times that stay
+	 * the same. If the max delay changes, all required times change with it.
+	 */
+	private PairUpdate updatePair(Times times, int[] changedEdges) {
+		PairUpdate update = new PairUpdate();
+		if(changedEdges.length == 0) {
+			return update;
+		}
+		if(times.queued == null) {
+			times.queued = new boolean[this.nodes.length];
+		}
+		NodeQueue queue = new NodeQueue(times.queued);
+
+		//Arrival times, forward from the sinks of the changed edges
+		int sourceClockDomain = times.sourceClockDomain;
+		boolean[] hasSourceClockDomain = this.sourceClockDomains[sourceClockDomain];
+		for(int k : changedEdges) {
+			int p = this.edgeSink[k];
+			if(times.hasArrivalTime[p] && this.rootClockDomain[p] != sourceClockDomain && hasSourceClockDomain[this.sourceNode[k]]) {
+				queue.add(p);
+			}
+		}
+		boolean leafChanged = false;
+		while(!queue.isEmpty()) {
+			int p = queue.removeFirst();
+			float arrivalTime = this.arrivalTime(p, times.arrivalTime, hasSourceClockDomain);
+			if(Float.floatToRawIntBits(arrivalTime) == Float.floatToRawIntBits(times.arrivalTime[p])) {
+				continue;
+			}
+			times.arrivalTime[p] = arrivalTime;
+			update.add(p);
+			leafChanged |= this.leafClockDomain[p] == times.sinkClockDomain;
+			if(hasSourceClockDomain[p]) {
+				for(int k = this.sinkStart[p]; k < this.sinkStart[p + 1]; k++) {
+					int sink = this.sinkNode[k];
+					if(times.hasArrivalTime[sink] && this.rootClockDomain[sink] != sourceClockDomain) {
+						queue.add(sink);
+					}
+				}
+			}
+		}
+
+		if(leafChanged) {
+			float maxDelay = this.maxDelay(times);
+			if(Float.floatToRawIntBits(maxDelay) != Float.floatToRawIntBits(times.maxDelay)) {
+				//All leaves get another required time
+				times.maxDelay = maxDelay;
+				update.maxDelayChanged = true;
+				Arrays.fill(times.hasRequiredTime, false);
+				this.calculateRequiredTimes(times, this.rootNodes.get(sourceClockDomain), this.leafNodes.get(times.sinkClockDomain), new boolean[this.nodes.length]);
+				return update;
+			}
+		}
+
+		//Required times, backward from the sources of the changed edges
+		int sinkClockDomain = times.sinkClockDomain;
+		boolean[] hasSinkClockDomain = this.sinkClockDomains[sinkClockDomain];
+		for(int k : changedEdges) {
+			int p = this.sourceNode[k];
+			if(times.hasRequiredTime[p] && this.leafClockDomain[p] != sinkClockDomain && hasSinkClockDomain[this.edgeSink[k]]) {
+				queue.add(-p);
+			}
+		}
+		while(!queue.isEmpty()) {
+			int p = -queue.removeFirst();
+			float requiredTime = this.requiredTime(p, times.requiredTime, hasSinkClockDomain);
+			if(Float.floatToRawIntBits(requiredTime) == Float.floatToRawIntBits(times.requiredTime[p])) {
+				continue;
+			}
+			times.requiredTime[p] = requiredTime;
+			update.add(p);
+			if(hasSinkClockDomain[p]) {
+				for(int k = this.sourceStart[p]; k < this.sourceStart[p + 1]; k++) {
+					int source = this.sourceNode[k];
+					if(times.hasRequiredTime[source] && this.leafClockDomain[source] != sinkClockDomain) {
+						queue.add(-source);
+					}
+				}
+			}
+		}
+		return update;
+	}
+
+	/**
+	 * A heap of node positions with the smallest first, the positions of a
+	 * backward propagation are added negated. A node is only queued once.
+	 */
+	private static class NodeQueue {
+		private final boolean[] queued;
+		private int[] heap = new int[16];
+		private int size = 0;
+
+		NodeQueue(boolean[] queued) {
+			this.queued = queued;
+		}
+
+		boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		void add(int key) {
+			int p = key < 0 ? -key : key;
+			if(this.queued[p]) {
+				return;
+			}
+			this.queued[p] = true;
+			if(this.size == this.heap.length) {
+				this.heap = Arrays.copyOf(this.heap, 2 * this.heap.length);
+			}
+			int i = this.size++;
+			while(i > 0 && this.heap[(i - 1) / 2] > key) {
+				this.heap[i] = this.heap[(i - 1) / 2];
+				i = (i - 1) / 2;
+			}
+			this.heap[i] = key;
+		}
+
+		int removeFirst() {
+			int first = this.heap[0];
+			int last = this.heap[--this.size];
+			int i = 0;
+			while(2 * i + 1 < this.size) {
+				int child = 2 * i + 1;
+				if(child + 1 < this.size && this.heap[child + 1] < this.heap[child]) {
+					child++;
+				}
+				if(this.heap[child] >= last) {
+					break;
+				}
+				this.heap[i] = this.heap[child];
+				i = child;
+			}
+			this.heap[i] = last;
+			this.queued[first < 0 ? -first : first] = false;
+			return first;
+		}
+	}
+
+	/********************
+	 * Times of the nodes
+	 ********************/
+
+	/**
+	 * The arrival time of a node in the times of a pair
+	 */
+	float arrivalTime(Times times, TimingNode node) {
+		int p = this.position(node);
+		return p >= 0 && times.hasArrivalTime[p] ? times.arrivalTime[p] : 0;
+	}
+
+	private void setCriticality() {
+		for(int c = 0; c < this.criticality.length; c++) {
+			this.setCriticality(c);
+		}
+	}
+	private void setCriticality(int c) {
+		Connection connection = this.connections.get(c);
+		this.overwrite(connection.getTimingEdge().setCriticalityWriter(this));
+		connection.setCriticality(this.criticality[c]);
+	}
+
+	/**
+	 * Give the nodes the times of a pair, the other nodes have no times
+	 */
+	private void setTimes(Times times) {
+		for(TimingNode node : this.graphNodes) {
+			this.overwrite(node.setTimesWriter(this));
+			node.resetArrivalAndRequiredTime();
+		}
+		for(int p = 0; p < this.nodes.length; p++) {
+			this.setTimes(times, p);
+		}
+	}
+	private void setTimes(Times times, int p) {
+		TimingNode node = this.nodes[p];
+		this.overwrite(node.setTimesWriter(this));
+		if(times.hasArrivalTime[p]) {
+			node.setArrivalTime(times.arrivalTime[p]);
+		} else {
+			node.resetArrivalTime();
+		}
+		if(times.hasRequiredTime[p]) {
+			node.setRequiredTime(times.requiredTime[p]);
+		} else {
+			node.resetRequiredTime();
+		}
+	}
+
+	/**
+	 * Tell the previous writer of a node or connection that its times or
+	 * criticalities are no longer all there
+	 */
+	private void overwrite(TimingLevels previousWriter) {
+		if(previousWriter != null && previousWriter != this) {
+			previousWriter.overwritten = true;
+		}
+	}
+
+	private int position(TimingNode node) {
+		Integer position = this.positions.get(node);
+		return position == null ? -1 : position;
+	}
+}
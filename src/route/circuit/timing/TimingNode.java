@@ -1,9 +1,9 @@
 package route.circuit.timing;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
-import route.circuit.architecture.DelayTables;
 import route.circuit.block.GlobalBlock;
 import route.circuit.pin.AbstractPin;
 import route.circuit.timing.TimingNode.Position;
@@ -20,24 +20,32 @@ public class TimingNode {
 
     private final Position position;
 
-    private final ArrayList<TimingEdge> sourceEdges = new ArrayList<>();
-    private final ArrayList<TimingEdge> sinkEdges = new ArrayList<>();
+    //The edges are in the first numSources and numSinks slots of the arrays
+    private static final TimingEdge[] NO_EDGES = new TimingEdge[0];
+    private TimingEdge[] sourceEdges = NO_EDGES;
+    private TimingEdge[] sinkEdges = NO_EDGES;
     
     private int numSources = 0, numSinks = 0;
 
     private float arrivalTime, requiredTime;
     private boolean hasArrivalTime, hasRequiredTime;
 
-    //Tarjan's strongly connected components algorithm
+    //Depth first search of the combinational loops
     private int index;
-    private int lowLink;
     private boolean onStack;
     
-    //Multi clock functionality
-    private boolean[] hasClockDomainAsSource;
-    private boolean[] hasClockDomainAsSink;
+    //Multi clock functionality, a bit per clock domain. The clock domains
+    //from 64 on are in the extra words, which only exist if there are more
+    //than 64 clock domains.
+    private long clockDomainsAsSource, clockDomainsAsSink;
+    private long[] moreClockDomainsAsSource, moreClockDomainsAsSink;
     private boolean hasSourceClockDomains = false;
     private boolean hasSinkClockDomains = false;
+    
+    //The timing levels with this node, they are told when the edges or the clock domains change
+    private TimingLevels[] levels;
+    //The timing levels that wrote the times last
+    private TimingLevels timesWriter;
    
     public final float clockDelay;
 
@@ -69,14 +77,20 @@ public class TimingNode {
     }
 
     private void addSource(TimingNode source, TimingEdge edge) {
-    	this.sourceEdges.add(edge);
-    	this.numSources++;
+    	if(this.numSources == this.sourceEdges.length) {
+    		this.sourceEdges = Arrays.copyOf(this.sourceEdges, Math.max(2, 2 * this.numSources));
+    	}
+    	this.sourceEdges[this.numSources++] = edge;
+    	this.edgesChanged();
     }
-    TimingEdge addSink(TimingNode sink, float delay, DelayTables delayTables) {
-        TimingEdge edge = new TimingEdge(delay, this, sink, delayTables);
+    TimingEdge addSink(TimingNode sink, float delay) {
+        TimingEdge edge = new TimingEdge(delay, this, sink);
 
-        this.sinkEdges.add(edge);
-        this.numSinks++;
+        if(this.numSinks == this.sinkEdges.length) {
+        	this.sinkEdges = Arrays.copyOf(this.sinkEdges, Math.max(2, 2 * this.numSinks));
+        }
+        this.sinkEdges[this.numSinks++] = edge;
+        this.edgesChanged();
 
         sink.addSource(this, edge);
 
@@ -84,27 +98,44 @@ public class TimingNode {
     }
 
     void removeSource(TimingEdge sourceEdge) {
-    	if(this.sourceEdges.contains(sourceEdge)){
-    		this.sourceEdges.remove(sourceEdge);
+    	if(remove(this.sourceEdges, this.numSources, sourceEdge)){
     		this.numSources--;
+    		this.edgesChanged();
     	}else{
     		System.err.println("This node does not contain source edge");
     	}
     }
     void removeSink(TimingEdge sinkEdge) {
-    	if(this.sinkEdges.contains(sinkEdge)){
-    		this.sinkEdges.remove(sinkEdge);
+    	if(remove(this.sinkEdges, this.numSinks, sinkEdge)){
     		this.numSinks--;
+    		this.edgesChanged();
     	}else{
     		System.err.println("This sink does not contain sink edge");
     	}
     }
+    private static boolean remove(TimingEdge[] edges, int numEdges, TimingEdge edge) {
+    	for(int i = 0; i < numEdges; i++) {
+    		if(edges[i] == edge) {
+    			System.arraycopy(edges, i + 1, edges, i, numEdges - i - 1);
+    			edges[numEdges - 1] = null;
+    			return true;
+    		}
+    	}
+    	return false;
+    }
     
+    /**
+     * A read only view of the edges, it does not follow the edges that
+     * are added later
+     */
     public List<TimingEdge> getSourceEdges() {
-        return this.sourceEdges;
+        return edgeList(this.sourceEdges, this.numSources);
     }
     public List<TimingEdge> getSinkEdges() {
-        return this.sinkEdges;
+        return edgeList(this.sinkEdges, this.numSinks);
+    }
+    private static List<TimingEdge> edgeList(TimingEdge[] edges, int numEdges) {
+    	return Collections.unmodifiableList(Arrays.asList(edges).subList(0, numEdges));
     }
 
     public int getNumSources() {
@@ -115,12 +146,63 @@ public class TimingNode {
     }
     
     public TimingEdge getSourceEdge(int sourceIndex) {
-        return this.sourceEdges.get(sourceIndex);
+    	if(sourceIndex >= this.numSources) {
+    		throw new IndexOutOfBoundsException("Source edge " + sourceIndex + " of " + this.numSources);
+    	}
+        return this.sourceEdges[sourceIndex];
     }
     public TimingEdge getSinkEdge(int sinkIndex) {
-        return this.sinkEdges.get(sinkIndex);
+    	if(sinkIndex >= this.numSinks) {
+    		throw new IndexOutOfBoundsException("Sink edge " + sinkIndex + " of " + this.numSinks);
+    	}
+        return this.sinkEdges[sinkIndex];
     }
     
+    void addLevels(TimingLevels levels) {
+    	if(this.levels == null) {
+    		this.levels = new TimingLevels[] {levels};
+    	} else {
+    		this.levels = Arrays.copyOf(this.levels, this.levels.length + 1);
+    		this.levels[this.levels.length - 1] = levels;
+    	}
+    }
+    void removeLevels(TimingLevels levels) {
+    	for(int i = 0; this.levels != null && i < this.levels.length; i++) {
+    		if(this.levels[i] == levels) {
+    			if(this.levels.length == 1) {
+    				this.levels = null;
+    			} else {
+    				System.arraycopy(this.levels, i + 1, this.levels, i, this.levels.length - i - 1);
+    				this.levels = Arrays.copyOf(this.levels, this.levels.length - 1);
+    			}
+    			return;
+    		}
+    	}
+    }
+    private void edgesChanged() {
+    	if(this.levels != null) {
+    		for(TimingLevels levels : this.levels) {
+    			levels.edgesChanged();
+    		}
+    	}
+    }
+    private void clockDomainsChanged() {
+    	if(this.levels != null) {
+    		for(TimingLevels levels : this.levels) {
+    			levels.clockDomainsChanged();
+    		}
+    	}
+    }
+
+    /**
+     * Set the writer of the times and return the previous one
+     */
+    TimingLevels setTimesWriter(TimingLevels writer) {
+    	TimingLevels previous = this.timesWriter;
+    	this.timesWriter = writer;
+    	return previous;
+    }
+
     void resetArrivalAndRequiredTime() {
         this.hasArrivalTime = false;
         this.hasRequiredTime = false;
@@ -140,24 +222,6 @@ public class TimingNode {
     float getArrivalTime() {
     	return this.arrivalTime;
     }
-	float recursiveArrivalTime(int sourceClockDomain) {
-		if(this.hasArrivalTime()) {
-			return this.getArrivalTime();
-		} else {
-			float maxArrivalTime = 0;
-			for(TimingEdge edge:this.sourceEdges) {
-				if(edge.getSource().hasClockDomainAsSource[sourceClockDomain]) {
-					float localArrivalTime = edge.getSource().recursiveArrivalTime(sourceClockDomain) + edge.getTotalDelay();
-					if(localArrivalTime > maxArrivalTime) {
-						maxArrivalTime = localArrivalTime;
-					}
-				}
-			}
-			this.setArrivalTime(maxArrivalTime);
-			return this.getArrivalTime();
-		}
-	}
-
 	
 	//Required time
     void resetRequiredTime() {
@@ -173,30 +237,12 @@ public class TimingNode {
     float getRequiredTime() {
     	return this.requiredTime;
     }
-    float recursiveRequiredTime(int sinkClockDomain) {
-    	if(this.hasRequiredTime()) {
-    		return this.getRequiredTime();
-    	}else {
-			float minRequiredTime = Integer.MAX_VALUE;
-			for(TimingEdge edge:this.sinkEdges) {
-				if(edge.getSink().hasClockDomainAsSink[sinkClockDomain]) {
-					float localRequiredTime = edge.getSink().recursiveRequiredTime(sinkClockDomain) - edge.getTotalDelay();
-					if(localRequiredTime < minRequiredTime) {
-						minRequiredTime = localRequiredTime;
-					}
-				}
-			}
-			this.setRequiredTime(minRequiredTime);
-			return this.getRequiredTime();
-    	}
-    }
    
    /****************************************************
-    * Tarjan's strongly connected components algorithm *
+    * Depth first search of the combinational loops    *
     ****************************************************/
     public void reset(){
     	this.index = -1;
-    	this.lowLink = -1;
     	this.onStack = false;
     }
     public boolean undefined(){
@@ -205,15 +251,9 @@ public class TimingNode {
     public void setIndex(int index){
     	this.index = index;
     }
-    public void setLowLink(int lowLink){
-    	this.lowLink = lowLink;
-    }
     public int getIndex(){
     	return this.index;
     }
-    public int getLowLink(){
-    	return this.lowLink;
-    }
     public void putOnStack(){
     	this.onStack = true;
     }
@@ -233,79 +273,106 @@ public class TimingNode {
     void setNumClockDomains(int numClockDomains) {
     	this.numClockDomains = numClockDomains;
     	
-    	this.hasClockDomainAsSource = new boolean[numClockDomains];
-    	this.hasClockDomainAsSink = new boolean[numClockDomains];
-        
-    	for(int clockDomain = 0; clockDomain < numClockDomains; clockDomain++) {
-            this.hasClockDomainAsSource[clockDomain] = false;
-            this.hasClockDomainAsSink[clockDomain] = false;
-        }
+    	this.clockDomainsAsSource = 0;
+    	this.clockDomainsAsSink = 0;
+    	if(numClockDomains > 64) {
+    		this.moreClockDomainsAsSource = new long[(numClockDomains - 1) / 64];
+    		this.moreClockDomainsAsSink = new long[(numClockDomains - 1) / 64];
+    	} else {
+    		this.moreClockDomainsAsSource = null;
+    		this.moreClockDomainsAsSink = null;
+    	}
+    	this.clockDomainsChanged();
     }
     
-    public boolean[] setSourceClockDomains() {
+    public void setSourceClockDomains() {
     	if(this.hasSourceClockDomains) {
-    		return this.hasClockDomainAsSource;
+    		return;
     		
     	} else if(this.position == Position.ROOT) {
-    		this.hasClockDomainAsSource[this.getClockDomain()] = true;
+    		this.clockDomainsAsSource = setBit(this.clockDomainsAsSource, this.moreClockDomainsAsSource, this.getClockDomain());
     		this.hasSourceClockDomains = true;
-    		
-    		return this.hasClockDomainAsSource;
+    		this.clockDomainsChanged();
     		
     	} else {
-			for(TimingEdge sourceEdge : this.sourceEdges) {
-				TimingNode sourceNode = sourceEdge.getSource();
-//				
-				boolean[] sourceNodeClockDomains = sourceNode.setSourceClockDomains();
+			for(int i = 0; i < this.numSources; i++) {
+				TimingNode sourceNode = this.sourceEdges[i].getSource();
+				sourceNode.setSourceClockDomains();
 				
-				for(int clockDomain = 0; clockDomain < this.numClockDomains; clockDomain++) {
-					if(sourceNodeClockDomains[clockDomain]) {
-						this.hasClockDomainAsSource[clockDomain] = true;						
-					}
-				}
+				this.clockDomainsAsSource |= sourceNode.clockDomainsAsSource & this.firstWordMask();
+				or(this.moreClockDomainsAsSource, sourceNode.moreClockDomainsAsSource, this.numClockDomains);
 			}
 	    	this.hasSourceClockDomains = true;
-	    	return this.hasClockDomainAsSource;
+	    	this.clockDomainsChanged();
     	}
     }
-    public boolean[] setSinkClockDomains() {
+    public void setSinkClockDomains() {
     	if(this.hasSinkClockDomains) {
-    		return this.hasClockDomainAsSink;
+    		return;
     		
     	}else if(this.position == Position.LEAF) {
-    		this.hasClockDomainAsSink[this.clockDomain] = true;
+    		this.clockDomainsAsSink = setBit(this.clockDomainsAsSink, this.moreClockDomainsAsSink, this.clockDomain);
     		this.hasSinkClockDomains = true;
+    		this.clockDomainsChanged();
     		
-    		return this.hasClockDomainAsSink;
     	} else {
     		
     		//check if the sink node is a SLL and ignore thiss.. do this while building system graph.
-			for(TimingEdge sinkEdge : this.sinkEdges) {
-				TimingNode sinkNode = sinkEdge.getSink();
-
-				boolean[] sinkNodeClockDomains = sinkNode.setSinkClockDomains();
+			for(int i = 0; i < this.numSinks; i++) {
+				TimingNode sinkNode = this.sinkEdges[i].getSink();
+				sinkNode.setSinkClockDomains();
 				
-				for(int clockDomain = 0; clockDomain < this.numClockDomains; clockDomain++) {
-					if(sinkNodeClockDomains[clockDomain]) {
-						this.hasClockDomainAsSink[clockDomain] = true;
-					}
-				}
+				this.clockDomainsAsSink |= sinkNode.clockDomainsAsSink & this.firstWordMask();
+				or(this.moreClockDomainsAsSink, sinkNode.moreClockDomainsAsSink, this.numClockDomains);
 			}
 	    	this.hasSinkClockDomains = true;
-	    	return this.hasClockDomainAsSink;
+	    	this.clockDomainsChanged();
     	}
     }
     
     public boolean hasClockDomainAsSink(int sinkClockDomain) {
-    	return this.hasClockDomainAsSink[sinkClockDomain];
+    	return hasBit(this.clockDomainsAsSink, this.moreClockDomainsAsSink, sinkClockDomain);
     }
     
     public boolean hasClockDomainAsSource(int sourceClockDomain) {
-    	return this.hasClockDomainAsSource[sourceClockDomain];
+    	return hasBit(this.clockDomainsAsSource, this.moreClockDomainsAsSource, sourceClockDomain);
+    }
+    
+    //The clock domains of this node in the first word
+    private long firstWordMask() {
+    	return this.numClockDomains >= 64 ? -1L : (1L << this.numClockDomains) - 1;
+    }
+    private static long setBit(long word, long[] moreWords, int clockDomain) {
+    	if(clockDomain < 64) {
+    		return word | (1L << clockDomain);
+    	}
+    	moreWords[(clockDomain - 64) / 64] |= 1L << (clockDomain % 64);
+    	return word;
+    }
+    private static boolean hasBit(long word, long[] moreWords, int clockDomain) {
+    	if(clockDomain < 64) {
+    		return (word & (1L << clockDomain)) != 0;
+    	}
+    	int w = (clockDomain - 64) / 64;
+    	return moreWords != null && w < moreWords.length && (moreWords[w] & (1L << (clockDomain % 64))) != 0;
+    }
+    private static void or(long[] words, long[] sourceWords, int numClockDomains) {
+    	if(words == null || sourceWords == null) {
+    		return;
+    	}
+    	int numWords = Math.min(words.length, sourceWords.length);
+    	for(int w = 0; w < numWords; w++) {
+    		long mask = -1L;
+    		int numBits = numClockDomains - 64 * (w + 1);
+    		if(numBits < 64) {
+    			mask = (1L << numBits) - 1;
+    		}
+    		words[w] |= sourceWords[w] & mask;
+    	}
     }
     
     void compact() {
-        this.sourceEdges.trimToSize();
-        this.sinkEdges.trimToSize();
+        this.sourceEdges = Arrays.copyOf(this.sourceEdges, this.numSources);
+        this.sinkEdges = Arrays.copyOf(this.sinkEdges, this.numSinks);
     }
 }
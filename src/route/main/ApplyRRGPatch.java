@@ -0,0 +1,31 @@
+package route.main;
+
+import java.io.File;
+import java.io.IOException;
+
+import route.circuit.exceptions.InvalidFileFormatException;
+import route.circuit.resource.RRGPatch;
+
+/**
+ * Writes the node and edge file of an RRG with SLL wires from the echo files
+ * of the base RRG and a patch written with the rrg_patch option
+ */
+public class ApplyRRGPatch {
+
+	public static void main(String[] args) {
+		if(args.length != 4) {
+			System.err.println("Usage: ApplyRRGPatch <directory of the base echo files> <patch> <node file> <edge file>");
+			System.exit(1);
+		}
+
+		try {
+			long start = System.nanoTime();
+			RRGPatch patch = RRGPatch.read(new File(args[1]));
+			patch.apply(new File(args[0]), new File(args[2]), new File(args[3]));
+			System.out.printf("Patch applied in %.2f s: %d nodes removed, %d SLL wires, %d edges added\n", (System.nanoTime() - start) * 1e-9, patch.numRemovedNodes(), patch.numAddedNodes(), patch.numAddedEdges());
+		} catch(IOException | InvalidFileFormatException error) {
+			System.err.println("Problem applying the RRG patch: " + error.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -57,6 +57,15 @@ public class Main {
     private Integer TotDie;
     private Integer SLLrows;
     private Integer sllDelay;
+    private Integer numThreads;
+    private Boolean rrgImage;
+    private List<Integer> sllRowsSweep;
+    private Integer sweepMemory;
+    private Boolean bandStreaming;
+    private Boolean rrgPatch;
+    private Boolean rrgXml;
+    private Boolean writeRRGXml;
+    private Boolean gzipOutput;
     private HashMap<String, SllNetData> sllNetInfo;
     private List<String> globalNetList;
     private CircuitSLL circuitSLL;
@@ -72,7 +81,16 @@ public class Main {
 	    O_RRG_FILE = "rr_graph_file",
 		O_NUM_DIE = "number_of_dies",
 		O_NUM_SLL_ROWS = "number_of_SLL_rows",
-    	O_SLL_DELAY = "delay_of_SLL_wire";
+    	O_SLL_DELAY = "delay_of_SLL_wire",
+    	O_NUM_THREADS = "number_of_threads",
+    	O_RRG_IMAGE = "rrg_image",
+    	O_BAND_STREAMING = "band_streaming",
+    	O_RRG_PATCH = "rrg_patch",
+    	O_RRG_XML = "rrg_xml",
+    	O_WRITE_RRG_XML = "write_rrg_xml",
+    	O_GZIP_OUTPUT = "gzip_output",
+    	O_SLL_ROWS_SWEEP = "SLL_rows_sweep",
+    	O_SWEEP_MEMORY = "sweep_memory_MB";
 
 
 	public static void initOptionList(Options options) {
@@ -86,6 +104,15 @@ public class Main {
 	    options.add(O_NUM_DIE, "Number of dies chosen as 2", new Integer(2));
 	    options.add(O_NUM_SLL_ROWS, "Number of SLL rows default set to 36", new Integer(36));
 	    options.add(O_SLL_DELAY, "Delay of SLL wire default set to 360ps", new Integer(360));
+	    options.add(O_NUM_THREADS, "Number of threads used to process the RRG and the timing graphs, 0 uses all processors", Integer.valueOf(0));
+	    options.add(O_RRG_IMAGE, "Keep a binary image of the parsed RRG next to the echo files for later runs", Boolean.FALSE);
+	    options.add(O_BAND_STREAMING, "Only keep the interposer band in memory and copy the rest of the RRG line by line", Boolean.FALSE);
+	    options.add(O_RRG_PATCH, "Write the SLL changes as a patch on the node and edge echo files, see ApplyRRGPatch", Boolean.FALSE);
+	    options.add(O_RRG_XML, "Read the RRG from the rr_graph.xml file itself instead of the echo files dumped next to it", Boolean.FALSE);
+	    options.add(O_WRITE_RRG_XML, "Also write the modified RRG as an rr_graph.xml that VPR reads with --read_rr_graph", Boolean.FALSE);
+	    options.add(O_GZIP_OUTPUT, "Write the modified RRG files gzip compressed, .gz input files are always read", Boolean.FALSE);
+	    options.add(O_SLL_ROWS_SWEEP, "Comma separated numbers of SLL rows to generate an RRG for from one parse of the base RRG", "");
+	    options.add(O_SWEEP_MEMORY, "Memory the sweep variants may use together, 0 uses three quarters of the free heap", Integer.valueOf(0));
 	}
 
 	
@@ -101,6 +128,20 @@ public class Main {
         this.TotDie = options.getInteger(O_NUM_DIE);
         this.SLLrows = options.getInteger(O_NUM_SLL_ROWS);
         this.sllDelay = options.getInteger(O_SLL_DELAY);
+        this.numThreads = options.getInteger(O_NUM_THREADS);
+        this.rrgImage = options.getBoolean(O_RRG_IMAGE);
+        this.bandStreaming = options.getBoolean(O_BAND_STREAMING);
+        this.rrgPatch = options.getBoolean(O_RRG_PATCH);
+        this.rrgXml = options.getBoolean(O_RRG_XML);
+        this.writeRRGXml = options.getBoolean(O_WRITE_RRG_XML);
+        this.gzipOutput = options.getBoolean(O_GZIP_OUTPUT);
+        this.sllRowsSweep = new ArrayList<Integer>();
+        for(String rows : options.getString(O_SLL_ROWS_SWEEP).split(",")) {
+        	if(!rows.trim().isEmpty()) {
+        		this.sllRowsSweep.add(Integer.parseInt(rows.trim()));
+        	}
+        }
+        this.sweepMemory = options.getInteger(O_SWEEP_MEMORY);
 
         this.blifFile = options.getFile(O_BLIF_FILE);
         this.netFiles = options.getFiles(O_NET_FILE);
@@ -150,6 +191,9 @@ public class Main {
 		System.out.print("\nTotal Dies : " + this.TotDie);
 		System.out.print("\nSLL rows : " + this.SLLrows);
 		System.out.print("\nSLL delay in ps : " + this.sllDelay);
+		if(!this.sllRowsSweep.isEmpty()) {
+			System.out.print("\nSLL rows sweep : " + this.sllRowsSweep);
+		}
 		
 	}
     
@@ -168,13 +212,28 @@ public class Main {
 	
 	private void loadRRG() {
 		this.resourceGraph = new ResourceGraph(this.circuitDie);
-		this.resourceGraph.build();
+		this.resourceGraph.setNumThreads(this.numThreads);
+		this.resourceGraph.setUseImage(this.rrgImage);
+		this.resourceGraph.setStreamBand(this.bandStreaming);
+		this.resourceGraph.setWritePatch(this.rrgPatch);
+		this.resourceGraph.setReadXml(this.rrgXml);
+		this.resourceGraph.setWriteXml(this.writeRRGXml);
+		this.resourceGraph.setCompressOutput(this.gzipOutput);
+		if(this.sllRowsSweep.isEmpty()) {
+			this.resourceGraph.build();
+		} else {
+			this.resourceGraph.sweep(this.sllRowsSweep, (long) this.sweepMemory << 20);
+		}
 	}
 	
 	private void buildSystemTimingGraph() {
 		System.out.print("\nBuilding the System level graph\n");
 		
+		for(Circuit circuit : this.circuitDie) {
+			circuit.getTimingGraph().setNumThreads(this.numThreads);
+		}
 		this.timingGraphSystem = new TimingGraphSLL(this.circuitDie, this.sllNetInfo, this.TotDie);
+		this.timingGraphSystem.setNumThreads(this.numThreads);
 		this.timingGraphSystem.build();
 	}
     private void loadCircuit() {
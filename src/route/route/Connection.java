@@ -118,7 +118,7 @@ public class Connection implements Comparable<Connection>  {
 	}
 
 	public boolean isInBoundingBoxLimit(RouteNode node) {
-		return node.xlow < this.net.x_max_b && node.xhigh > this.net.x_min_b && node.ylow < this.net.y_max_b && node.yhigh > this.net.y_min_b;
+		return node.getXlow() < this.net.x_max_b && node.getXhigh() > this.net.x_min_b && node.getYlow() < this.net.y_max_b && node.getYhigh() > this.net.y_min_b;
 	}
 	
 	public void addRouteNode(RouteNode routeNode) {
@@ -139,6 +139,14 @@ public class Connection implements Comparable<Connection>  {
 	public void resetCriticality() {
 		this.timingEdge.resetCriticality();
 	}
+	public void setCriticality(float criticality) {
+		this.timingEdge.setCriticality(criticality);
+		
+		this.criticality = criticality;
+	}
+	public TimingEdge getTimingEdge() {
+		return this.timingEdge;
+	}
 	
 	public float getCriticality() {
 		return this.criticality;
@@ -54,45 +54,45 @@ public class Net {
 			}
 		}
 		
-		if(source.xlow != source.xhigh) {
-			xGeomeanSum += source.centerx;
+		if(source.getXlow() != source.getXhigh()) {
+			xGeomeanSum += source.getCenterX();
 			
-			xCoordinatesBB.add(source.xlow);
-			xCoordinatesBB.add(source.xhigh);
+			xCoordinatesBB.add(source.getXlow());
+			xCoordinatesBB.add(source.getXhigh());
 		} else {
-			xGeomeanSum += source.xlow;
-			xCoordinatesBB.add(source.xlow);
+			xGeomeanSum += source.getXlow();
+			xCoordinatesBB.add(source.getXlow());
 		}
-		if(source.ylow != source.yhigh) {
-			yGeomeanSum += source.centery;
+		if(source.getYlow() != source.getYhigh()) {
+			yGeomeanSum += source.getCenterY();
 			
-			yCoordinatesBB.add(source.ylow);
-			yCoordinatesBB.add(source.yhigh);
+			yCoordinatesBB.add(source.getYlow());
+			yCoordinatesBB.add(source.getYhigh());
 		} else {
-			yGeomeanSum += source.ylow;
-			yCoordinatesBB.add(source.ylow);
+			yGeomeanSum += source.getYlow();
+			yCoordinatesBB.add(source.getYlow());
 		}
 
 		//Sink pins of net
 		for(Connection connection : net) {
 			Sink sink = (Sink) connection.sinkRouteNode;
-			if(sink.xlow != sink.xhigh) {
-				xGeomeanSum += sink.centerx;
+			if(sink.getXlow() != sink.getXhigh()) {
+				xGeomeanSum += sink.getCenterX();
 				
-				xCoordinatesBB.add(sink.xlow);
-				xCoordinatesBB.add(sink.xhigh);
+				xCoordinatesBB.add(sink.getXlow());
+				xCoordinatesBB.add(sink.getXhigh());
 			} else {
-				xGeomeanSum += sink.xlow; 
-				xCoordinatesBB.add(sink.xlow);
+				xGeomeanSum += sink.getXlow(); 
+				xCoordinatesBB.add(sink.getXlow());
 			}
-			if(sink.ylow != sink.yhigh) {
-				yGeomeanSum += sink.centery;
+			if(sink.getYlow() != sink.getYhigh()) {
+				yGeomeanSum += sink.getCenterY();
 				
-				yCoordinatesBB.add(sink.ylow);
-				yCoordinatesBB.add(sink.yhigh);
+				yCoordinatesBB.add(sink.getYlow());
+				yCoordinatesBB.add(sink.getYhigh());
 			} else {
-				yGeomeanSum += sink.ylow;
-				yCoordinatesBB.add(sink.ylow);
+				yGeomeanSum += sink.getYlow();
+				yCoordinatesBB.add(sink.getYlow());
 			}
 		}
 		
@@ -138,7 +138,7 @@ public class Net {
 	}
 	
 	public boolean isInBoundingBoxLimit(RouteNode node) {
-		return  node.xlow < this.x_max_b && node.xhigh > this.x_min_b && node.ylow < this.y_max_b && node.yhigh > this.y_min_b;
+		return  node.getXlow() < this.x_max_b && node.getXhigh() > this.x_min_b && node.getYlow() < this.y_max_b && node.getYhigh() > this.y_min_b;
 	}
 	
 	public int wireLength() {